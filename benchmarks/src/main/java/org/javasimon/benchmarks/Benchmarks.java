@@ -0,0 +1,54 @@
+package org.javasimon.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmarks jar - runs JMH with the provided command line options and writes results
+ * as JSON ({@value #DEFAULT_RESULT_FILE}) if the result format or file is not specified.
+ *
+ * @since 3.0
+ */
+public final class Benchmarks {
+	/**
+	 * Default file for JSON results.
+	 */
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args JMH command line options
+	 * @throws Exception if options are invalid or the benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions;
+		try {
+			commandLineOptions = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println("Error parsing command line: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.result(DEFAULT_RESULT_FILE);
+		}
+		if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+			// help and listing are handled by the standard JMH main
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		new Runner(options.build()).run();
+	}
+}
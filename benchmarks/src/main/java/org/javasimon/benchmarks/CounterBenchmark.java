@@ -0,0 +1,134 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.Counter;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lock-free Counter with the monitor based counter (how the Counter was implemented before)
+ * when used as in-flight gauge - increase and decrease from all threads. Method {@link #main(String[])}
+ * runs the benchmark with 1 to 64 threads.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmark {
+	private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+	private Counter counter;
+
+	private SynchronizedCounter synchronizedCounter;
+
+	/**
+	 * Creates the counters for the trial.
+	 */
+	@Setup
+	public void setup() {
+		Manager manager = new EnabledManager();
+		counter = manager.getCounter("org.javasimon.benchmarks.counter");
+		synchronizedCounter = new SynchronizedCounter();
+	}
+
+	/**
+	 * Increases and decreases the lock-free Counter.
+	 *
+	 * @return counter value
+	 */
+	@Benchmark
+	public long lockFree() {
+		counter.increase();
+		counter.decrease();
+		return counter.getCounter();
+	}
+
+	/**
+	 * Increases and decreases the monitor based counter.
+	 *
+	 * @return counter value
+	 */
+	@Benchmark
+	public long synchronizedMonitor() {
+		synchronizedCounter.increase();
+		synchronizedCounter.decrease();
+		return synchronizedCounter.getCounter();
+	}
+
+	/**
+	 * Runs the benchmark for all thread counts.
+	 *
+	 * @param args command line arguments (not used)
+	 * @throws RunnerException when the benchmark fails
+	 */
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : THREADS) {
+			new Runner(new OptionsBuilder()
+				.include(CounterBenchmark.class.getSimpleName())
+				.threads(threads)
+				.build()).run();
+		}
+	}
+
+	/**
+	 * Counter synchronized on its monitor, with timestamps from {@link System#currentTimeMillis()}.
+	 */
+	static final class SynchronizedCounter {
+		private long counter;
+		private long incrementSum;
+		private long decrementSum;
+		private long max = Long.MIN_VALUE;
+		private long maxTimestamp;
+		private long min = Long.MAX_VALUE;
+		private long minTimestamp;
+		private long lastUsage;
+
+		void increase() {
+			long now = System.currentTimeMillis();
+			synchronized (this) {
+				lastUsage = now;
+				counter++;
+				incrementSum++;
+				if (counter >= max) {
+					max = counter;
+					maxTimestamp = now;
+				}
+			}
+		}
+
+		void decrease() {
+			long now = System.currentTimeMillis();
+			synchronized (this) {
+				lastUsage = now;
+				counter--;
+				decrementSum++;
+				if (counter <= min) {
+					min = counter;
+					minTimestamp = now;
+				}
+			}
+		}
+
+		synchronized long getCounter() {
+			return counter;
+		}
+	}
+}
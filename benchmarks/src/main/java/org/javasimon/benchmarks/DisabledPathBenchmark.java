@@ -0,0 +1,116 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumented code running with the disabled {@link SimonManager} compared to the same code without
+ * any instrumentation. Measured code is a small computation so the difference is visible - ideally
+ * {@code baseline} and {@code instrumented} are the same. Variant {@code instrumentedField} uses Stopwatch
+ * obtained once (while the manager was disabled) and stored in the field, {@code instrumentedNoStatic}
+ * obtains the Stopwatch from the switching manager instance instead of the static {@link SimonManager}
+ * methods - this one can't be constant-folded.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisabledPathBenchmark {
+	private static final String NAME = "org.javasimon.benchmarks.disabled-path";
+
+	private long value = 42;
+
+	private Stopwatch stopwatch;
+
+	/**
+	 * Disables the default manager.
+	 */
+	@Setup
+	public void setup() {
+		SimonManager.disable();
+		stopwatch = SimonManager.getStopwatch(NAME);
+	}
+
+	/**
+	 * Enables the default manager again.
+	 */
+	@TearDown
+	public void tearDown() {
+		SimonManager.enable();
+	}
+
+	/**
+	 * Measured code without instrumentation.
+	 *
+	 * @return result of the computation
+	 */
+	@Benchmark
+	public long baseline() {
+		return work();
+	}
+
+	/**
+	 * Measured code instrumented with {@link SimonManager#getStopwatch(String)} and start/stop.
+	 *
+	 * @return result of the computation
+	 */
+	@Benchmark
+	public long instrumented() {
+		Split split = SimonManager.getStopwatch(NAME).start();
+		long result = work();
+		split.stop();
+		return result;
+	}
+
+	/**
+	 * Measured code instrumented with Stopwatch stored in the field.
+	 *
+	 * @return result of the computation
+	 */
+	@Benchmark
+	public long instrumentedField() {
+		Split split = stopwatch.start();
+		long result = work();
+		split.stop();
+		return result;
+	}
+
+	/**
+	 * Measured code instrumented via manager instance obtained from {@link SimonManager#manager()}.
+	 *
+	 * @return result of the computation
+	 */
+	@Benchmark
+	public long instrumentedNoStatic() {
+		Split split = SimonManager.manager().getStopwatch(NAME).start();
+		long result = work();
+		split.stop();
+		return result;
+	}
+
+	private long work() {
+		long x = value;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		return x;
+	}
+}
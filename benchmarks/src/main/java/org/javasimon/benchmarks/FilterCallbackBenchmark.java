@@ -0,0 +1,91 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.Callback;
+import org.javasimon.CallbackSkeleton;
+import org.javasimon.CompositeFilterCallback;
+import org.javasimon.EnabledManager;
+import org.javasimon.FilterCallback;
+import org.javasimon.Manager;
+import org.javasimon.Split;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rule evaluation of {@link CompositeFilterCallback} on the stopwatch stop event - pattern rule, condition
+ * rule (MVEL expression) and both combined.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterCallbackBenchmark {
+	private CompositeFilterCallback patternFilter;
+
+	private CompositeFilterCallback conditionFilter;
+
+	private CompositeFilterCallback combinedFilter;
+
+	private Split split;
+
+	/**
+	 * Prepares filter callbacks and the stopped split.
+	 */
+	@Setup
+	public void setup() {
+		// ASM optimizer of the used MVEL version generates classes rejected by the verifier of recent JVMs
+		OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+		patternFilter = filter(null, "org.javasimon.benchmarks.*");
+		conditionFilter = filter("split > 1000000 && counter > 1", null);
+		combinedFilter = filter("split > 1000000 && counter > 1", "org.javasimon.benchmarks.*");
+
+		Manager manager = new EnabledManager();
+		split = manager.getStopwatch("org.javasimon.benchmarks.filter").start();
+		split.stop();
+	}
+
+	private CompositeFilterCallback filter(String condition, String pattern) {
+		CompositeFilterCallback filter = new CompositeFilterCallback();
+		filter.addRule(FilterCallback.Rule.Type.MUST, condition, pattern, Callback.Event.STOPWATCH_STOP);
+		filter.addCallback(new CallbackSkeleton());
+		return filter;
+	}
+
+	/**
+	 * Rule with pattern only.
+	 */
+	@Benchmark
+	public void pattern() {
+		patternFilter.stopwatchStop(split);
+	}
+
+	/**
+	 * Rule with condition only.
+	 */
+	@Benchmark
+	public void condition() {
+		conditionFilter.stopwatchStop(split);
+	}
+
+	/**
+	 * Rule with pattern and condition.
+	 */
+	@Benchmark
+	public void combined() {
+		combinedFilter.stopwatchStop(split);
+	}
+}
@@ -0,0 +1,74 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Stopwatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of the existing Stopwatch by name from the manager with the specified number of Simons,
+ * alone and followed by start/stop (typical usage pattern).
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+	private static final String NAME = "org.javasimon.benchmarks.manager.stopwatch";
+
+	/**
+	 * Number of other Simons in the manager.
+	 */
+	@Param({"10", "10000"})
+	public int simons;
+
+	private Manager manager;
+
+	/**
+	 * Prepares the manager with Simons.
+	 */
+	@Setup
+	public void setup() {
+		manager = new EnabledManager();
+		for (int i = 0; i < simons; i++) {
+			manager.getStopwatch("org.javasimon.benchmarks.manager.group" + (i % 100) + ".sw" + i);
+		}
+		manager.getStopwatch(NAME);
+	}
+
+	/**
+	 * Stopwatch lookup.
+	 *
+	 * @return Stopwatch
+	 */
+	@Benchmark
+	public Stopwatch getStopwatch() {
+		return manager.getStopwatch(NAME);
+	}
+
+	/**
+	 * Stopwatch lookup with start/stop.
+	 *
+	 * @return split time
+	 */
+	@Benchmark
+	public long getStopwatchStartStop() {
+		return manager.getStopwatch(NAME).start().stop();
+	}
+}
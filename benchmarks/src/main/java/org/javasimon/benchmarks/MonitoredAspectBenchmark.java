@@ -0,0 +1,115 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.aop.Monitored;
+import org.javasimon.aop.MonitoredAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Call of the method advised by {@link MonitoredAspect} (woven at compile-time) compared with the plain call,
+ * with the Stopwatch measured explicitly and with the name resolved from the annotations on every call
+ * (as the aspect would do without the per join point cache).
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitoredAspectBenchmark {
+	private final Service service = new Service();
+
+	private Method method;
+
+	@Setup
+	public void setUp() throws NoSuchMethodException {
+		SimonManager.clear();
+		SimonManager.enable();
+		method = Service.class.getDeclaredMethod("plain", int.class);
+	}
+
+	/**
+	 * Plain call without any measuring.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int plain() {
+		return service.plain(1);
+	}
+
+	/**
+	 * Call advised by the aspect.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int advised() {
+		return service.advised(1);
+	}
+
+	/**
+	 * Call measured explicitly with the Stopwatch obtained by the constant name.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int explicit() {
+		Split split = SimonManager.getStopwatch("benchmark.explicit").start();
+		try {
+			return service.plain(1);
+		} finally {
+			split.stop();
+		}
+	}
+
+	/**
+	 * Call measured with the name resolved from the annotations by reflection on every call.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int resolvedPerCall() {
+		Monitored classAnnotation = method.getDeclaringClass().getAnnotation(Monitored.class);
+		Monitored methodAnnotation = method.getAnnotation(Monitored.class);
+		String classPart = classAnnotation != null && classAnnotation.name().length() > 0 ? classAnnotation.name()
+			: method.getDeclaringClass().getName();
+		String methodPart = methodAnnotation != null && methodAnnotation.name().length() > 0 ? methodAnnotation.name()
+			: method.getName();
+		Split split = SimonManager.getStopwatch(classPart + '.' + methodPart).start();
+		try {
+			return service.plain(1);
+		} finally {
+			split.stop();
+		}
+	}
+
+	/**
+	 * Measured service - only {@link #advised(int)} is advised by the aspect.
+	 */
+	public static class Service {
+		public int plain(int i) {
+			return i + 1;
+		}
+
+		@Monitored
+		public int advised(int i) {
+			return i + 1;
+		}
+	}
+}
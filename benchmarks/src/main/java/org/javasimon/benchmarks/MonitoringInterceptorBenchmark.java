@@ -0,0 +1,137 @@
+package org.javasimon.benchmarks;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.aop.Monitored;
+import org.javasimon.spring.MonitoringInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls through the Spring AOP proxy - without any interceptor, with {@link MonitoringInterceptor} (Stopwatch
+ * cached per method), with all its options switched on and with the interceptor resolving the name from
+ * the annotations on every call (the original implementation).
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitoringInterceptorBenchmark {
+	private Service bare;
+	private Service monitored;
+	private Service monitoredWithOptions;
+	private Service resolvedPerCall;
+
+	@Setup
+	public void setUp() {
+		SimonManager.clear();
+		SimonManager.enable();
+		bare = proxy(null);
+		monitored = proxy(new MonitoringInterceptor());
+		MonitoringInterceptor withOptions = new MonitoringInterceptor();
+		withOptions.setSeparateResults(true);
+		withOptions.setInFlightCounterName("benchmark.in-flight");
+		monitoredWithOptions = proxy(withOptions);
+		resolvedPerCall = proxy(new ResolvingInterceptor());
+	}
+
+	private static Service proxy(MethodInterceptor interceptor) {
+		ProxyFactory factory = new ProxyFactory(new ServiceImpl());
+		factory.addInterface(Service.class);
+		if (interceptor != null) {
+			factory.addAdvice(interceptor);
+		}
+		return (Service) factory.getProxy();
+	}
+
+	/**
+	 * Proxy without any interceptor.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int bare() {
+		return bare.call(1);
+	}
+
+	/**
+	 * Proxy with the monitoring interceptor.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int monitored() {
+		return monitored.call(1);
+	}
+
+	/**
+	 * Proxy with the monitoring interceptor using success/exception Stopwatches and in-flight Counter.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int monitoredWithOptions() {
+		return monitoredWithOptions.call(1);
+	}
+
+	/**
+	 * Proxy with the interceptor resolving the Stopwatch name on every call.
+	 *
+	 * @return result of the call
+	 */
+	@Benchmark
+	public int resolvedPerCall() {
+		return resolvedPerCall.call(1);
+	}
+
+	public interface Service {
+		int call(int i);
+	}
+
+	public static class ServiceImpl implements Service {
+		public int call(int i) {
+			return i + 1;
+		}
+	}
+
+	/**
+	 * Interceptor resolving the name from the target class and annotations on every call.
+	 */
+	private static final class ResolvingInterceptor implements MethodInterceptor {
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			Class targetClass = AopUtils.getTargetClass(invocation.getThis());
+			Method method = invocation.getMethod();
+			Monitored classAnnotation = (Monitored) targetClass.getAnnotation(Monitored.class);
+			Monitored methodAnnotation = method.getAnnotation(Monitored.class);
+			String classPart = classAnnotation != null && classAnnotation.name().length() > 0 ? classAnnotation.name()
+				: targetClass.getName();
+			String methodPart = methodAnnotation != null && methodAnnotation.name().length() > 0 ? methodAnnotation.name()
+				: method.getName();
+			Split split = SimonManager.getStopwatch(classPart + '.' + methodPart).start();
+			try {
+				return invocation.proceed();
+			} finally {
+				split.stop();
+			}
+		}
+	}
+}
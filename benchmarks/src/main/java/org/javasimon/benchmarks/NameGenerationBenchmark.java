@@ -0,0 +1,65 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.utils.GeneratedName;
+import org.javasimon.utils.SimonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of the Simon name from the caller class and method - full stack trace (the original implementation
+ * of {@link SimonUtils#generateName(String, boolean)}) compared with the current stack walking implementation
+ * and with the {@link GeneratedName} holder resolved on the first call.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameGenerationBenchmark {
+	private static final String SUFFIX = "-stopwatch";
+
+	private final GeneratedName holder = new GeneratedName(SUFFIX, true);
+
+	/**
+	 * Name built from the full stack trace.
+	 *
+	 * @return generated name
+	 */
+	@Benchmark
+	public String stackTrace() {
+		StackTraceElement stackElement = Thread.currentThread().getStackTrace()[1];
+		return stackElement.getClassName() + '.' + stackElement.getMethodName() + SUFFIX;
+	}
+
+	/**
+	 * Name generated by walking the top of the stack.
+	 *
+	 * @return generated name
+	 */
+	@Benchmark
+	public String generateName() {
+		return SimonUtils.generateName(SUFFIX, true);
+	}
+
+	/**
+	 * Name from the holder.
+	 *
+	 * @return generated name
+	 */
+	@Benchmark
+	public String holder() {
+		return holder.get();
+	}
+}
@@ -0,0 +1,111 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.SimonManager;
+import org.javasimon.jdbc4.SimonConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iteration over the result set from H2 in-memory database - plain JDBC result set compared with
+ * {@link org.javasimon.jdbc4.SimonResultSet} that measures every {@code next} call. Each operation executes
+ * the query and reads all {@value #ROWS} rows, the difference of the two benchmarks is the overhead.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetBenchmark {
+	private static final int ROWS = 1000;
+
+	private static final String QUERY = "select id, name from item";
+
+	private Connection connection;
+
+	private Connection simonConnection;
+
+	/**
+	 * Creates and fills the in-memory database.
+	 *
+	 * @throws Exception if the database cannot be initialized
+	 */
+	@Setup
+	public void setup() throws Exception {
+		Class.forName("org.h2.Driver");
+		connection = DriverManager.getConnection("jdbc:h2:mem:benchmark", "sa", "");
+		Statement statement = connection.createStatement();
+		statement.execute("create table item (id int primary key, name varchar(20))");
+		for (int i = 0; i < ROWS; i++) {
+			statement.execute("insert into item values (" + i + ", 'item " + i + "')");
+		}
+		statement.close();
+		SimonManager.clear();
+		simonConnection = new SimonConnection(connection, "org.javasimon.benchmarks.jdbc");
+	}
+
+	/**
+	 * Closes the database.
+	 *
+	 * @throws SQLException if closing fails
+	 */
+	@TearDown
+	public void tearDown() throws SQLException {
+		simonConnection.close();
+	}
+
+	/**
+	 * Iterates over plain result set.
+	 *
+	 * @return number of rows
+	 * @throws SQLException if query fails
+	 */
+	@Benchmark
+	public int plain() throws SQLException {
+		return readAll(connection);
+	}
+
+	/**
+	 * Iterates over Simon result set.
+	 *
+	 * @return number of rows
+	 * @throws SQLException if query fails
+	 */
+	@Benchmark
+	public int simon() throws SQLException {
+		return readAll(simonConnection);
+	}
+
+	private int readAll(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery(QUERY);
+			int rows = 0;
+			while (resultSet.next()) {
+				rows++;
+			}
+			resultSet.close();
+			return rows;
+		} finally {
+			statement.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.Stopwatch;
+import org.javasimon.javaee.SimonServletFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simon name derivation from the request URI by {@link SimonServletFilter} and resolution of the Stopwatch
+ * for the request - with the URI cache and without it (the name is derived for every request).
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServletFilterBenchmark {
+	/**
+	 * Request URI.
+	 */
+	@Param({"/shop/customer/detail.html", "/api/v1/orders/12345/items/67/price",
+		"/api/v1/customers/0f8fad5b-d9cb-469f-a165-70867728950e/orders"})
+	public String uri;
+
+	private NameFilter filter;
+
+	private NameFilter uncachedFilter;
+
+	private HttpServletRequest request;
+
+	/**
+	 * Prepares the filter and the request.
+	 */
+	@Setup
+	public void setup() {
+		filter = new NameFilter();
+		filter.init(filterConfig(null));
+		uncachedFilter = new NameFilter();
+		uncachedFilter.init(filterConfig("0"));
+		request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+			new Class[]{HttpServletRequest.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getRequestURI")) {
+					return uri;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * Simon name for the request.
+	 *
+	 * @return Simon name
+	 */
+	@Benchmark
+	public String getSimonName() {
+		return filter.simonName(request);
+	}
+
+	/**
+	 * Stopwatch for the request found in the URI cache.
+	 *
+	 * @return Stopwatch
+	 */
+	@Benchmark
+	public Stopwatch getStopwatchCached() {
+		return filter.stopwatch(request);
+	}
+
+	/**
+	 * Stopwatch for the request with the name derived every time.
+	 *
+	 * @return Stopwatch
+	 */
+	@Benchmark
+	public Stopwatch getStopwatchUncached() {
+		return uncachedFilter.stopwatch(request);
+	}
+
+	private static FilterConfig filterConfig(final String cacheSize) {
+		return (FilterConfig) Proxy.newProxyInstance(FilterConfig.class.getClassLoader(),
+			new Class[]{FilterConfig.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getInitParameter")) {
+					return args[0].equals(SimonServletFilter.INIT_PARAM_STOPWATCH_CACHE_SIZE) ? cacheSize : null;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * Filter exposing the name derivation.
+	 */
+	static final class NameFilter extends SimonServletFilter {
+		String simonName(HttpServletRequest request) {
+			return getSimonName(request);
+		}
+
+		Stopwatch stopwatch(HttpServletRequest request) {
+			return getStopwatch(request);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.utils.SimonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation rate of Stopwatches - 50 000 SQL-like names (fresh strings, as produced by the SQL normalizer)
+ * spread over a few statement types and tables created in the empty manager. Name validation alone
+ * is measured too, compared with the regex {@link SimonUtils#NAME_PATTERN}. Separate benchmark creates 20 000
+ * Stopwatches under the same parent.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SimonCreationBenchmark {
+	private static final int NAMES = 50000;
+
+	private static final int SIBLINGS = 20000;
+
+	private static final String[] TYPES = {"select", "insert", "update", "delete"};
+
+	private static final String NAME = "org.javasimon.jdbc.sql.select.from_orders_where_id_and_status_in_(@,@)";
+
+	private String[] names;
+
+	private String[] siblings;
+
+	private Manager manager;
+
+	/**
+	 * Prepares the names.
+	 */
+	@Setup
+	public void setup() {
+		names = new String[NAMES];
+		for (int i = 0; i < NAMES; i++) {
+			names[i] = "org.javasimon.jdbc.sql." + TYPES[i % TYPES.length] + ".table" + (i % 50) + ".statement" + i;
+		}
+		siblings = new String[SIBLINGS];
+		for (int i = 0; i < SIBLINGS; i++) {
+			siblings[i] = "org.javasimon.jdbc.sql.select.statement" + i;
+		}
+	}
+
+	/**
+	 * Fresh manager for each invocation.
+	 */
+	@Setup(Level.Invocation)
+	public void newManager() {
+		manager = new EnabledManager();
+	}
+
+	/**
+	 * Creation of all the Stopwatches, result is per one Stopwatch.
+	 *
+	 * @return manager with Stopwatches
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OperationsPerInvocation(NAMES)
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 20)
+	public Manager create() {
+		for (String name : names) {
+			manager.getStopwatch(new String(name));
+		}
+		return manager;
+	}
+
+	/**
+	 * Creation of Stopwatches under one parent, result is per one Stopwatch.
+	 *
+	 * @return manager with Stopwatches
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OperationsPerInvocation(SIBLINGS)
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 20)
+	public Manager createSiblings() {
+		for (String name : siblings) {
+			manager.getStopwatch(new String(name));
+		}
+		return manager;
+	}
+
+	/**
+	 * Name validation with the lookup table.
+	 *
+	 * @return true if the name is valid
+	 */
+	@Benchmark
+	public boolean checkName() {
+		return SimonUtils.checkName(NAME);
+	}
+
+	/**
+	 * Name validation with the regex.
+	 *
+	 * @return true if the name is valid
+	 */
+	@Benchmark
+	public boolean checkNameRegex() {
+		return SimonUtils.NAME_PATTERN.matcher(NAME).matches();
+	}
+}
@@ -0,0 +1,78 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.jdbc4.SqlNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalization of typical SQL statements and of the batch by {@link SqlNormalizer}.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlNormalizerBenchmark {
+	private static final String SELECT = "select c.id, c.name, sum(o.total) from customer c, orders o" +
+		" where c.id = o.customer_id and o.created > '2011-01-01' and c.state in (1, 2, 3) group by c.id, c.name";
+
+	private static final String INSERT = "insert into orders (id, customer_id, total, note) values (47, 11, 100.5, 'first order')";
+
+	private static final String UPDATE = "update customer set name = 'Bubu', state = 2 where id = 11";
+
+	private static final List<String> BATCH = Arrays.asList(INSERT, INSERT, INSERT, UPDATE, UPDATE);
+
+	/**
+	 * Select normalization.
+	 *
+	 * @return normalized SQL
+	 */
+	@Benchmark
+	public String select() {
+		return new SqlNormalizer(SELECT).getNormalizedSql();
+	}
+
+	/**
+	 * Insert normalization.
+	 *
+	 * @return normalized SQL
+	 */
+	@Benchmark
+	public String insert() {
+		return new SqlNormalizer(INSERT).getNormalizedSql();
+	}
+
+	/**
+	 * Update normalization.
+	 *
+	 * @return normalized SQL
+	 */
+	@Benchmark
+	public String update() {
+		return new SqlNormalizer(UPDATE).getNormalizedSql();
+	}
+
+	/**
+	 * Batch normalization.
+	 *
+	 * @return normalized SQL
+	 */
+	@Benchmark
+	public String batch() {
+		return new SqlNormalizer(BATCH).getNormalizedSql();
+	}
+}
@@ -0,0 +1,94 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonState;
+import org.javasimon.Stopwatch;
+import org.javasimon.SwitchingManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stopwatch start/stop - enabled, disabled Stopwatch, disabled manager and contended enabled Stopwatch.
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StopwatchBenchmark {
+	private Stopwatch enabled;
+
+	private Stopwatch disabled;
+
+	private Stopwatch disabledManager;
+
+	/**
+	 * Prepares the Stopwatches.
+	 */
+	@Setup
+	public void setup() {
+		Manager manager = new EnabledManager();
+		enabled = manager.getStopwatch("org.javasimon.benchmarks.enabled");
+		disabled = manager.getStopwatch("org.javasimon.benchmarks.disabled");
+		disabled.setState(SimonState.DISABLED, false);
+		SwitchingManager switchingManager = new SwitchingManager();
+		switchingManager.disable();
+		disabledManager = switchingManager.getStopwatch("org.javasimon.benchmarks.disabled-manager");
+	}
+
+	/**
+	 * Start/stop of the enabled Stopwatch.
+	 *
+	 * @return split time
+	 */
+	@Benchmark
+	public long enabled() {
+		return enabled.start().stop();
+	}
+
+	/**
+	 * Start/stop of the disabled Stopwatch.
+	 *
+	 * @return split time
+	 */
+	@Benchmark
+	public long disabled() {
+		return disabled.start().stop();
+	}
+
+	/**
+	 * Start/stop of the Stopwatch obtained from the disabled manager.
+	 *
+	 * @return split time
+	 */
+	@Benchmark
+	public long disabledManager() {
+		return disabledManager.start().stop();
+	}
+
+	/**
+	 * Start/stop of the same enabled Stopwatch from four threads.
+	 *
+	 * @return split time
+	 */
+	@Benchmark
+	@Threads(4)
+	public long contended() {
+		return enabled.start().stop();
+	}
+}
@@ -0,0 +1,125 @@
+package org.javasimon.benchmarks;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Simon;
+import org.javasimon.SimonState;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.javasimon.utils.ParallelSimonUtils;
+import org.javasimon.utils.SimonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations over the whole Simon tree with 10k, 100k and 1M Stopwatches - sequential recursive reset,
+ * aggregation and state propagation compared with the fork/join versions from {@link ParallelSimonUtils}.
+ * Stopwatches are organized in three levels with fan-out of 100 (with 1M Stopwatches there are 100 leaves
+ * under each of 10 000 parents).
+ *
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TreeOperationsBenchmark {
+	/**
+	 * Number of Stopwatches in the tree.
+	 */
+	@Param({"10000", "100000", "1000000"})
+	public int simons;
+
+	private Simon root;
+
+	private boolean enabled;
+
+	/**
+	 * Builds the tree.
+	 */
+	@Setup
+	public void setup() {
+		Manager manager = new EnabledManager();
+		for (int i = 0; i < simons; i++) {
+			manager.getStopwatch("org.javasimon.tree.a" + i / 10000 + ".b" + i / 100 % 100 + ".sw" + i % 100).addTime(i);
+		}
+		root = manager.getSimon("org.javasimon.tree");
+	}
+
+	/**
+	 * Sequential recursive reset.
+	 */
+	@Benchmark
+	public void resetSequential() {
+		SimonUtils.recursiveReset(root);
+	}
+
+	/**
+	 * Parallel recursive reset.
+	 */
+	@Benchmark
+	public void resetParallel() {
+		ParallelSimonUtils.recursiveReset(root);
+	}
+
+	/**
+	 * Sequential aggregation of Stopwatch totals.
+	 *
+	 * @return total time of all Stopwatches
+	 */
+	@Benchmark
+	public long aggregateSequential() {
+		return aggregate(root);
+	}
+
+	/**
+	 * Parallel aggregation of Stopwatch totals.
+	 *
+	 * @return aggregated sample
+	 */
+	@Benchmark
+	public StopwatchSample aggregateParallel() {
+		return ParallelSimonUtils.aggregate(root);
+	}
+
+	/**
+	 * Parallel collection of samples.
+	 *
+	 * @return samples
+	 */
+	@Benchmark
+	public Map collectSamplesParallel() {
+		return ParallelSimonUtils.collectSamples(root, false);
+	}
+
+	/**
+	 * State flip of the whole tree (propagation is parallel).
+	 */
+	@Benchmark
+	public void stateFlip() {
+		enabled = !enabled;
+		root.setState(enabled ? SimonState.ENABLED : SimonState.DISABLED, true);
+	}
+
+	private static long aggregate(Simon simon) {
+		long total = simon instanceof Stopwatch ? ((Stopwatch) simon).getTotal() : 0;
+		for (Simon child : simon.getChildren()) {
+			total += aggregate(child);
+		}
+		return total;
+	}
+}
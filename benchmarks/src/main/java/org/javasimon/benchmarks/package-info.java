@@ -0,0 +1,12 @@
+/**
+ * JMH benchmarks of Java Simon hot paths. Build the module and run all benchmarks with
+ * {@code java -jar benchmarks/target/benchmarks.jar} or the selected ones with the name regexp
+ * as the argument (e.g. {@code java -jar benchmarks/target/benchmarks.jar Counter}). Any other JMH
+ * command line option can be used. Results are written as JSON into {@code jmh-result.json} unless
+ * specified otherwise (options {@code -rf} and {@code -rff}), so results of different runs (releases)
+ * can be compared.
+ * <p/>
+ * Some benchmark classes have their own {@code main} method that runs them with a predefined set
+ * of parameters (e.g. various thread counts).
+ */
+package org.javasimon.benchmarks;
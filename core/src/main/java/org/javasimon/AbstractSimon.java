@@ -1,7 +1,8 @@
 package org.javasimon;
 
+import org.javasimon.utils.ParallelSimonUtils;
+
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * AbstractSimon implements basic enable/disable and hierarchy functionality.
@@ -36,14 +37,21 @@ abstract class AbstractSimon implements Simon {
 
 	private Simon parent;
 
-	private final List<Simon> children = new CopyOnWriteArrayList<Simon>();
+	private final SimonChildren children = new SimonChildren();
 
 	private String note;
 
 	private long resetTimestamp;
 
+	private final long created;
+
 	private Map<String, Object> attributes;
 
+	/**
+	 * True when the Simon was removed from the manager - destroyed, evicted, replaced or cleared.
+	 */
+	private volatile boolean destroyed;
+
 	/**
 	 * Constructor of the abstract Simon is used internally by subclasses.
 	 *
@@ -53,6 +61,7 @@ abstract class AbstractSimon implements Simon {
 	AbstractSimon(String name, Manager manager) {
 		this.name = name;
 		this.manager = manager;
+		created = manager.clock().milliTime();
 		if (name == null || name.equals(Manager.ROOT_SIMON_NAME)) {
 			state = SimonState.ENABLED;
 			enabled = true;
@@ -70,7 +79,16 @@ abstract class AbstractSimon implements Simon {
 	 * {@inheritDoc}
 	 */
 	public final List<Simon> getChildren() {
-		return children;
+		return children.snapshot();
+	}
+
+	/**
+	 * Returns the number of children without creating the snapshot of the children list.
+	 *
+	 * @return number of children
+	 */
+	final int childCount() {
+		return children.size();
 	}
 
 	/**
@@ -82,13 +100,39 @@ abstract class AbstractSimon implements Simon {
 		this.parent = parent;
 	}
 
+	/**
+	 * Returns true if the Simon was removed from the manager.
+	 *
+	 * @return true if the Simon was destroyed
+	 */
+	final boolean isDestroyed() {
+		return destroyed;
+	}
+
+	/**
+	 * Marks the Simon as removed from the manager - called by the manager only.
+	 */
+	final void markDestroyed() {
+		destroyed = true;
+	}
+
+	/**
+	 * Returns the timestamp since when the Simon is idle - timestamp of the last usage or of the creation
+	 * if the Simon was not used since.
+	 *
+	 * @return timestamp in ms since when the Simon is idle
+	 */
+	final long idleSince() {
+		return Math.max(lastUsage, created);
+	}
+
 	/**
 	 * Adds child to this Simon with setting the parent of the child.
 	 *
 	 * @param simon future child of this Simon
 	 */
 	final void addChild(AbstractSimon simon) {
-		children.add(simon);
+		children.put(simon);
 		simon.setParent(this);
 		simon.enabled = enabled;
 	}
@@ -127,16 +171,63 @@ abstract class AbstractSimon implements Simon {
 		return state.equals(SimonState.ENABLED);
 	}
 
-	private void updateAndPropagateEffectiveState(boolean enabled, boolean overrule) {
+	/**
+	 * Sets the effective state and propagates it to the subtree. Large subtrees (more than
+	 * {@link ParallelSimonUtils#DEFAULT_CUTOFF} Simons) are walked in parallel (see {@link ParallelSimonUtils}),
+	 * smaller ones sequentially on the caller thread.
+	 */
+	private void updateAndPropagateEffectiveState(final boolean enabled, final boolean overrule) {
+		if (subtreeSize(ParallelSimonUtils.DEFAULT_CUTOFF) <= ParallelSimonUtils.DEFAULT_CUTOFF) {
+			propagateEffectiveState(enabled, overrule);
+			return;
+		}
 		this.enabled = enabled;
-		for (Simon child : children) {
+		final AbstractSimon root = this;
+		ParallelSimonUtils.visit(this, new ParallelSimonUtils.Visitor() {
+			public boolean visit(Simon simon) {
+				if (simon == root) {
+					return true;
+				}
+				AbstractSimon child = (AbstractSimon) simon;
+				if (overrule) {
+					child.state = SimonState.INHERIT;
+				}
+				if (child.state.equals(SimonState.INHERIT)) {
+					child.enabled = enabled;
+					return true;
+				}
+				return false;
+			}
+		});
+	}
+
+	private void propagateEffectiveState(boolean enabled, boolean overrule) {
+		this.enabled = enabled;
+		for (Simon child : children.snapshot()) {
 			if (overrule) {
 				((AbstractSimon) child).state = SimonState.INHERIT;
 			}
 			if (child.getState().equals(SimonState.INHERIT)) {
-				((AbstractSimon) child).updateAndPropagateEffectiveState(enabled, overrule);
+				((AbstractSimon) child).propagateEffectiveState(enabled, overrule);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of Simons under this Simon, counting stops as soon as the limit is exceeded.
+	 */
+	private int subtreeSize(int limit) {
+		if (children.size() == 0) {
+			return 0;
+		}
+		int size = 0;
+		for (Simon child : children.snapshot()) {
+			size += 1 + ((AbstractSimon) child).subtreeSize(limit - size - 1);
+			if (size > limit) {
+				break;
 			}
 		}
+		return size;
 	}
 
 	/**
@@ -150,7 +241,7 @@ abstract class AbstractSimon implements Simon {
 	 * Saves the timestamp when the Simon was reset.
 	 */
 	protected void saveResetTimestamp() {
-		resetTimestamp = System.currentTimeMillis();
+		resetTimestamp = manager.clock().milliTime();
 	}
 
 	/**
@@ -213,10 +304,11 @@ abstract class AbstractSimon implements Simon {
 	 * @param newSimon new Simon
 	 */
 	void replaceChild(Simon simon, AbstractSimon newSimon) {
-		children.remove(simon);
 		if (newSimon != null) {
-			children.add(newSimon);
+			children.put(newSimon);
 			newSimon.setParent(this);
+		} else {
+			children.remove(simon.getName());
 		}
 	}
 
@@ -10,7 +10,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class CompositeCallback implements Callback {
-	private List<Callback> callbacks = new CopyOnWriteArrayList<Callback>();
+	private volatile List<Callback> callbacks = new CopyOnWriteArrayList<Callback>();
 
 	private boolean initialized; // should also indicate whether this callback is joined to manager
 
@@ -28,7 +28,7 @@ public final class CompositeCallback implements Callback {
 	 *
 	 * @param callback added callback
 	 */
-	public void addCallback(Callback callback) {
+	public synchronized void addCallback(Callback callback) {
 		if (initialized) {
 			callback.initialize();
 		}
@@ -40,13 +40,41 @@ public final class CompositeCallback implements Callback {
 	 *
 	 * @param callback removed child-callback
 	 */
-	public void removeCallback(Callback callback) {
+	public synchronized void removeCallback(Callback callback) {
 		callbacks.remove(callback);
 		if (initialized) {
 			callback.cleanup();
 		}
 	}
 
+	/**
+	 * Removes and adds the callbacks at once - events are delivered either to the old or to the new set of callbacks,
+	 * never to a partially replaced one. Used by {@link ManagerConfiguration#reloadConfig(java.io.Reader)}.
+	 *
+	 * @param removed removed child-callbacks
+	 * @param added added child-callbacks
+	 * @since 3.0
+	 */
+	public synchronized void replaceCallbacks(List<Callback> removed, List<Callback> added) {
+		if (removed.isEmpty() && added.isEmpty()) {
+			return;
+		}
+		if (initialized) {
+			for (Callback callback : added) {
+				callback.initialize();
+			}
+		}
+		List<Callback> newCallbacks = new CopyOnWriteArrayList<Callback>(callbacks);
+		newCallbacks.removeAll(removed);
+		newCallbacks.addAll(added);
+		callbacks = newCallbacks;
+		if (initialized) {
+			for (Callback callback : removed) {
+				callback.cleanup();
+			}
+		}
+	}
+
 	/**
 	 * Calls initialize on all children.
 	 */
@@ -0,0 +1,186 @@
+package org.javasimon;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configuration file and reloads the configuration of the manager when the file changes
+ * (see {@link ManagerConfiguration#reloadConfig(Reader)}). Directory of the file is watched with {@link WatchService}
+ * on the background daemon thread, the new configuration is parsed on that thread and swapped in at once. Events
+ * of one save (editors often write the file in more steps) are coalesced - the file is read after it was quiet
+ * for {@link #getSettleMillis()}. Every reload is reported with {@link Manager#message(String)}, invalid
+ * configuration is reported as a warning and the current configuration is kept.
+ * <p/>
+ * Default {@link SimonManager} starts the watcher for the configuration file if the Java property
+ * {@code javasimon.config.watch} ({@link SimonManager#PROPERTY_CONFIG_WATCH}) is {@code true}:
+ * <pre>-Djavasimon.config.file=some-path/simon.config.xml -Djavasimon.config.watch=true</pre>
+ *
+ * @since 3.0
+ */
+public final class ConfigurationWatcher {
+	/**
+	 * Default time in ms the file must be quiet before it is read.
+	 */
+	public static final long DEFAULT_SETTLE_MILLIS = 200;
+
+	private final Manager manager;
+
+	private final File file;
+
+	private volatile long settleMillis = DEFAULT_SETTLE_MILLIS;
+
+	private WatchService watchService;
+
+	private Thread thread;
+
+	/**
+	 * Creates the watcher of the configuration file for the manager.
+	 *
+	 * @param manager manager with the reloaded configuration
+	 * @param file configuration file
+	 */
+	public ConfigurationWatcher(Manager manager, File file) {
+		this.manager = manager;
+		this.file = file.getAbsoluteFile();
+	}
+
+	/**
+	 * Returns the watched configuration file.
+	 *
+	 * @return configuration file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the time in ms the file must be quiet before it is read.
+	 *
+	 * @return settle time in ms
+	 */
+	public long getSettleMillis() {
+		return settleMillis;
+	}
+
+	/**
+	 * Sets the time in ms the file must be quiet before it is read.
+	 *
+	 * @param settleMillis settle time in ms
+	 */
+	public void setSettleMillis(long settleMillis) {
+		if (settleMillis < 0) {
+			throw new IllegalArgumentException("Settle time must not be negative: " + settleMillis);
+		}
+		this.settleMillis = settleMillis;
+	}
+
+	/**
+	 * Starts watching the file - configuration is not read now, only when the file changes.
+	 *
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public synchronized void start() throws IOException {
+		stop();
+		final WatchService service = FileSystems.getDefault().newWatchService();
+		final Path directory = file.getParentFile().toPath();
+		directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		watchService = service;
+		thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						if (!isFileChanged(service.take())) {
+							continue;
+						}
+						// coalesces the events of one save
+						WatchKey key;
+						while ((key = service.poll(settleMillis, TimeUnit.MILLISECONDS)) != null) {
+							isFileChanged(key);
+						}
+						try {
+							reload();
+						} catch (RuntimeException e) {
+							// the watcher must survive any failure of one reload
+							manager.warning("Configuration reload from " + file + " failed", e);
+						}
+					}
+				} catch (InterruptedException e) {
+					// stopped
+				} catch (ClosedWatchServiceException e) {
+					// stopped
+				}
+			}
+		}, "javasimon-config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the file.
+	 */
+	public synchronized void stop() {
+		if (thread != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				manager.warning("Closing of the configuration watch service failed", e);
+			}
+			thread.interrupt();
+			thread = null;
+			watchService = null;
+		}
+	}
+
+	/**
+	 * Returns true if the key has any event of the watched file (or overflow), resets the key.
+	 */
+	private boolean isFileChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getName().equals(String.valueOf(event.context()))) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Reloads the configuration from the file now.
+	 *
+	 * @return true if the configuration was replaced, false if it could not be read or was invalid
+	 * (or if the manager has no configuration, e.g. when it is disabled)
+	 */
+	public boolean reload() {
+		ManagerConfiguration configuration = manager.configuration();
+		if (configuration == null) {
+			// disabled manager has no configuration
+			manager.warning("Configuration reload from " + file + " skipped, manager has no configuration", null);
+			return false;
+		}
+		try {
+			Reader reader = new FileReader(file);
+			try {
+				if (configuration.reloadConfig(reader)) {
+					manager.message("Configuration reloaded from " + file);
+					return true;
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			manager.warning("Configuration reload from " + file + " failed", e);
+		}
+		return false;
+	}
+}
@@ -2,8 +2,18 @@ package org.javasimon;
 
 import org.javasimon.utils.SimonUtils;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Class implements {@link org.javasimon.Counter} interface - see there for how to use Counter.
+ * <p/>
+ * Counter is lock-free - the value is atomic, min/max values are maintained with CAS loops (together with their
+ * timestamps) and sums of increments and decrements are striped adders, hence the counter can be used as a heavily
+ * contended gauge (e.g. in-flight requests). Values returned by getters (and by {@link #sample()} and
+ * {@link #sampleAndReset()}) are not read atomically as a whole and callbacks are called after the change is done -
+ * other threads may change the counter in the meantime.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @see org.javasimon.Counter
@@ -12,31 +22,31 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	/**
 	 * An internal counter.
 	 */
-	private long counter;
+	private final AtomicLong counter = new AtomicLong();
 
 	/**
 	 * Sum of all increments.
 	 */
-	private long incrementSum;
+	private final LongAdder incrementSum = new LongAdder();
 
 	/**
 	 * Sum of all decrements.
 	 */
-	private long decrementSum;
+	private final LongAdder decrementSum = new LongAdder();
+
+	private static final Extreme NO_MAX = new Extreme(Long.MIN_VALUE, 0);
+
+	private static final Extreme NO_MIN = new Extreme(Long.MAX_VALUE, 0);
 
 	/**
 	 * A maximum tracker.
 	 */
-	private long max = Long.MIN_VALUE;
-
-	private long maxTimestamp;
+	private final AtomicReference<Extreme> max = new AtomicReference<Extreme>(NO_MAX);
 
 	/**
 	 * A minimum tracker - only negative values.
 	 */
-	private long min = Long.MAX_VALUE;
-
-	private long minTimestamp;
+	private final AtomicReference<Extreme> min = new AtomicReference<Extreme>(NO_MIN);
 
 	/**
 	 * Construts Counter Simon with a specified name and for the specified manager.
@@ -52,29 +62,12 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	 * {@inheritDoc}
 	 */
 	public Counter set(long val) {
-		long now = System.currentTimeMillis();
-		synchronized (this) {
-			try {
-				return privateSet(val, now);
-			} finally {
-				manager.callback().counterSet(this, val);
-			}
-		}
-	}
-
-	// must be called from synchronized block
-
-	private Counter privateSet(long val, long now) {
+		long now = manager.clock().milliTime();
 		updateUsages(now);
-		counter = val;
-		if (counter >= max) {
-			max = counter;
-			maxTimestamp = getLastUsage();
-		}
-		if (counter <= min) {
-			min = counter;
-			minTimestamp = getLastUsage();
-		}
+		counter.set(val);
+		updateMax(val, now);
+		updateMin(val, now);
+		manager.callback().counterSet(this, val);
 		return this;
 	}
 
@@ -82,94 +75,98 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	 * {@inheritDoc}
 	 */
 	public Counter increase() {
-		long now = System.currentTimeMillis();
-		synchronized (this) {
-			try {
-				updateUsages(now);
-				counter++;
-				incrementSum++;
-				if (counter >= max) {
-					max = counter;
-					maxTimestamp = getLastUsage();
-				}
-				return this;
-			} finally {
-				manager.callback().counterIncrease(this, 1);
-			}
-		}
+		return increase(1);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public Counter decrease() {
-		long now = System.currentTimeMillis();
-		synchronized (this) {
-			try {
-				updateUsages(now);
-				counter--;
-				decrementSum++;
-				if (counter <= min) {
-					min = counter;
-					minTimestamp = getLastUsage();
-				}
-				return this;
-			} finally {
-				manager.callback().counterDecrease(this, 1);
-			}
-		}
+		return decrease(1);
 	}
 
 	/**
-	 * Updates usage statistics.
-	 *
-	 * @param now current millis timestamp
+	 * {@inheritDoc}
 	 */
-	private void updateUsages(long now) {
-		lastUsage = now;
-		if (firstUsage == 0) {
-			firstUsage = lastUsage;
+	public Counter increase(long inc) {
+		long now = manager.clock().milliTime();
+		updateUsages(now);
+		incrementSum.add(inc);
+		long value = counter.addAndGet(inc);
+		updateMax(value, now);
+		if (inc < 0) {
+			updateMin(value, now);
 		}
+		manager.callback().counterIncrease(this, inc);
+		return this;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized Counter increase(long inc) {
-		long now = System.currentTimeMillis();
-		synchronized (this) {
-			try {
-				incrementSum += inc;
-				return privateSet(counter + inc, now);
-			} finally {
-				manager.callback().counterIncrease(this, inc);
+	public Counter decrease(long dec) {
+		long now = manager.clock().milliTime();
+		updateUsages(now);
+		decrementSum.add(dec);
+		long value = counter.addAndGet(-dec);
+		updateMin(value, now);
+		if (dec < 0) {
+			updateMax(value, now);
+		}
+		manager.callback().counterDecrease(this, dec);
+		return this;
+	}
+
+	private void updateMax(long value, long now) {
+		Extreme current = max.get();
+		while (value >= current.value) {
+			if (value == current.value && now == current.timestamp) {
+				return;
+			}
+			if (max.compareAndSet(current, new Extreme(value, now))) {
+				return;
 			}
+			current = max.get();
+		}
+	}
+
+	private void updateMin(long value, long now) {
+		Extreme current = min.get();
+		while (value <= current.value) {
+			if (value == current.value && now == current.timestamp) {
+				return;
+			}
+			if (min.compareAndSet(current, new Extreme(value, now))) {
+				return;
+			}
+			current = min.get();
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Updates usage statistics.
+	 *
+	 * @param now current millis timestamp
 	 */
-	public synchronized Counter decrease(long dec) {
-		try {
-			decrementSum -= dec;
-			return set(counter - dec);
-		} finally {
-			manager.callback().counterDecrease(this, dec);
+	private void updateUsages(long now) {
+		// writes only when the timestamp changes to avoid needless cache line invalidation
+		if (lastUsage != now) {
+			lastUsage = now;
+			if (firstUsage == 0) {
+				firstUsage = now;
+			}
 		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized Counter reset() {
-		counter = 0;
-		max = Long.MIN_VALUE;
-		maxTimestamp = 0;
-		min = Long.MAX_VALUE;
-		minTimestamp = 0;
-		incrementSum = 0;
-		decrementSum = 0;
+	public Counter reset() {
+		counter.set(0);
+		max.set(NO_MAX);
+		min.set(NO_MIN);
+		incrementSum.reset();
+		decrementSum.reset();
 		saveResetTimestamp();
 		manager.callback().reset(this);
 		return this;
@@ -178,24 +175,39 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized CounterSample sampleAndReset() {
-		CounterSample sample = sample();
-		reset();
+	public CounterSample sampleAndReset() {
+		// each value is taken and cleared in one atomic step, so no update is lost - it is in this sample or in the next
+		// one; the sample as a whole is not atomic, concurrent increase may be in the increment sum but not in the counter
+		CounterSample sample = new CounterSample();
+		sample.setCounter(counter.getAndSet(0));
+		Extreme min = this.min.getAndSet(NO_MIN);
+		sample.setMin(min.value);
+		sample.setMinTimestamp(min.timestamp);
+		Extreme max = this.max.getAndSet(NO_MAX);
+		sample.setMax(max.value);
+		sample.setMaxTimestamp(max.timestamp);
+		sample.setIncrementSum(incrementSum.sumThenReset());
+		sample.setDecrementSum(decrementSum.sumThenReset());
+		sampleCommon(sample);
+		saveResetTimestamp();
+		manager.callback().reset(this);
 		return sample;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized CounterSample sample() {
+	public CounterSample sample() {
 		CounterSample sample = new CounterSample();
-		sample.setCounter(counter);
-		sample.setMin(min);
-		sample.setMax(max);
-		sample.setMinTimestamp(minTimestamp);
-		sample.setMaxTimestamp(maxTimestamp);
-		sample.setIncrementSum(incrementSum);
-		sample.setDecrementSum(decrementSum);
+		sample.setCounter(counter.get());
+		Extreme min = this.min.get();
+		sample.setMin(min.value);
+		sample.setMinTimestamp(min.timestamp);
+		Extreme max = this.max.get();
+		sample.setMax(max.value);
+		sample.setMaxTimestamp(max.timestamp);
+		sample.setIncrementSum(incrementSum.sum());
+		sample.setDecrementSum(decrementSum.sum());
 		sampleCommon(sample);
 		return sample;
 	}
@@ -203,50 +215,50 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized long getCounter() {
-		return counter;
+	public long getCounter() {
+		return counter.get();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized long getMin() {
-		return min;
+	public long getMin() {
+		return min.get().value;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized long getMinTimestamp() {
-		return minTimestamp;
+	public long getMinTimestamp() {
+		return min.get().timestamp;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized long getMax() {
-		return max;
+	public long getMax() {
+		return max.get().value;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized long getMaxTimestamp() {
-		return maxTimestamp;
+	public long getMaxTimestamp() {
+		return max.get().timestamp;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public long getIncrementSum() {
-		return incrementSum;
+		return incrementSum.sum();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public long getDecrementSum() {
-		return decrementSum;
+		return decrementSum.sum();
 	}
 
 	/**
@@ -257,9 +269,22 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	 */
 	@Override
 	public String toString() {
-		return "Simon Counter: counter=" + counter +
-			", max=" + SimonUtils.presentMinMaxCount(max) +
-			", min=" + SimonUtils.presentMinMaxCount(min) +
+		return "Simon Counter: counter=" + counter.get() +
+			", max=" + SimonUtils.presentMinMaxCount(max.get().value) +
+			", min=" + SimonUtils.presentMinMaxCount(min.get().value) +
 			super.toString();
 	}
+
+	/**
+	 * Min or max value with the timestamp when it was reached - immutable, so both are replaced by one CAS.
+	 */
+	private static final class Extreme {
+		private final long value;
+		private final long timestamp;
+
+		Extreme(long value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
 }
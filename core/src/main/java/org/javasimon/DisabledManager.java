@@ -1,5 +1,8 @@
 package org.javasimon;
 
+import org.javasimon.clock.Clock;
+import org.javasimon.clock.SystemClock;
+
 import java.util.List;
 import java.util.Collections;
 
@@ -47,6 +50,23 @@ public final class DisabledManager implements Manager {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clock clock() {
+		return SystemClock.INSTANCE;
+	}
+
+	/**
+	 * Does nothing, disabled manager does not measure anything.
+	 *
+	 * @param clock ignored
+	 */
+	@Override
+	public void setClock(Clock clock) {
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,5 +1,7 @@
 package org.javasimon;
 
+import org.javasimon.clock.Clock;
+import org.javasimon.clock.SystemClock;
 import org.javasimon.utils.SimonUtils;
 
 import java.util.*;
@@ -20,6 +22,24 @@ public final class EnabledManager implements Manager {
 
 	private ManagerConfiguration configuration;
 
+	private volatile Clock clock = SystemClock.INSTANCE;
+
+	/**
+	 * Sizes of the limited subtrees ("other" Simon not included), computed lazily and maintained while Simons
+	 * are created and destroyed.
+	 */
+	private final Map<String, Subtree> subtrees = new HashMap<String, Subtree>();
+
+	private final RollupQueue rollups = new RollupQueue();
+
+	private static final Comparator<AbstractSimon> IDLE_ORDER = new Comparator<AbstractSimon>() {
+		public int compare(AbstractSimon s1, AbstractSimon s2) {
+			long idle1 = s1.idleSince();
+			long idle2 = s2.idleSince();
+			return idle1 < idle2 ? -1 : (idle1 == idle2 ? 0 : 1);
+		}
+	};
+
 	/**
 	 * Creates new enabled manager.
 	 */
@@ -47,10 +67,12 @@ public final class EnabledManager implements Manager {
 			throw new SimonException("Root Simon cannot be destroyed!");
 		}
 		AbstractSimon simon = allSimons.remove(name);
-		if (simon.getChildren().size() > 0) {
+		if (simon.childCount() > 0) {
 			replaceSimon(simon, UnknownSimon.class);
 		} else {
 			((AbstractSimon) simon.getParent()).replaceChild(simon, null);
+			subtreeSimonRemoved(name);
+			simon.markDestroyed();
 		}
 		callback.simonDestroyed(simon);
 	}
@@ -60,9 +82,13 @@ public final class EnabledManager implements Manager {
 	 */
 	@Override
 	public synchronized void clear() {
+		for (AbstractSimon simon : allSimons.values()) {
+			simon.markDestroyed();
+		}
 		allSimons.clear();
 		rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
 		allSimons.put(ROOT_SIMON_NAME, rootSimon);
+		subtrees.clear();
 		callback.clear();
 	}
 
@@ -112,6 +138,12 @@ public final class EnabledManager implements Manager {
 			if (name != null && !SimonUtils.checkName(name)) {
 				throw new SimonException("Simon name must match following pattern: '" + SimonUtils.NAME_PATTERN.pattern() + "', used name: " + name);
 			}
+			if (name != null) {
+				SubtreeLimit limit = configuration.getLimit(name);
+				if (limit != null && !limit.isOtherName(name) && !makePlace(limit, name)) {
+					return getOrCreateSimon(limit.getOtherName(simonClass), simonClass);
+				}
+			}
 			simon = newSimon(name, simonClass);
 			callback.simonCreated(simon);
 		} else if (simon instanceof UnknownSimon) {
@@ -128,6 +160,8 @@ public final class EnabledManager implements Manager {
 	private AbstractSimon replaceSimon(AbstractSimon simon, Class<? extends AbstractSimon> simonClass) {
 		AbstractSimon newSimon = instantiateSimon(simon.getName(), simonClass);
 		newSimon.enabled = simon.enabled;
+		applySampling(newSimon, configuration.getConfig(simon.getName()));
+		applyAggregation(newSimon);
 
 		// fixes parent link and parent's children list
 		((AbstractSimon) simon.getParent()).replaceChild(simon, newSimon);
@@ -139,6 +173,7 @@ public final class EnabledManager implements Manager {
 		}
 
 		allSimons.put(simon.getName(), newSimon);
+		simon.markDestroyed();
 		return newSimon;
 	}
 
@@ -150,11 +185,44 @@ public final class EnabledManager implements Manager {
 			if (config.getState() != null) {
 				simon.setState(config.getState(), false);
 			}
+			applySampling(simon, config);
 		}
 		return simon;
 	}
 
+	private void applySampling(AbstractSimon simon, SimonConfiguration config) {
+		if (config.getSampling() != null && simon instanceof Stopwatch) {
+			((Stopwatch) simon).setSampling(config.getSampling());
+		}
+	}
+
+	private void applyAggregation(AbstractSimon simon) {
+		if (simon instanceof UnknownSimon && Boolean.TRUE.equals(configuration.getConfig(simon.getName()).getAggregate())) {
+			((UnknownSimon) simon).aggregate();
+			rollups.activate();
+		}
+	}
+
+	/**
+	 * Returns the queue of Stopwatches with pending roll-ups for the aggregating Simons.
+	 *
+	 * @return roll-up queue
+	 */
+	RollupQueue rollups() {
+		return rollups;
+	}
+
 	private AbstractSimon instantiateSimon(String name, Class<? extends AbstractSimon> simonClass) {
+		// built-in Simons are created directly, reflection is much slower when many Simons are created
+		if (simonClass == StopwatchImpl.class) {
+			return new StopwatchImpl(name, this);
+		}
+		if (simonClass == CounterImpl.class) {
+			return new CounterImpl(name, this);
+		}
+		if (simonClass == UnknownSimon.class) {
+			return new UnknownSimon(name, this);
+		}
 		AbstractSimon simon;
 		try {
 			Constructor<? extends AbstractSimon> constructor = simonClass.getDeclaredConstructor(String.class, Manager.class);
@@ -171,21 +239,272 @@ public final class EnabledManager implements Manager {
 		return simon;
 	}
 
+	/**
+	 * Adds the new Simon into the hierarchy - the nearest existing ancestor is found going up from the Simon
+	 * (usually it is the parent), missing ancestors are then created as UnknownSimons going down. Each ancestor
+	 * name is created only once and it is shared by the map key and the Simon.
+	 *
+	 * @param simon new Simon
+	 * @param name name of the new Simon
+	 */
 	private void addToHierarchy(AbstractSimon simon, String name) {
-		allSimons.put(name, simon);
-		int ix = name.lastIndexOf(HIERARCHY_DELIMITER);
-		AbstractSimon parent = rootSimon;
-		if (ix != -1) {
+		AbstractSimon parent = null;
+		List<String> missing = null;
+		for (int ix = name.lastIndexOf(HIERARCHY_DELIMITER); ix != -1; ix = name.lastIndexOf(HIERARCHY_DELIMITER, ix - 1)) {
 			String parentName = name.substring(0, ix);
 			parent = allSimons.get(parentName);
-			if (parent == null) {
-				parent = new UnknownSimon(parentName, this);
-				addToHierarchy(parent, parentName);
+			if (parent != null) {
+				break;
+			}
+			if (missing == null) {
+				missing = new ArrayList<String>();
+			}
+			missing.add(parentName);
+		}
+		if (parent == null) {
+			parent = rootSimon;
+		}
+		if (missing != null) {
+			for (int i = missing.size() - 1; i >= 0; i--) {
+				AbstractSimon ancestor = new UnknownSimon(missing.get(i), this);
+				applyAggregation(ancestor);
+				putSimon(missing.get(i), ancestor);
+				parent.addChild(ancestor);
+				parent = ancestor;
 			}
 		}
+		putSimon(name, simon);
 		parent.addChild(simon);
 	}
 
+	private void putSimon(String name, AbstractSimon simon) {
+		allSimons.put(name, simon);
+		Subtree subtree = subtreeOf(name);
+		if (subtree != null) {
+			subtree.size++;
+		}
+	}
+
+	/**
+	 * Makes place for the new Simon (and its missing ancestors) in the limited subtree. If the subtree is full
+	 * the least recently used idle Simons are destroyed - small batch at once so the subtree is not scanned
+	 * for every new Simon.
+	 *
+	 * @param limit limit of the subtree
+	 * @param name name of the new Simon
+	 * @return true if the Simon can be created, false if it should be folded into the "other" Simon
+	 */
+	private boolean makePlace(SubtreeLimit limit, String name) {
+		Subtree subtree = subtree(limit);
+		int needed = 0;
+		for (String n = name; limit.contains(n) && !allSimons.containsKey(n); n = n.substring(0, n.lastIndexOf(HIERARCHY_DELIMITER))) {
+			needed++;
+		}
+		int overflow = subtree.size + needed - limit.getMax();
+		if (overflow <= 0) {
+			return true;
+		}
+		long now = clock.milliTime();
+		if (now < subtree.evictableAt) {
+			return false;
+		}
+
+		int toEvict = overflow + limit.getMax() / 20;
+		List<AbstractSimon> leaves = longestIdleLeaves(limit, toEvict);
+		int evicted = 0;
+		subtree.evictableAt = now;
+		for (AbstractSimon simon : leaves) {
+			if (evicted >= toEvict) {
+				break;
+			}
+			if (now - simon.idleSince() < limit.getMinIdle()) {
+				subtree.evictableAt = simon.idleSince() + limit.getMinIdle();
+				break;
+			}
+			evicted += evict(simon, limit);
+		}
+		if (evicted < overflow) {
+			if (!subtree.overflowReported) {
+				subtree.overflowReported = true;
+				callback.message("Simon limit " + limit.getMax() + " reached for subtree " + limit.getSubtree()
+					+ ", new Simons are folded into " + limit.getOtherName() + " and " + limit.getOtherName(Counter.class));
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the leaves of the limited subtree that are idle for the longest time, the longest idle first. Only
+	 * the subtree is walked (nested limited subtrees are skipped) and only the requested number of leaves is kept
+	 * in the heap, so the whole subtree is not sorted.
+	 *
+	 * @param limit limit of the subtree
+	 * @param count maximal number of returned leaves
+	 * @return leaves ordered by the idle time
+	 */
+	private List<AbstractSimon> longestIdleLeaves(SubtreeLimit limit, int count) {
+		PriorityQueue<AbstractSimon> heap = new PriorityQueue<AbstractSimon>(Math.max(1, Math.min(count, 16)), Collections.reverseOrder(IDLE_ORDER));
+		Deque<AbstractSimon> stack = new ArrayDeque<AbstractSimon>();
+		AbstractSimon root = allSimons.get(limit.getSubtree());
+		if (root != null) {
+			stack.push(root);
+		}
+		while (!stack.isEmpty()) {
+			for (Simon child : stack.pop().getChildren()) {
+				AbstractSimon simon = (AbstractSimon) child;
+				if (configuration.getLimit(simon.getName()) != limit) {
+					continue;
+				}
+				if (simon.childCount() > 0) {
+					stack.push(simon);
+				} else if (!limit.isOtherName(simon.getName())) {
+					if (heap.size() < count) {
+						heap.add(simon);
+					} else if (simon.idleSince() < heap.peek().idleSince()) {
+						heap.poll();
+						heap.add(simon);
+					}
+				}
+			}
+		}
+		List<AbstractSimon> leaves = new ArrayList<AbstractSimon>(heap);
+		Collections.sort(leaves, IDLE_ORDER);
+		return leaves;
+	}
+
+	/**
+	 * Destroys the leaf Simon and its ancestors in the subtree that are left without children and are
+	 * just placeholders (UnknownSimon).
+	 *
+	 * @param simon evicted leaf Simon
+	 * @param limit limit of the subtree
+	 * @return number of destroyed Simons
+	 */
+	private int evict(AbstractSimon simon, SubtreeLimit limit) {
+		int evicted = 0;
+		while (true) {
+			AbstractSimon parent = (AbstractSimon) simon.getParent();
+			allSimons.remove(simon.getName());
+			parent.replaceChild(simon, null);
+			subtreeSimonRemoved(simon.getName());
+			simon.markDestroyed();
+			callback.simonDestroyed(simon);
+			evicted++;
+			if (!(parent instanceof UnknownSimon) || parent.childCount() > 0 || configuration.getLimit(parent.getName()) != limit) {
+				return evicted;
+			}
+			simon = parent;
+		}
+	}
+
+	private Subtree subtree(SubtreeLimit limit) {
+		Subtree subtree = subtrees.get(limit.getSubtree());
+		if (subtree == null) {
+			subtree = new Subtree();
+			for (String name : allSimons.keySet()) {
+				if (name != null && configuration.getLimit(name) == limit && !limit.isOtherName(name)) {
+					subtree.size++;
+				}
+			}
+			subtrees.put(limit.getSubtree(), subtree);
+		}
+		return subtree;
+	}
+
+	private Subtree subtreeOf(String name) {
+		if (subtrees.isEmpty()) {
+			return null;
+		}
+		SubtreeLimit limit = configuration.getLimit(name);
+		return limit != null && !limit.isOtherName(name) ? subtrees.get(limit.getSubtree()) : null;
+	}
+
+	private void subtreeSimonRemoved(String name) {
+		Subtree subtree = subtreeOf(name);
+		if (subtree != null) {
+			subtree.size--;
+		}
+	}
+
+	/**
+	 * Called by the configuration when the configuration of Simons matching any of the patterns changed. For the existing
+	 * matching Simons only the attributes whose configured value changed are set again in one pass over all Simons -
+	 * state and sampling set by other means (JMX, {@code @Monitored}, AutoTuner) are kept unless the configuration
+	 * of that attribute changed. Attribute not configured anymore means inherited state, sampling 1 and no aggregation.
+	 *
+	 * @param patterns patterns with added, removed or changed configuration
+	 * @param previousConfigs pattern configurations before the change
+	 */
+	synchronized void configurationChanged(Collection<SimonPattern> patterns, Map<SimonPattern, SimonConfiguration> previousConfigs) {
+		boolean aggregationRemoved = false;
+		for (AbstractSimon simon : allSimons.values()) {
+			String name = simon.getName();
+			if (name == null || name.equals(ROOT_SIMON_NAME) || !matchesAny(patterns, name)) {
+				continue;
+			}
+			SimonConfiguration previous = ManagerConfiguration.getConfig(previousConfigs, name);
+			SimonConfiguration config = configuration.getConfig(name);
+			if (!equal(previous.getState(), config.getState())) {
+				simon.setState(config.getState() != null ? config.getState() : SimonState.INHERIT, false);
+			}
+			if (simon instanceof Stopwatch && !equal(previous.getSampling(), config.getSampling())) {
+				((Stopwatch) simon).setSampling(config.getSampling() != null ? config.getSampling() : 1);
+			}
+			if (simon instanceof UnknownSimon && !equal(previous.getAggregate(), config.getAggregate())) {
+				if (Boolean.TRUE.equals(config.getAggregate())) {
+					applyAggregation(simon);
+				} else if (((UnknownSimon) simon).isAggregating()) {
+					((UnknownSimon) simon).stopAggregating();
+					aggregationRemoved = true;
+				}
+			}
+		}
+		if (aggregationRemoved && !anyAggregating()) {
+			rollups.deactivate();
+		}
+	}
+
+	private static boolean equal(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+
+	private boolean anyAggregating() {
+		for (AbstractSimon simon : allSimons.values()) {
+			if (simon instanceof UnknownSimon && ((UnknownSimon) simon).isAggregating()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matchesAny(Collection<SimonPattern> patterns, String name) {
+		for (SimonPattern pattern : patterns) {
+			if (pattern.matches(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Called by the configuration when the subtree limits change - sizes are computed again when needed.
+	 */
+	synchronized void limitsChanged() {
+		subtrees.clear();
+	}
+
+	/**
+	 * Current state of the limited subtree.
+	 */
+	private static final class Subtree {
+		private int size;
+
+		private long evictableAt;
+
+		private boolean overflowReported;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -202,6 +521,27 @@ public final class EnabledManager implements Manager {
 		return configuration;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clock clock() {
+		return clock;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException if {@code clock} is {@code null}
+	 */
+	@Override
+	public void setClock(Clock clock) {
+		if (clock == null) {
+			throw new IllegalArgumentException();
+		}
+		this.clock = clock;
+	}
+
 	/**
 	 * Throws UnsupportedOperationException.
 	 */
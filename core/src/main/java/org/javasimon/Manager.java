@@ -1,5 +1,7 @@
 package org.javasimon;
 
+import org.javasimon.clock.Clock;
+
 import java.util.List;
 
 /**
@@ -90,6 +92,24 @@ public interface Manager {
 	 */
 	ManagerConfiguration configuration();
 
+	/**
+	 * Returns the clock used by Simons of this manager.
+	 *
+	 * @return clock of this manager
+	 * @since 3.0
+	 */
+	Clock clock();
+
+	/**
+	 * Sets the clock used by Simons of this manager - see {@link org.javasimon.clock.CoarseClock} for instance.
+	 * Clock should be set before Simons are used, otherwise the splits running while the clock is changed
+	 * are not measured correctly.
+	 *
+	 * @param clock new clock
+	 * @since 3.0
+	 */
+	void setClock(Clock clock);
+
 	/**
 	 * Enables the Simon Manager. Enabled manager provides real Simons.
 	 * Only {@link org.javasimon.SwitchingManager} supports this operation.
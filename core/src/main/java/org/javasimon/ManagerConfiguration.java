@@ -4,10 +4,13 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 
@@ -27,12 +30,35 @@ import java.lang.reflect.InvocationTargetException;
  * <pre>{@literal
  * <simon-configuration>
  * ... TODO
+ *   <limit subtree="org.javasimon.jdbc.sql" max="5000" min-idle="60000"/>
  * </simon-configuration>}</pre>
+ * Element {@code limit} bounds the number of Simons in the subtree, see {@link SubtreeLimit}.
+ * <p/>
+ * Configuration read by {@link #readConfig(Reader)} or {@link #reloadConfig(Reader)} is parsed completely before
+ * it is applied - patterns and limits are then published at once, so Simons created concurrently never see
+ * a half-read configuration, and nothing is applied if the configuration is invalid. Changed Simon configurations
+ * are also applied to the existing Simons. {@link #reloadConfig(Reader)} replaces the configuration read before,
+ * it can be used with {@link ConfigurationWatcher} to reload the configuration file whenever it changes.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class ManagerConfiguration {
-	private Map<SimonPattern, SimonConfiguration> configs;
+	/**
+	 * Current patterns and limits - replaced as a whole, never modified after publication.
+	 */
+	private volatile Settings settings;
+
+	/**
+	 * Callbacks added by the configuration (guarded by this) - reload replaces them.
+	 */
+	private List<ConfiguredCallback> configuredCallbacks = new ArrayList<ConfiguredCallback>();
+
+	/**
+	 * Configuration being parsed (guarded by {@link #parseLock}).
+	 */
+	private Staging staging;
+
+	private final Object parseLock = new Object();
 
 	private final Manager manager;
 
@@ -47,48 +73,259 @@ public final class ManagerConfiguration {
 	}
 
 	/**
-	 * Clears any previously loaded configuration.
+	 * Clears any previously loaded configuration. Callbacks added by the configuration stay registered
+	 * until they are replaced by {@link #reloadConfig(Reader)}.
 	 */
 	public void clear() {
-		configs = new LinkedHashMap<SimonPattern, SimonConfiguration>();
+		synchronized (this) {
+			settings = new Settings(new LinkedHashMap<SimonPattern, SimonConfiguration>(), new ArrayList<SubtreeLimit>());
+		}
+		limitsChanged();
+	}
+
+	/**
+	 * Limits the number of Simons in the subtree - see {@link SubtreeLimit}. Limit replaces any previous limit
+	 * of the same subtree, if more subtrees contain the Simon the most specific (longest) one is used.
+	 *
+	 * @param subtree name of the subtree root Simon
+	 * @param max maximal number of Simons in the subtree
+	 * @param minIdle minimal idle time in ms of the Simon that can be destroyed to make place for a new one
+	 * @since 3.0
+	 */
+	public void setLimit(String subtree, int max, long minIdle) {
+		SubtreeLimit limit = new SubtreeLimit(subtree, max, minIdle);
+		synchronized (this) {
+			settings = new Settings(settings.configs, withLimit(settings.limits, limit));
+		}
+		limitsChanged();
+	}
+
+	/**
+	 * Returns the copy of the limit list with the limit replacing any previous limit of the same subtree.
+	 */
+	private static List<SubtreeLimit> withLimit(List<SubtreeLimit> limits, SubtreeLimit limit) {
+		List<SubtreeLimit> newLimits = new ArrayList<SubtreeLimit>();
+		for (SubtreeLimit oldLimit : limits) {
+			if (!oldLimit.getSubtree().equals(limit.getSubtree())) {
+				newLimits.add(oldLimit);
+			}
+		}
+		newLimits.add(limit);
+		return newLimits;
+	}
+
+	/**
+	 * Returns the most specific limit of the subtree containing the Simon with the specified name.
+	 *
+	 * @param name Simon name
+	 * @return limit for the Simon or null if it is not in any limited subtree
+	 */
+	SubtreeLimit getLimit(String name) {
+		SubtreeLimit result = null;
+		for (SubtreeLimit limit : settings.limits) {
+			if (limit.contains(name) && (result == null || limit.getSubtree().length() > result.getSubtree().length())) {
+				result = limit;
+			}
+		}
+		return result;
+	}
+
+	private void limitsChanged() {
+		if (manager instanceof EnabledManager) {
+			((EnabledManager) manager).limitsChanged();
+		}
 	}
 
 	/**
-	 * Reads config from provided buffered reader. Package level because of tests.
+	 * Reads config from provided buffered reader and merges it with the current configuration. Package level
+	 * because of tests.
 	 *
 	 * @param reader reader containing configuration
 	 * @throws IOException thrown if problem occurs while reading from the reader
 	 */
 	public void readConfig(Reader reader) throws IOException {
-		try {
-			XMLStreamReader xr = XMLInputFactory.newInstance().createXMLStreamReader(reader);
+		Staging parsed = parse(reader);
+		if (parsed != null) {
+			apply(parsed, true);
+		}
+	}
+
+	/**
+	 * Reads config from provided reader and replaces the current configuration with it. Simon configurations
+	 * and limits are replaced at once, callbacks added by the previous configuration are removed unless they are
+	 * configured exactly the same way in the new configuration (such callbacks are kept with their state). State
+	 * and sampling of the existing Simons matching any added, removed or changed pattern are set according
+	 * to the new configuration (to {@link SimonState#INHERIT} and 1 if they are not configured anymore)
+	 * in one pass over all Simons. If the configuration is invalid, the current configuration is kept.
+	 *
+	 * @param reader reader containing configuration
+	 * @return true if the configuration was replaced, false if it was invalid
+	 * @throws IOException thrown if problem occurs while reading from the reader
+	 * @since 3.0
+	 */
+	public boolean reloadConfig(Reader reader) throws IOException {
+		Staging parsed = parse(reader);
+		if (parsed == null) {
+			return false;
+		}
+		apply(parsed, false);
+		return true;
+	}
+
+	/**
+	 * Parses the configuration without applying it.
+	 *
+	 * @return parsed configuration or null if it is invalid
+	 */
+	private Staging parse(Reader reader) throws IOException {
+		synchronized (parseLock) {
+			staging = new Staging();
 			try {
-				while (!xr.isStartElement()) {
-					xr.next();
-				}
-				processStartElement(xr, "simon-configuration");
-				while (true) {
-					if (isStartTag(xr, "callback")) {
-						manager.callback().addCallback(processCallback(xr));
-					} else if (isStartTag(xr, "filter-callback")) {
-						manager.callback().addCallback(processFilterCallback(xr));
-					} else if (isStartTag(xr, "simon")) {
-						processSimon(xr);
-					} else {
-						break;
+				XMLStreamReader xr = XMLInputFactory.newInstance().createXMLStreamReader(reader);
+				try {
+					while (!xr.isStartElement()) {
+						xr.next();
+					}
+					processStartElement(xr, "simon-configuration");
+					while (true) {
+						int mark = staging.signature.length();
+						if (isStartTag(xr, "callback")) {
+							Callback callback = processCallback(xr);
+							staging.callbacks.add(new ConfiguredCallback(staging.signature.substring(mark), callback));
+						} else if (isStartTag(xr, "filter-callback")) {
+							Callback callback = processFilterCallback(xr);
+							staging.callbacks.add(new ConfiguredCallback(staging.signature.substring(mark), callback));
+						} else if (isStartTag(xr, "simon")) {
+							processSimon(xr);
+						} else if (isStartTag(xr, "limit")) {
+							processLimit(xr);
+						} else {
+							break;
+						}
 					}
+					assertEndTag(xr, "simon-configuration");
+				} finally {
+					xr.close();
 				}
-				assertEndTag(xr, "simon-configuration");
+				return staging;
+			} catch (XMLStreamException e) {
+				manager.callback().warning(null, e);
+			} catch (SimonException e) {
+				manager.callback().warning(e.getMessage(), e);
 			} finally {
-				xr.close();
+				staging = null;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Publishes the parsed configuration, registers its callbacks and applies changed Simon configurations
+	 * to the existing Simons.
+	 *
+	 * @param parsed parsed configuration
+	 * @param merge true if the configuration is merged with the current one, false if it replaces it
+	 */
+	private void apply(Staging parsed, boolean merge) {
+		boolean limitsChanged;
+		Set<SimonPattern> changedPatterns = new HashSet<SimonPattern>();
+		Settings old;
+		synchronized (this) {
+			old = settings;
+			Map<SimonPattern, SimonConfiguration> configs = merge
+				? new LinkedHashMap<SimonPattern, SimonConfiguration>(old.configs)
+				: new LinkedHashMap<SimonPattern, SimonConfiguration>();
+			configs.putAll(parsed.configs);
+			List<SubtreeLimit> limits = merge ? old.limits : Collections.<SubtreeLimit>emptyList();
+			for (SubtreeLimit limit : parsed.limits) {
+				limits = withLimit(limits, limit);
+			}
+			for (SimonPattern pattern : old.configs.keySet()) {
+				if (!old.configs.get(pattern).equals(configs.get(pattern))) {
+					changedPatterns.add(pattern);
+				}
+			}
+			for (SimonPattern pattern : configs.keySet()) {
+				if (!configs.get(pattern).equals(old.configs.get(pattern))) {
+					changedPatterns.add(pattern);
+				}
+			}
+			limitsChanged = !sameLimits(old.limits, limits);
+			settings = new Settings(configs, limits);
+			replaceCallbacks(parsed.callbacks, merge);
+		}
+		if (limitsChanged) {
+			limitsChanged();
+		}
+		if (!changedPatterns.isEmpty() && manager instanceof EnabledManager) {
+			((EnabledManager) manager).configurationChanged(changedPatterns, old.configs);
+		}
+	}
+
+	/**
+	 * Registers the configured callbacks, for reload removes previous callbacks that are not configured anymore.
+	 * Callbacks with the same configuration as before are kept, so they do not lose their state.
+	 */
+	private void replaceCallbacks(List<ConfiguredCallback> parsedCallbacks, boolean merge) {
+		List<Callback> removed = new ArrayList<Callback>();
+		List<Callback> added = new ArrayList<Callback>();
+		List<ConfiguredCallback> kept = new ArrayList<ConfiguredCallback>();
+		List<ConfiguredCallback> previous = new ArrayList<ConfiguredCallback>(configuredCallbacks);
+		for (ConfiguredCallback parsedCallback : parsedCallbacks) {
+			ConfiguredCallback same = merge ? null : removeSame(previous, parsedCallback.signature);
+			if (same != null) {
+				kept.add(same);
+			} else {
+				kept.add(parsedCallback);
+				added.add(parsedCallback.callback);
+			}
+		}
+		if (merge) {
+			kept.addAll(0, previous);
+		} else {
+			for (ConfiguredCallback previousCallback : previous) {
+				removed.add(previousCallback.callback);
+			}
+		}
+		configuredCallbacks = kept;
+
+		Callback managerCallback = manager.callback();
+		if (managerCallback instanceof CompositeCallback) {
+			((CompositeCallback) managerCallback).replaceCallbacks(removed, added);
+		} else {
+			for (Callback callback : removed) {
+				managerCallback.removeCallback(callback);
+			}
+			for (Callback callback : added) {
+				managerCallback.addCallback(callback);
 			}
-		} catch (XMLStreamException e) {
-			manager.callback().warning(null, e);
-		} catch (SimonException e) {
-			manager.callback().warning(e.getMessage(), e);
 		}
 	}
 
+	private static ConfiguredCallback removeSame(List<ConfiguredCallback> callbacks, String signature) {
+		for (int i = 0; i < callbacks.size(); i++) {
+			if (callbacks.get(i).signature.equals(signature)) {
+				return callbacks.remove(i);
+			}
+		}
+		return null;
+	}
+
+	private static boolean sameLimits(List<SubtreeLimit> limits1, List<SubtreeLimit> limits2) {
+		if (limits1.size() != limits2.size()) {
+			return false;
+		}
+		for (int i = 0; i < limits1.size(); i++) {
+			SubtreeLimit limit1 = limits1.get(i);
+			SubtreeLimit limit2 = limits2.get(i);
+			if (!limit1.getSubtree().equals(limit2.getSubtree()) || limit1.getMax() != limit2.getMax()
+				|| limit1.getMinIdle() != limit2.getMinIdle()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private Callback processCallback(XMLStreamReader xr) throws XMLStreamException {
 		Map<String, String> attrs = processStartElement(xr, "callback");
 		String klass = attrs.get("class");
@@ -224,10 +461,32 @@ public final class ManagerConfiguration {
 		Map<String, String> attrs = processStartElement(xr, "simon", "pattern");
 		String pattern = attrs.get("pattern");
 		SimonState state = attrs.get("state") != null ? SimonState.valueOf(toEnum(attrs.get("state"))) : null;
-		configs.put(new SimonPattern(pattern), new SimonConfiguration(state));
+		Integer sampling = null;
+		if (attrs.get("sampling") != null) {
+			sampling = Integer.valueOf(attrs.get("sampling").trim());
+			if (sampling < 1) {
+				throw new SimonException("Sampling must be positive, pattern: " + pattern + ", sampling: " + sampling);
+			}
+		}
+		Boolean aggregate = attrs.get("aggregate") != null ? Boolean.valueOf(attrs.get("aggregate").trim()) : null;
+		staging.configs.put(new SimonPattern(pattern), new SimonConfiguration(state, sampling, aggregate));
 		processEndElement(xr, "simon");
 	}
 
+	private void processLimit(XMLStreamReader xr) throws XMLStreamException {
+		Map<String, String> attrs = processStartElement(xr, "limit", "subtree", "max");
+		try {
+			long minIdle = SubtreeLimit.DEFAULT_MIN_IDLE_MILLIS;
+			if (attrs.get("min-idle") != null) {
+				minIdle = Long.parseLong(attrs.get("min-idle").trim());
+			}
+			staging.limits.add(new SubtreeLimit(attrs.get("subtree").trim(), Integer.parseInt(attrs.get("max").trim()), minIdle));
+		} catch (NumberFormatException e) {
+			throw new SimonException(e);
+		}
+		processEndElement(xr, "limit");
+	}
+
 	/**
 	 * Returns configuration for the Simon with the specified name.
 	 *
@@ -235,7 +494,20 @@ public final class ManagerConfiguration {
 	 * @return configuration for that particular Simon
 	 */
 	SimonConfiguration getConfig(String name) {
+		return getConfig(settings.configs, name);
+	}
+
+	/**
+	 * Returns configuration for the Simon with the specified name merged from the matching pattern configurations.
+	 *
+	 * @param configs pattern configurations
+	 * @param name Simon name
+	 * @return configuration for that particular Simon
+	 */
+	static SimonConfiguration getConfig(Map<SimonPattern, SimonConfiguration> configs, String name) {
 		SimonState state = null;
+		Integer sampling = null;
+		Boolean aggregate = null;
 
 		for (SimonPattern pattern : configs.keySet()) {
 			if (pattern.matches(name)) {
@@ -243,9 +515,15 @@ public final class ManagerConfiguration {
 				if (config.getState() != null) {
 					state = config.getState();
 				}
+				if (config.getSampling() != null) {
+					sampling = config.getSampling();
+				}
+				if (config.getAggregate() != null) {
+					aggregate = config.getAggregate();
+				}
 			}
 		}
-		return new SimonConfiguration(state);
+		return new SimonConfiguration(state, sampling, aggregate);
 	}
 
 	private String toEnum(String enumVal) {
@@ -263,6 +541,7 @@ public final class ManagerConfiguration {
 	private Map<String, String> processStartElementPrivate(XMLStreamReader reader, String elementName, String... requiredAttributes) throws XMLStreamException {
 		assertStartTag(reader, elementName);
 		Map<String, String> attrs = readAttributes(reader);
+		staging.signature.append('<').append(elementName).append(attrs);
 		for (String attr : requiredAttributes) {
 			if (!attrs.containsKey(attr)) {
 				throw new XMLStreamException("Attribute '" + attr + "' MUST be present (element: " + elementName + "). " + readerPosition(reader));
@@ -310,6 +589,7 @@ public final class ManagerConfiguration {
 
 	private void processEndElement(XMLStreamReader reader, String name) throws XMLStreamException {
 		assertEndTag(reader, name);
+		staging.signature.append("</").append(name).append('>');
 		reader.nextTag();
 	}
 
@@ -319,6 +599,49 @@ public final class ManagerConfiguration {
 			sb.append(reader.getText());
 			reader.next();
 		}
+		staging.signature.append(sb.toString().trim());
 		return sb.toString().trim();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Patterns with their configurations and subtree limits.
+	 */
+	private static final class Settings {
+		private final Map<SimonPattern, SimonConfiguration> configs;
+
+		private final List<SubtreeLimit> limits;
+
+		Settings(Map<SimonPattern, SimonConfiguration> configs, List<SubtreeLimit> limits) {
+			this.configs = configs;
+			this.limits = limits;
+		}
+	}
+
+	/**
+	 * Callback added by the configuration with its signature - canonical form of its configuration element
+	 * used to find out whether the callback is configured the same way after the reload.
+	 */
+	private static final class ConfiguredCallback {
+		private final String signature;
+
+		private final Callback callback;
+
+		ConfiguredCallback(String signature, Callback callback) {
+			this.signature = signature;
+			this.callback = callback;
+		}
+	}
+
+	/**
+	 * Configuration being parsed - nothing is applied until the whole configuration is parsed.
+	 */
+	private static final class Staging {
+		private final Map<SimonPattern, SimonConfiguration> configs = new LinkedHashMap<SimonPattern, SimonConfiguration>();
+
+		private final List<SubtreeLimit> limits = new ArrayList<SubtreeLimit>();
+
+		private final List<ConfiguredCallback> callbacks = new ArrayList<ConfiguredCallback>();
+
+		private final StringBuilder signature = new StringBuilder();
+	}
+}
@@ -18,6 +18,11 @@ final class NullSimon implements Counter, Stopwatch {
 	 */
 	static final NullSimon INSTANCE = new NullSimon();
 
+	/**
+	 * Inert split shared by all calls of {@link #start()} - disabled path does not allocate.
+	 */
+	private static final Split NULL_SPLIT = new Split(INSTANCE);
+
 	private NullSimon() {
 	}
 
@@ -160,7 +165,7 @@ final class NullSimon implements Counter, Stopwatch {
 	 * {@inheritDoc}
 	 */
 	public Split start() {
-		return new Split(this, 0);
+		return NULL_SPLIT;
 	}
 
 	/**
@@ -212,6 +217,20 @@ final class NullSimon implements Counter, Stopwatch {
 		return 0;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getSampling() {
+		return 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Stopwatch setSampling(int sampling) {
+		return this;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
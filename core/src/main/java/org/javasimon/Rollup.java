@@ -0,0 +1,60 @@
+package org.javasimon;
+
+/**
+ * Rolled-up totals of all Stopwatches under the aggregating {@link UnknownSimon} - counter, total, min and max.
+ * Stopwatches do not update the roll-ups on every stop, they keep pending deltas that are added to all
+ * aggregating ancestors when the roll-ups are flushed (see {@link RollupQueue}).
+ *
+ * @since 3.0
+ */
+final class Rollup {
+	private long counter;
+
+	private long total;
+
+	private long min = Long.MAX_VALUE;
+
+	private long max;
+
+	/**
+	 * Adds the delta of one Stopwatch.
+	 *
+	 * @param counter number of splits
+	 * @param total total time of the splits
+	 * @param min minimal split
+	 * @param max maximal split
+	 */
+	synchronized void add(long counter, long total, long min, long max) {
+		this.counter += counter;
+		this.total += total;
+		if (min < this.min) {
+			this.min = min;
+		}
+		if (max > this.max) {
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Resets the roll-up.
+	 */
+	synchronized void reset() {
+		counter = 0;
+		total = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * Fills the rolled-up values into the sample.
+	 *
+	 * @param sample Stopwatch sample
+	 */
+	synchronized void fill(StopwatchSample sample) {
+		sample.setCounter(counter);
+		sample.setTotal(total);
+		sample.setMin(min);
+		sample.setMax(max);
+		sample.setMean(counter > 0 ? (double) total / counter : 0);
+	}
+}
@@ -0,0 +1,62 @@
+package org.javasimon;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue of Stopwatches with pending roll-up deltas. Stopwatch is queued once when it records the first split
+ * after the last flush, so the stop itself never walks the hierarchy. Queue is flushed in one batch when
+ * the sample of any aggregating Simon is requested - only Stopwatches used since the last flush are processed,
+ * not the whole subtree.
+ *
+ * @since 3.0
+ */
+final class RollupQueue {
+	private final Queue<StopwatchImpl> queue = new ConcurrentLinkedQueue<StopwatchImpl>();
+
+	private volatile boolean active;
+
+	/**
+	 * Returns true if there is any aggregating Simon - Stopwatches record deltas only in that case.
+	 *
+	 * @return true if roll-ups are active
+	 */
+	boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Activates the roll-ups - called when the first aggregating Simon is created.
+	 */
+	void activate() {
+		active = true;
+	}
+
+	/**
+	 * Deactivates the roll-ups - called when no aggregating Simon is left. Queued deltas are flushed, there is
+	 * nothing to add them to anymore.
+	 */
+	void deactivate() {
+		active = false;
+		flush();
+	}
+
+	/**
+	 * Queues the Stopwatch with new pending delta.
+	 *
+	 * @param stopwatch Stopwatch with the pending delta
+	 */
+	void add(StopwatchImpl stopwatch) {
+		queue.add(stopwatch);
+	}
+
+	/**
+	 * Adds pending deltas of all queued Stopwatches to their aggregating ancestors.
+	 */
+	void flush() {
+		StopwatchImpl stopwatch;
+		while ((stopwatch = queue.poll()) != null) {
+			stopwatch.rollUp();
+		}
+	}
+}
@@ -123,7 +123,8 @@ public interface Simon {
 
 	/**
 	 * Samples Simon values and returns them in a Java Bean derived from Sample interface
-	 * and resets the Simon. Operation is synchronized to assure atomicity.
+	 * and resets the Simon. Operation is synchronized to assure atomicity - except for the lock-free Counter, which
+	 * resets each value atomically (no update is lost), but its sample is not a consistent snapshot of all values.
 	 *
 	 * @return sample containing all Simon values
 	 */
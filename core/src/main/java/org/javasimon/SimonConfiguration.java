@@ -2,13 +2,18 @@ package org.javasimon;
 
 /**
  * Stores configuration for the particular Simon or the set of Simons.
- * Currently it holds only the state of the Simon.
+ * Currently it holds the state of the Simon, the sampling rate of the Stopwatch and the aggregation
+ * flag of the Unknown Simon.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class SimonConfiguration {
 	private SimonState state;
 
+	private Integer sampling;
+
+	private Boolean aggregate;
+
 	/**
 	 * Creates SimonConfiguration item.
 	 *
@@ -18,6 +23,31 @@ public final class SimonConfiguration {
 		this.state = state;
 	}
 
+	/**
+	 * Creates SimonConfiguration item with the sampling rate.
+	 *
+	 * @param state prefered state - SimonManager sets ihnerit if null is specified here
+	 * @param sampling sampling rate of the Stopwatch (see {@link Stopwatch#setSampling(int)}), null if not specified
+	 * @since 3.0
+	 */
+	SimonConfiguration(SimonState state, Integer sampling) {
+		this.state = state;
+		this.sampling = sampling;
+	}
+
+	/**
+	 * Creates SimonConfiguration item with the sampling rate and the aggregation flag.
+	 *
+	 * @param state prefered state - SimonManager sets ihnerit if null is specified here
+	 * @param sampling sampling rate of the Stopwatch (see {@link Stopwatch#setSampling(int)}), null if not specified
+	 * @param aggregate true if the Unknown Simon should roll up Stopwatches below it, null if not specified
+	 * @since 3.0
+	 */
+	SimonConfiguration(SimonState state, Integer sampling, Boolean aggregate) {
+		this(state, sampling);
+		this.aggregate = aggregate;
+	}
+
 	/**
 	 * Returns Simon state for this configuration item.
 	 *
@@ -27,6 +57,57 @@ public final class SimonConfiguration {
 		return state;
 	}
 
+	/**
+	 * Returns Stopwatch sampling rate for this configuration item.
+	 *
+	 * @return configured sampling rate or null if nothing was specified
+	 * @since 3.0
+	 */
+	public Integer getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * Returns true if the Unknown Simon should maintain roll-ups of all Stopwatches below it.
+	 *
+	 * @return configured aggregation flag or null if nothing was specified
+	 * @since 3.0
+	 */
+	public Boolean getAggregate() {
+		return aggregate;
+	}
+
+	/**
+	 * Configurations are equal if they specify the same state, sampling and aggregation flag.
+	 *
+	 * @param o compared object
+	 * @return true if the object is the equal configuration
+	 * @since 3.0
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SimonConfiguration)) {
+			return false;
+		}
+		SimonConfiguration that = (SimonConfiguration) o;
+		return state == that.state
+			&& (sampling != null ? sampling.equals(that.sampling) : that.sampling == null)
+			&& (aggregate != null ? aggregate.equals(that.aggregate) : that.aggregate == null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int result = state != null ? state.hashCode() : 0;
+		result = 31 * result + (sampling != null ? sampling.hashCode() : 0);
+		return 31 * result + (aggregate != null ? aggregate.hashCode() : 0);
+	}
+
 	/**
 	 * Returns configuration information about Simon (stat processor type and state) as a human readable string.
 	 *
@@ -36,6 +117,8 @@ public final class SimonConfiguration {
 	public String toString() {
 		return "SimonConfiguration {\n" +
 			"  state=" + state + "\n" +
+			"  sampling=" + sampling + "\n" +
+			"  aggregate=" + aggregate + "\n" +
 			"}";
 	}
 }
@@ -2,6 +2,7 @@ package org.javasimon;
 
 import java.util.*;
 import java.io.*;
+import java.lang.invoke.MethodHandle;
 
 /**
  * SimonManager is static utility class providing so called "default {@link org.javasimon.Manager}.
@@ -15,6 +16,13 @@ import java.io.*;
  * <pre>-Djavasimon.config.file=some-path/simon.config.xml</pre>
  * To configure the SimonManager via resource that can be found on classpath:
  * <pre>-Djavasimon.config.resource=org/javasimon/example/wannabe-config.xml</pre>
+ * Configuration file is reloaded whenever it changes if {@code -Djavasimon.config.watch=true} is added
+ * (see {@link ConfigurationWatcher}).
+ * <p/>
+ * Methods obtaining Simons ({@link #getStopwatch(String)}, {@link #getCounter(String)}, {@link #getSimon(String)})
+ * get the current manager from the constant call site of the {@link SwitchingManager}, hence the instrumented
+ * code running with the disabled manager is compiled just to a few instructions returning the null Simon.
+ * Manager can still be enabled/disabled at any time (also via JMX).
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
@@ -29,7 +37,22 @@ public final class SimonManager {
 	 */
 	public static final String PROPERTY_CONFIG_RESOURCE_NAME = "javasimon.config.resource";
 
-	private static Manager manager = new SwitchingManager();
+	/**
+	 * Property name switching on the reload of the configuration file when it changes is "javasimon.config.watch".
+	 * Reloaded file replaces the whole configuration, including the configuration from the resource.
+	 *
+	 * @since 3.0
+	 */
+	public static final String PROPERTY_CONFIG_WATCH = "javasimon.config.watch";
+
+	private static final SwitchingManager manager = new SwitchingManager();
+
+	/**
+	 * Handle returning the current manager of the switching manager - being static final it is constant-folded by the JIT.
+	 */
+	private static final MethodHandle CURRENT_MANAGER = manager.currentManager();
+
+	private static ConfigurationWatcher configurationWatcher;
 
 	/**
 	 * Calls {@link #init()}.
@@ -42,8 +65,9 @@ public final class SimonManager {
 	 * Initilizes the configuration facility for the default Simon Manager. Fetches exception
 	 * if configuration resource or file is not found. This method does NOT clear the manager
 	 * itself, only the configuration is reloaded. Method also preserves Callback setup.
+	 * Configuration file is watched for changes if {@link #PROPERTY_CONFIG_WATCH} is {@code true}.
 	 */
-	public static void init() {
+	public static synchronized void init() {
 		CallbackSkeleton tempraryCallback = new CallbackSkeleton();
 		manager.callback().addCallback(tempraryCallback);
 		try {
@@ -52,6 +76,14 @@ public final class SimonManager {
 			if (fileName != null) {
 				manager.configuration().readConfig(new FileReader(fileName));
 			}
+			if (configurationWatcher != null) {
+				configurationWatcher.stop();
+				configurationWatcher = null;
+			}
+			if (fileName != null && Boolean.getBoolean(PROPERTY_CONFIG_WATCH)) {
+				configurationWatcher = new ConfigurationWatcher(manager, new File(fileName));
+				configurationWatcher.start();
+			}
 			String resourceName = System.getProperty(PROPERTY_CONFIG_RESOURCE_NAME);
 			if (resourceName != null) {
 				InputStream is =
@@ -71,6 +103,14 @@ public final class SimonManager {
 		throw new UnsupportedOperationException();
 	}
 
+	private static Manager currentManager() {
+		try {
+			return (Manager) CURRENT_MANAGER.invokeExact();
+		} catch (Throwable throwable) {
+			throw new SimonException(throwable);
+		}
+	}
+
 	/**
 	 * Returns Simon by its name if it exists.
 	 *
@@ -78,7 +118,24 @@ public final class SimonManager {
 	 * @return Simon object
 	 */
 	public static Simon getSimon(String name) {
-		return manager.getSimon(name);
+		return currentManager().getSimon(name);
+	}
+
+	/**
+	 * Returns true if the Simon obtained from this manager earlier is still the Simon the manager would return
+	 * for its name - it was not destroyed, evicted (see {@link SubtreeLimit}) or replaced and the manager was
+	 * not cleared, enabled or disabled since. Callers caching Simons use this cheap check (no lookup by name)
+	 * to decide whether the Simon must be obtained again.
+	 *
+	 * @param simon cached Simon (may be null)
+	 * @return true if the cached Simon can be used, false if it should be obtained again
+	 * @since 3.0
+	 */
+	public static boolean isCurrent(Simon simon) {
+		if (simon instanceof AbstractSimon) {
+			return !((AbstractSimon) simon).isDestroyed() && manager.isEnabled();
+		}
+		return simon != null && !manager.isEnabled();
 	}
 
 	/**
@@ -97,7 +154,7 @@ public final class SimonManager {
 	 * @return counter object
 	 */
 	public static Counter getCounter(String name) {
-		return manager.getCounter(name);
+		return currentManager().getCounter(name);
 	}
 
 	/**
@@ -107,7 +164,7 @@ public final class SimonManager {
 	 * @return stopwatch object
 	 */
 	public static Stopwatch getStopwatch(String name) {
-		return manager.getStopwatch(name);
+		return currentManager().getStopwatch(name);
 	}
 
 	/**
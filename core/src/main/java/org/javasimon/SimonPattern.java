@@ -49,7 +49,7 @@ public class SimonPattern {
 	 * @param pattern Simon name pattern
 	 * @throws SimonException if pattern is not valid (runtime exception)
 	 */
-	SimonPattern(String pattern) {
+	public SimonPattern(String pattern) {
 		this.pattern = pattern;
 		if (!pattern.contains(WILDCARD_STAR)) {
 			// no wildcard, we're going for complete match (all)
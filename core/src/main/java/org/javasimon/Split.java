@@ -6,7 +6,8 @@ import org.javasimon.utils.SimonUtils;
  * Represents single time split - one Stopwatch measurement. Object is obtained by {@link org.javasimon.Stopwatch#start()}
  * and the measurement is ended using {@link #stop()} method on this object. Split will return 0 as the result
  * if the related Stopwatch was disabled when the Split was obtained. The Split can be stopped in any other thread.
- * Split measures real-time (based on {@link System#nanoTime()}), it does not measure CPU time.
+ * Split measures real-time (based on {@link org.javasimon.clock.Clock#nanoTime()} of the manager, by default
+ * {@link System#nanoTime()}), it does not measure CPU time.
  *
  * @see Stopwatch
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
@@ -16,6 +17,7 @@ public final class Split {
 	private long start;
 	private long total;
 	private boolean enabled;
+	private int sampling = 1;
 
 	/**
 	 * Creates a new Split for a Stopwatch with a specific timestamp in nanoseconds.
@@ -29,6 +31,28 @@ public final class Split {
 		this.start = start;
 	}
 
+	/**
+	 * Creates a new Split for a sampled Stopwatch - split time will be counted with the weight of the sampling rate.
+	 *
+	 * @param stopwatch owning Stopwatch
+	 * @param start start timestamp in nanoseconds
+	 * @param sampling sampling rate of the Stopwatch when the split was started
+	 */
+	Split(Stopwatch stopwatch, long start, int sampling) {
+		this(stopwatch, start);
+		this.sampling = sampling;
+	}
+
+	/**
+	 * Creates an inert Split that does not measure anything - one instance is shared by all calls
+	 * skipped because of the sampling.
+	 *
+	 * @param stopwatch owning Stopwatch
+	 */
+	Split(Stopwatch stopwatch) {
+		this.stopwatch = stopwatch;
+	}
+
 	/**
 	 * Returns the stopwatch that this split is running for.
 	 *
@@ -45,7 +69,7 @@ public final class Split {
 	 */
 	public long stop() {
 		if (enabled && start != 0) {
-			total = ((StopwatchImpl) stopwatch).stop(this, start);
+			total = ((StopwatchImpl) stopwatch).stop(this, start, sampling);
 			start = 0;
 			return total;
 		}
@@ -63,7 +87,7 @@ public final class Split {
 			return total;
 		}
 		if (enabled) {
-			return System.nanoTime() - start;
+			return ((AbstractSimon) stopwatch).manager.clock().nanoTime() - start;
 		}
 		return 0;
 	}
@@ -79,7 +103,8 @@ public final class Split {
 	}
 
 	/**
-	 * Returns true if this split was created from enabled Simon.
+	 * Returns true if this split was created from enabled Simon. Returns false also for the split
+	 * that was not measured because of the sampling (see {@link Stopwatch#setSampling(int)}).
 	 *
 	 * @return true if this split was created from enabled Simon
 	 */
@@ -176,4 +176,29 @@ public interface Stopwatch extends Simon {
 	 * @return entire population variance
 	 */
 	double getVarianceN();
+
+	/**
+	 * Returns sampling rate of the Stopwatch - only one of {@code sampling} splits is measured on average.
+	 * Value 1 (default) means that all splits are measured.
+	 *
+	 * @return sampling rate, 1 if all splits are measured
+	 * @since 3.0
+	 */
+	int getSampling();
+
+	/**
+	 * Sets sampling rate of the Stopwatch - only one of {@code sampling} splits (randomly chosen) is measured
+	 * then. {@link #start()} returns shared inert split for other calls without even reading the timer and
+	 * without calling callbacks. Counter and total of the Stopwatch (and the mean) are scaled by the sampling
+	 * rate so they estimate values for all splits, min, max and last values are real values of measured splits.
+	 * Active split count covers only measured splits. This is suitable for extremely hot Stopwatches where the
+	 * precise count is not important. Value can be also configured for the set of Simons in the
+	 * {@link org.javasimon.ManagerConfiguration}.
+	 *
+	 * @param sampling sampling rate, 1 to measure all splits
+	 * @return this Stopwatch
+	 * @throws IllegalArgumentException if sampling is not positive
+	 * @since 3.0
+	 */
+	Stopwatch setSampling(int sampling);
 }
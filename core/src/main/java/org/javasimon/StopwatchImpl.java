@@ -1,7 +1,10 @@
 package org.javasimon;
 
+import org.javasimon.clock.Clock;
 import org.javasimon.utils.SimonUtils;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Class implements {@link org.javasimon.Stopwatch} interface - see there for how to use Stopwatch.
  *
@@ -29,11 +32,28 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 
 	private long last;
 
-	private long firstUsageNanos;
-
 	private double mean; // used to calculate statistics
 	private double mean2; // used to calculate statistics
 
+	private volatile int sampling = 1;
+
+	/**
+	 * Inert split returned for calls skipped because of the sampling.
+	 */
+	private final Split unsampledSplit = new Split(this);
+
+	/**
+	 * Queue of the owning manager for the roll-ups into the aggregating ancestors.
+	 */
+	private final RollupQueue rollups;
+
+	// delta not yet rolled up into the aggregating ancestors
+	private long rollupCounter;
+	private long rollupTotal;
+	private long rollupMin = Long.MAX_VALUE;
+	private long rollupMax;
+	private boolean rollupQueued;
+
 	/**
 	 * Construts Stopwatch Simon with a specified name and for the specified manager.
 	 *
@@ -42,17 +62,18 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	 */
 	StopwatchImpl(String name, Manager manager) {
 		super(name, manager);
+		rollups = manager instanceof EnabledManager ? ((EnabledManager) manager).rollups() : null;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public Stopwatch addTime(long ns) {
-		long nowNanos = System.nanoTime();
+		long now = manager.clock().milliTime();
 		synchronized (this) {
 			if (enabled) {
-				updateUsages(nowNanos);
-				addSplit(ns);
+				updateUsages(now);
+				addSplit(ns, 1);
 				manager.callback().stopwatchAdd(this, ns);
 			}
 			return this;
@@ -63,13 +84,18 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	 * {@inheritDoc}
 	 */
 	public Split start() {
-		long nowNanos = System.nanoTime();
+		int sampling = this.sampling;
+		if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+			return unsampledSplit;
+		}
+		Clock clock = manager.clock();
+		long nowNanos = clock.nanoTime();
 		synchronized (this) {
 			if (enabled) {
 				Split split;
-				updateUsages(nowNanos);
+				updateUsages(clock.millisForNano(nowNanos));
 				activeStart();
-				split = new Split(this, nowNanos);
+				split = new Split(this, nowNanos, sampling);
 				manager.callback().stopwatchStart(split);
 				return split;
 			}
@@ -82,15 +108,17 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	 *
 	 * @param split Split object that has been stopped
 	 * @param start start nano-time of the split @return split time in ns
+	 * @param sampling sampling rate when the split was started - weight of the split
 	 * @return duration of the split in nanoseconds
 	 */
-	long stop(Split split, long start) {
-		long nowNanos = System.nanoTime();
+	long stop(Split split, long start, int sampling) {
+		Clock clock = manager.clock();
+		long nowNanos = clock.nanoTime();
 		synchronized (this) {
 			try {
 				active--;
-				updateUsages(nowNanos);
-				return addSplit(nowNanos - start);
+				updateUsages(clock.millisForNano(nowNanos));
+				return addSplit(nowNanos - start, sampling);
 			} finally {
 				manager.callback().stopwatchStop(split);
 			}
@@ -127,10 +155,10 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		return this;
 	}
 
-	private long addSplit(long split) {
+	private long addSplit(long split, int weight) {
 		last = split;
-		total += split;
-		counter++;
+		total += split * weight;
+		counter += weight;
 		if (split > max) {
 			max = split;
 			maxTimestamp = getLastUsage();
@@ -142,11 +170,58 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		// statistics processing
 		double delta = split - mean;
 		mean = ((double) total) / counter;
-		mean2 += delta * (split - mean);
+		mean2 += weight * delta * (split - mean);
 
+		if (rollups != null && rollups.isActive()) {
+			addRollupDelta(split, weight);
+		}
 		return split;
 	}
 
+	private void addRollupDelta(long split, int weight) {
+		rollupCounter += weight;
+		rollupTotal += split * weight;
+		if (split < rollupMin) {
+			rollupMin = split;
+		}
+		if (split > rollupMax) {
+			rollupMax = split;
+		}
+		if (!rollupQueued) {
+			rollupQueued = true;
+			rollups.add(this);
+		}
+	}
+
+	/**
+	 * Adds the pending delta to all aggregating ancestors - called when the roll-up queue is flushed.
+	 */
+	void rollUp() {
+		long counter;
+		long total;
+		long min;
+		long max;
+		synchronized (this) {
+			counter = rollupCounter;
+			total = rollupTotal;
+			min = rollupMin;
+			max = rollupMax;
+			rollupCounter = 0;
+			rollupTotal = 0;
+			rollupMin = Long.MAX_VALUE;
+			rollupMax = 0;
+			rollupQueued = false;
+		}
+		if (counter == 0) {
+			return;
+		}
+		for (Simon ancestor = getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			if (ancestor instanceof UnknownSimon) {
+				((UnknownSimon) ancestor).rollUp(counter, total, min, max);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -255,6 +330,24 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		return maxActiveTimestamp;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Stopwatch setSampling(int sampling) {
+		if (sampling < 1) {
+			throw new IllegalArgumentException("Sampling must be positive: " + sampling);
+		}
+		this.sampling = sampling;
+		return this;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -283,6 +376,7 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		sample.setVarianceN(getVarianceN());
 		sample.setStandardDeviation(getStandardDeviation());
 		sample.setLast(getLast());
+		sample.setSampling(sampling);
 		sampleCommon(sample);
 		return sample;
 	}
@@ -290,14 +384,13 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	/**
 	 * Updates usage statistics.
 	 *
-	 * @param nowNanos current value of nano timer
+	 * @param now current millis timestamp
 	 */
-	private void updateUsages(long nowNanos) {
+	private void updateUsages(long now) {
+		lastUsage = now;
 		if (firstUsage == 0) {
-			firstUsage = System.currentTimeMillis();
-			firstUsageNanos = nowNanos;
+			firstUsage = lastUsage;
 		}
-		lastUsage = firstUsage + (nowNanos - firstUsageNanos) / SimonUtils.NANOS_IN_MILLIS;
 	}
 
 	/**
@@ -314,6 +407,7 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 			", max " + SimonUtils.presentNanoTime(max) +
 			", min " + SimonUtils.presentNanoTime(min) +
 			", mean " + SimonUtils.presentNanoTime((long) mean) +
+			(sampling > 1 ? ", sampling 1/" + sampling : "") +
 			super.toString();
 	}
 }
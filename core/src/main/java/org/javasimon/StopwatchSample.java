@@ -24,6 +24,7 @@ public class StopwatchSample extends Sample {
 	private double standardDeviation;
 	private double variance;
 	private double varianceN;
+	private int sampling = 1;
 
 	/**
 	 * Returns the total sum of all split times in nanoseconds.
@@ -269,6 +270,28 @@ public class StopwatchSample extends Sample {
 		this.last = last;
 	}
 
+	/**
+	 * Returns sampling rate of the Stopwatch - only one of {@code sampling} splits was measured on average
+	 * and counter, total and mean are estimated. Value 1 means that all splits were measured and values are exact.
+	 *
+	 * @return sampling rate
+	 * @see Stopwatch#setSampling(int)
+	 * @since 3.0
+	 */
+	public final int getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * Sets the sampling rate of the Stopwatch.
+	 *
+	 * @param sampling sampling rate
+	 * @since 3.0
+	 */
+	public final void setSampling(int sampling) {
+		this.sampling = sampling;
+	}
+
 	/**
 	 * Returns mean value (average) of all measured values.
 	 *
@@ -373,6 +396,7 @@ public class StopwatchSample extends Sample {
 		sb.append(", standardDeviation=").append(SimonUtils.presentNanoTime((long) getStandardDeviation()));
 		sb.append(", variance=").append(getVariance());
 		sb.append(", varianceN=").append(getVarianceN());
+		sb.append(", sampling=").append(sampling);
 		sb.append(", note=").append(getNote());
 		sb.append(", firstUsage=").append(getFirstUsage());
 		sb.append(", lastUsage=").append(getLastUsage());
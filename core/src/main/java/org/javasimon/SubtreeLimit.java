@@ -0,0 +1,139 @@
+package org.javasimon;
+
+/**
+ * Limit of the number of Simons in the subtree. When the subtree is full, Simons that have not been used
+ * at least for the minimal idle time are destroyed (least recently used first) to make place for the new ones.
+ * If there is no such Simon, new names in the subtree are folded into the Simon named
+ * {@code <subtree>.other} for Stopwatches or {@code <subtree>.other-counter} for Counters
+ * (see {@link #getOtherName(Class)}), so the overflow of each Simon type has its own "other" Simon.
+ * <p/>
+ * Limits are configured with {@link ManagerConfiguration#setLimit(String, int, long)} or in the configuration XML:
+ * <pre>{@literal <limit subtree="org.javasimon.jdbc.sql" max="5000" min-idle="60000"/>}</pre>
+ *
+ * @since 3.0
+ */
+public final class SubtreeLimit {
+	/**
+	 * Default minimal idle time of the Simon that can be destroyed is one minute.
+	 */
+	public static final long DEFAULT_MIN_IDLE_MILLIS = 60000;
+
+	/**
+	 * Suffix of the Simon that aggregates all the overflowing Simons of the subtree.
+	 */
+	public static final String OTHER_SUFFIX = "other";
+
+	/**
+	 * Suffix of the Counter that aggregates all the overflowing Counters of the subtree.
+	 */
+	public static final String OTHER_COUNTER_SUFFIX = "other-counter";
+
+	private final String subtree;
+
+	private final int max;
+
+	private final long minIdle;
+
+	/**
+	 * Creates the limit for the subtree.
+	 *
+	 * @param subtree name of the subtree root Simon (can end with ".*" which is ignored)
+	 * @param max maximal number of Simons under the subtree root (root itself not included)
+	 * @param minIdle minimal idle time in ms of the Simon that can be destroyed
+	 * @throws SimonException if the max is not positive or the minimal idle time is negative
+	 */
+	SubtreeLimit(String subtree, int max, long minIdle) {
+		if (subtree.endsWith(Manager.HIERARCHY_DELIMITER + "*")) {
+			subtree = subtree.substring(0, subtree.length() - 2);
+		}
+		if (max < 1) {
+			throw new SimonException("Limit must be positive, subtree: " + subtree + ", max: " + max);
+		}
+		if (minIdle < 0) {
+			throw new SimonException("Minimal idle time must not be negative, subtree: " + subtree + ", min-idle: " + minIdle);
+		}
+		this.subtree = subtree;
+		this.max = max;
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Returns the name of the subtree root Simon.
+	 *
+	 * @return name of the subtree root
+	 */
+	public String getSubtree() {
+		return subtree;
+	}
+
+	/**
+	 * Returns the maximal number of Simons in the subtree.
+	 *
+	 * @return maximal number of Simons
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the minimal idle time in ms of the Simon that can be destroyed.
+	 *
+	 * @return minimal idle time in ms
+	 */
+	public long getMinIdle() {
+		return minIdle;
+	}
+
+	/**
+	 * Returns the name of the Stopwatch aggregating all the overflowing Stopwatches of the subtree.
+	 *
+	 * @return name of the "other" Stopwatch
+	 */
+	public String getOtherName() {
+		return subtree + Manager.HIERARCHY_DELIMITER + OTHER_SUFFIX;
+	}
+
+	/**
+	 * Returns the name of the Simon aggregating all the overflowing Simons of the specified type in the subtree.
+	 *
+	 * @param simonClass type of the Simon (interface or implementation)
+	 * @return name of the "other" Simon for the type
+	 */
+	public String getOtherName(Class<?> simonClass) {
+		if (Counter.class.isAssignableFrom(simonClass)) {
+			return subtree + Manager.HIERARCHY_DELIMITER + OTHER_COUNTER_SUFFIX;
+		}
+		return getOtherName();
+	}
+
+	/**
+	 * Returns true if the name is one of the "other" Simons of this subtree.
+	 *
+	 * @param name Simon name
+	 * @return true for the name of any "other" Simon
+	 */
+	boolean isOtherName(String name) {
+		return name.equals(getOtherName()) || name.equals(getOtherName(Counter.class));
+	}
+
+	/**
+	 * Returns true if the Simon with the specified name belongs to this subtree (subtree root excluded).
+	 *
+	 * @param name Simon name
+	 * @return true if the Simon is under the subtree root
+	 */
+	boolean contains(String name) {
+		return name.length() > subtree.length() && name.startsWith(subtree)
+			&& name.charAt(subtree.length()) == Manager.HIERARCHY_DELIMITER.charAt(0);
+	}
+
+	/**
+	 * Returns information about the limit as a human readable string.
+	 *
+	 * @return information about the limit as string
+	 */
+	@Override
+	public String toString() {
+		return "SubtreeLimit{subtree=" + subtree + ", max=" + max + ", minIdle=" + minIdle + "}";
+	}
+}
@@ -1,9 +1,21 @@
 package org.javasimon;
 
+import org.javasimon.clock.Clock;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
 import java.util.List;
 
 /**
- * SwitchingManager.
+ * SwitchingManager delegates to the enabled or disabled manager and can be switched at runtime
+ * (directly or via {@link org.javasimon.jmx.SimonMXBean#enable()}/{@link org.javasimon.jmx.SimonMXBean#disable()}).
+ * <p/>
+ * Besides the ordinary (volatile) switch the current manager is also published as the constant target
+ * of a {@link MutableCallSite} - see {@link #currentManager()}. Code that invokes it from a {@code static final}
+ * handle (like {@link SimonManager}) is compiled by the JIT with the current manager as a constant, hence
+ * the disabled path folds down to the {@link NullSimon} with no checks at all. Switching the manager relinks
+ * the call site and the dependent compiled code is deoptimized.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
@@ -12,7 +24,12 @@ public final class SwitchingManager implements Manager {
 
 	private Manager disabled = new DisabledManager();
 
-	private Manager manager = enabled;
+	private volatile Manager manager = enabled;
+
+	private final MutableCallSite currentManagerSite =
+		new MutableCallSite(MethodHandles.constant(Manager.class, enabled));
+
+	private final MethodHandle currentManager = currentManagerSite.dynamicInvoker();
 
 	/**
 	 * {@inheritDoc}
@@ -86,12 +103,30 @@ public final class SwitchingManager implements Manager {
 		return manager.configuration();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clock clock() {
+		return manager.clock();
+	}
+
+	/**
+	 * Sets the clock of the enabled manager.
+	 *
+	 * @param clock new clock
+	 */
+	@Override
+	public void setClock(Clock clock) {
+		enabled.setClock(clock);
+	}
+
 	/**
 	 * Enables the Simon Manager. Enabled manager provides real Simons.
 	 */
 	@Override
 	public void enable() {
-		manager = enabled;
+		switchTo(enabled);
 	}
 
 	/**
@@ -99,7 +134,26 @@ public final class SwitchingManager implements Manager {
 	 */
 	@Override
 	public void disable() {
-		manager = disabled;
+		switchTo(disabled);
+	}
+
+	private synchronized void switchTo(Manager newManager) {
+		if (manager != newManager) {
+			manager = newManager;
+			currentManagerSite.setTarget(MethodHandles.constant(Manager.class, newManager));
+			MutableCallSite.syncAll(new MutableCallSite[] {currentManagerSite});
+		}
+	}
+
+	/**
+	 * Returns the method handle of type {@code ()Manager} returning the current (enabled or disabled) manager.
+	 * Handle should be stored in a {@code static final} field and invoked with {@code invokeExact} to get
+	 * the switch constant-folded.
+	 *
+	 * @return handle returning the current manager
+	 */
+	MethodHandle currentManager() {
+		return currentManager;
 	}
 
 	/**
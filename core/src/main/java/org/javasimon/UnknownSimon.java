@@ -3,10 +3,19 @@ package org.javasimon;
 /**
  * UnknownSimon represents Simon node in the hierarchy without known type. It may be replaced
  * in the hierarchy for real Simon in the future.
+ * <p/>
+ * Unknown Simon can be aggregating (configuration attribute {@code aggregate="true"}, e.g.
+ * {@code <simon pattern="org.javasimon.jdbc.sql" aggregate="true"/>}) - then it maintains counter,
+ * total, min and max of all Stopwatches under it and {@link #sample()} returns them as {@link StopwatchSample}.
+ * Roll-ups are batched, Stopwatches record only pending deltas that are added to the aggregating ancestors
+ * when the sample is requested. Only splits recorded since the aggregation started (or since the reset of this
+ * Simon) are rolled up, resets of the Stopwatches below are not reflected.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 final class UnknownSimon extends AbstractSimon {
+	private volatile Rollup rollup;
+
 	/**
 	 * Construts unknown Simon with a specified name and for the specified manager.
 	 *
@@ -18,24 +27,104 @@ final class UnknownSimon extends AbstractSimon {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Makes this Simon aggregating.
+	 */
+	void aggregate() {
+		if (rollup == null) {
+			rollup = new Rollup();
+		}
+	}
+
+	/**
+	 * Stops the aggregation of this Simon, collected roll-ups are dropped.
+	 */
+	void stopAggregating() {
+		rollup = null;
+	}
+
+	/**
+	 * Returns true if this Simon maintains roll-ups of the Stopwatches below.
+	 *
+	 * @return true if this Simon is aggregating
+	 */
+	boolean isAggregating() {
+		return rollup != null;
+	}
+
+	/**
+	 * Adds the delta of one Stopwatch below if this Simon is aggregating.
+	 *
+	 * @param counter number of splits
+	 * @param total total time of the splits
+	 * @param min minimal split
+	 * @param max maximal split
+	 */
+	void rollUp(long counter, long total, long min, long max) {
+		Rollup rollup = this.rollup;
+		if (rollup != null) {
+			rollup.add(counter, total, min, max);
+		}
+	}
+
+	/**
+	 * Resets the roll-ups if this Simon is aggregating, otherwise does nothing.
+	 *
+	 * @return this Simon
 	 */
 	public Simon reset() {
+		Rollup rollup = this.rollup;
+		if (rollup != null) {
+			flushRollups();
+			rollup.reset();
+			saveResetTimestamp();
+			manager.callback().reset(this);
+		}
 		return this;
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Returns the roll-ups as {@link StopwatchSample} if this Simon is aggregating, null otherwise.
+	 *
+	 * @return sample with rolled-up totals or null
 	 */
 	public Sample sample() {
-		return null;
+		Rollup rollup = this.rollup;
+		if (rollup == null) {
+			return null;
+		}
+		flushRollups();
+		StopwatchSample sample = new StopwatchSample();
+		rollup.fill(sample);
+		sampleCommon(sample);
+		return sample;
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Returns the roll-ups as {@link StopwatchSample} and resets them if this Simon is aggregating,
+	 * null otherwise.
+	 *
+	 * @return sample with rolled-up totals or null
 	 */
 	public Sample sampleAndReset() {
-		return null;
+		Rollup rollup = this.rollup;
+		if (rollup == null) {
+			return null;
+		}
+		flushRollups();
+		StopwatchSample sample = new StopwatchSample();
+		synchronized (rollup) {
+			rollup.fill(sample);
+			rollup.reset();
+		}
+		saveResetTimestamp();
+		sampleCommon(sample);
+		return sample;
+	}
+
+	private void flushRollups() {
+		if (manager instanceof EnabledManager) {
+			((EnabledManager) manager).rollups().flush();
+		}
 	}
 
 	/**
@@ -19,15 +19,35 @@ import java.lang.annotation.ElementType;
  * <p/>
  * If the name attribute is specified on a method it will override the method name part.
  * Default: the name of the method.
+ * <p/>
+ * Attribute {@link #sampling()} sets the sampling rate of the Stopwatch when it is resolved for the first time,
+ * sampling set on the method annotation overrides the class one (see {@link MonitoredSampling}).
  *
  * @author Erik van Oosten
  */
 @Retention(value = RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD, ElementType.TYPE})
 public @interface Monitored {
+	/**
+	 * Value of {@link #sampling()} when the sampling is not set - method takes the sampling of the class annotation.
+	 *
+	 * @since 3.0
+	 */
+	int SAMPLING_NOT_SET = 0;
+
 	/**
 	 * @return name part of monitor
 	 * @see Monitored
 	 */
 	String name() default "";
+
+	/**
+	 * Sampling rate set to the Stopwatch (see {@link org.javasimon.Stopwatch#setSampling(int)}) - 1 measures
+	 * all calls and does not change the Stopwatch. If not set ({@link #SAMPLING_NOT_SET}), method takes
+	 * the sampling of the class annotation, or 1 if the class does not set it either.
+	 *
+	 * @return sampling rate of the Stopwatch
+	 * @since 3.0
+	 */
+	int sampling() default SAMPLING_NOT_SET;
 }
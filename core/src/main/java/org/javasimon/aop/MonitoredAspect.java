@@ -1,33 +1,107 @@
 package org.javasimon.aop;
 
+import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.annotation.SuppressAjWarnings;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.javasimon.Manager;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * AspectJ aspect for Spring configuration bound to Monitored annotation.
+ * AspectJ aspect bound to {@link Monitored} annotation - measures executions of annotated methods and of all
+ * methods of annotated classes with a Stopwatch. Stopwatch name is resolved from the annotations the same way
+ * as {@link Monitored} describes - class part is taken from the declaring class of the method. Resolved Stopwatch
+ * is cached per static join point, hence the advised call does not use reflection or build the name, it only
+ * checks that the cached Stopwatch is still current and measures the split.
+ * <p/>
+ * Aspect can be woven at compile-time (ajc, aspectj-maven-plugin with javasimon-core on the aspect path),
+ * at load-time (declare it in {@code META-INF/aop.xml}) or used with Spring AOP {@code <aop:aspectj-autoproxy/>}.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
-// TODO hardly started, right now only AOP alliance aspect is usable
+@Aspect
 public class MonitoredAspect {
-	@Pointcut("@annotation(org.javasimon.aop.Monitored)")
-	public void mergeEntitiesMethod() {
-	}
+	private final ConcurrentMap<JoinPoint.StaticPart, Stopwatch> stopwatches = new ConcurrentHashMap<JoinPoint.StaticPart, Stopwatch>();
 
-	@Pointcut("@within(org.javasimon.aop.Monitored)")
-	public void mergeEntitiesClass() {
+	/**
+	 * Execution of the method annotated with {@link Monitored}.
+	 */
+	@Pointcut("execution(@org.javasimon.aop.Monitored * *(..))")
+	public void monitoredMethod() {
 	}
 
+	/**
+	 * Execution of any method of the class annotated with {@link Monitored}.
+	 */
+	@Pointcut("execution(* (@org.javasimon.aop.Monitored *).*(..))")
+	public void monitoredClass() {
+	}
 
-	@Around("mergeEntitiesMethod() || mergeEntitiesClass()")
-	public Object mergeEntities(ProceedingJoinPoint pjp) throws Throwable {
-		System.out.println("pjp = " + pjp);
-//		SimonManager.getSimon(pjp.get)
+	/**
+	 * Measures the execution of the advised method.
+	 *
+	 * @param pjp proceeding join point of the method execution
+	 * @return return object from the method
+	 * @throws Throwable anything thrown by the method
+	 */
+	// advice matches nothing where the aspect itself is compiled (javasimon-core has no @Monitored code)
+	@SuppressAjWarnings("adviceDidNotMatch")
+	@Around("monitoredMethod() || monitoredClass()")
+	public Object monitor(ProceedingJoinPoint pjp) throws Throwable {
+		Split split = getStopwatch(pjp.getStaticPart()).start();
 		try {
 			return pjp.proceed();
 		} finally {
+			split.stop();
+		}
+	}
+
+	/**
+	 * Returns the Stopwatch for the join point - cached unless the Stopwatch was removed from the manager
+	 * (e.g. by {@link Manager#clear()}, see {@link SimonManager#isCurrent(org.javasimon.Simon)}).
+	 *
+	 * @param staticPart static part of the join point
+	 * @return Stopwatch measuring the join point
+	 */
+	private Stopwatch getStopwatch(JoinPoint.StaticPart staticPart) {
+		Stopwatch cached = stopwatches.get(staticPart);
+		if (SimonManager.isCurrent(cached)) {
+			return cached;
+		}
+
+		Method method = ((MethodSignature) staticPart.getSignature()).getMethod();
+		Monitored classAnnotation = method.getDeclaringClass().getAnnotation(Monitored.class);
+		Monitored methodAnnotation = method.getAnnotation(Monitored.class);
+		String name = getClassPart(method, classAnnotation) + Manager.HIERARCHY_DELIMITER + getMethodPart(method, methodAnnotation);
+		Stopwatch stopwatch = SimonManager.getStopwatch(name);
+		int sampling = MonitoredSampling.resolve(classAnnotation, methodAnnotation);
+		if (sampling != 1 && stopwatch.getSampling() == 1) {
+			stopwatch.setSampling(sampling);
+		}
+		stopwatches.put(staticPart, stopwatch);
+		return stopwatch;
+	}
+
+	private static String getClassPart(Method method, Monitored classAnnotation) {
+		if (classAnnotation == null || classAnnotation.name().length() == 0) {
+			return method.getDeclaringClass().getName();
+		}
+		return classAnnotation.name();
+	}
 
+	private static String getMethodPart(Method method, Monitored methodAnnotation) {
+		if (methodAnnotation == null || methodAnnotation.name().length() == 0) {
+			return method.getName();
 		}
+		return methodAnnotation.name();
 	}
 }
@@ -0,0 +1,32 @@
+package org.javasimon.aop;
+
+/**
+ * Resolves the sampling rate of the Stopwatch from the {@link Monitored} annotations of the class and the method -
+ * sampling set on the method annotation overrides the class one, including {@code sampling = 1} measuring all calls
+ * of the method of the sampled class. Used by all interceptors and aspects supporting {@link Monitored}.
+ *
+ * @since 3.0
+ */
+public final class MonitoredSampling {
+	private MonitoredSampling() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the sampling rate for the method - from the method annotation if it sets the sampling, otherwise
+	 * from the class annotation, 1 if neither sets it.
+	 *
+	 * @param classAnnotation annotation of the class (may be null)
+	 * @param methodAnnotation annotation of the method (may be null)
+	 * @return sampling rate of the Stopwatch, 1 measures all calls
+	 */
+	public static int resolve(Monitored classAnnotation, Monitored methodAnnotation) {
+		if (methodAnnotation != null && methodAnnotation.sampling() != Monitored.SAMPLING_NOT_SET) {
+			return methodAnnotation.sampling();
+		}
+		if (classAnnotation != null && classAnnotation.sampling() != Monitored.SAMPLING_NOT_SET) {
+			return classAnnotation.sampling();
+		}
+		return 1;
+	}
+}
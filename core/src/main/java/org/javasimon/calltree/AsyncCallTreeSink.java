@@ -0,0 +1,118 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+import org.javasimon.utils.SimonUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call tree sink handing the reported trees over to the delegate sink on a background daemon thread,
+ * so the thread that stopped the root split does not wait for the slow sink (e.g. logging into a file).
+ * Queue of the pending trees is bounded - when it is full, new trees are dropped and counted.
+ *
+ * @since 3.0
+ */
+public final class AsyncCallTreeSink implements CallTreeSink {
+	/**
+	 * Default maximal number of call trees waiting for the delegate sink.
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private final CallTreeSink delegate;
+
+	private final BlockingQueue<Report> queue;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Thread thread;
+
+	/**
+	 * Creates the sink with the default queue size and starts its thread.
+	 *
+	 * @param delegate sink processing the call trees on the background thread
+	 */
+	public AsyncCallTreeSink(CallTreeSink delegate) {
+		this(delegate, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Creates the sink and starts its thread.
+	 *
+	 * @param delegate sink processing the call trees on the background thread
+	 * @param queueSize maximal number of call trees waiting for the delegate sink
+	 */
+	public AsyncCallTreeSink(CallTreeSink delegate, int queueSize) {
+		this.delegate = delegate;
+		queue = new ArrayBlockingQueue<Report>(queueSize);
+		thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						Report report = queue.take();
+						try {
+							AsyncCallTreeSink.this.delegate.report(report.split, report.root);
+						} catch (RuntimeException e) {
+							SimonUtils.warning("Call tree sink failed: " + e);
+						}
+					}
+				} catch (InterruptedException e) {
+					// stopped
+				}
+			}
+		}, "javasimon-call-tree-sink");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues the call tree for the delegate sink, drops it if the queue is full.
+	 *
+	 * @param split stopped root split
+	 * @param root root node of the call tree
+	 */
+	public void report(Split split, CallTreeNode root) {
+		if (!queue.offer(new Report(split, root))) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the delegate sink.
+	 *
+	 * @return delegate sink
+	 */
+	public CallTreeSink getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Returns the number of call trees dropped because the queue was full.
+	 *
+	 * @return number of dropped call trees
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Stops the background thread, call trees still waiting in the queue are not processed.
+	 */
+	public void stop() {
+		thread.interrupt();
+	}
+
+	/**
+	 * Call tree waiting for the delegate sink.
+	 */
+	private static final class Report {
+		private final Split split;
+		private final CallTreeNode root;
+
+		Report(Split split, CallTreeNode root) {
+			this.split = split;
+			this.root = root;
+		}
+	}
+}
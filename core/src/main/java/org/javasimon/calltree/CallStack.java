@@ -0,0 +1,165 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+
+/**
+ * Tracks running splits of one thread and their position in the {@link CallTree}. Stack is either
+ * owned by the thread that started the root split or it is restored from the captured context on
+ * another thread - in that case the captured node is the base of the stack and the stack never completes
+ * the tree.
+ * <p/>
+ * Depth of the stack is bounded by the maximal depth of the tree - splits nested deeper are only
+ * counted as dropped in the nearest recorded ancestor. Class is not thread-safe.
+ *
+ * @since 3.0
+ */
+final class CallStack {
+	private final CallTree tree;
+
+	private final CallTree.Node[] nodes;
+	private final Split[] splits;
+	private int depth;
+
+	/**
+	 * Number of currently open splits nested deeper than the maximal depth.
+	 */
+	private int overflow;
+
+	/**
+	 * Stack that was current on the thread before this one was restored.
+	 */
+	private final CallStack previous;
+
+	/**
+	 * Creates the stack owning the tree.
+	 *
+	 * @param tree owned call tree
+	 */
+	CallStack(CallTree tree) {
+		this.tree = tree;
+		nodes = new CallTree.Node[tree.getMaxDepth()];
+		splits = new Split[tree.getMaxDepth()];
+		previous = null;
+	}
+
+	/**
+	 * Creates the stack restored from the captured context.
+	 *
+	 * @param context captured node
+	 * @param previous stack that was current on the thread before
+	 */
+	CallStack(CallTree.Node context, CallStack previous) {
+		tree = context.getTree();
+		nodes = new CallTree.Node[tree.getMaxDepth()];
+		splits = new Split[tree.getMaxDepth()];
+		nodes[0] = context;
+		depth = 1;
+		this.previous = previous;
+	}
+
+	CallTree getTree() {
+		return tree;
+	}
+
+	CallStack getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * Returns true if there is any running split on this stack.
+	 *
+	 * @return true if the tree is being built
+	 */
+	boolean isActive() {
+		return depth > 0;
+	}
+
+	/**
+	 * Starts the new tree with the root split.
+	 *
+	 * @param split root split
+	 */
+	void startRoot(Split split) {
+		depth = 0;
+		overflow = 0;
+		push(tree.root(split.getStopwatch().getName()), split);
+	}
+
+	/**
+	 * Records start of the nested split. Split with the same Stopwatch started under the same parent
+	 * reuses the existing node.
+	 *
+	 * @param split started split
+	 */
+	void start(Split split) {
+		if (depth == nodes.length) {
+			overflow++;
+			drop();
+			return;
+		}
+		CallTree.Node parent = nodes[depth - 1];
+		CallTree.Node node = null;
+		if (parent != null) {
+			node = tree.child(parent, split.getStopwatch().getName());
+		} else {
+			drop();
+		}
+		push(node, split);
+	}
+
+	/**
+	 * Records stop of the split. Splits that were started but not stopped above the stopped split
+	 * are discarded.
+	 *
+	 * @param split stopped split
+	 * @param ns split time in ns
+	 * @return true if the root split was stopped and the tree is complete
+	 */
+	boolean stop(Split split, long ns) {
+		for (int i = depth - 1; i >= 0; i--) {
+			if (splits[i] == split) {
+				if (nodes[i] != null) {
+					tree.record(nodes[i], ns);
+				}
+				for (int j = i; j < depth; j++) {
+					nodes[j] = null;
+					splits[j] = null;
+				}
+				depth = i;
+				overflow = 0;
+				return depth == 0;
+			}
+		}
+		if (overflow > 0) {
+			overflow--;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the deepest recorded node of the stack - used to capture the context.
+	 *
+	 * @return current node or null
+	 */
+	CallTree.Node current() {
+		for (int i = depth - 1; i >= 0; i--) {
+			if (nodes[i] != null) {
+				return nodes[i];
+			}
+		}
+		return null;
+	}
+
+	private void push(CallTree.Node node, Split split) {
+		nodes[depth] = node;
+		splits[depth] = split;
+		depth++;
+	}
+
+	private void drop() {
+		CallTree.Node node = current();
+		if (node != null) {
+			tree.drop(node);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package org.javasimon.calltree;
+
+/**
+ * Call tree built from nested splits. Nodes are kept in an arena that grows on demand up to the maximal
+ * node count and the arena is reused for following trees (trees are pooled by the {@link CallTreeCallback}),
+ * hence the measuring itself does not allocate anything once the arena is big enough. The number of distinct
+ * nodes is bounded - splits that would need another node are only counted as dropped in the nearest
+ * recorded ancestor.
+ * <p/>
+ * Position in the tree (running splits) is tracked separately by {@link CallStack}. Tree is normally
+ * used only by its owning thread - after the context is captured for another thread (see
+ * {@link CallTreeCallback#capture()}) the tree is marked as shared and all modifications are synchronized.
+ *
+ * @since 3.0
+ */
+final class CallTree {
+	private static final int INITIAL_ARENA_SIZE = 8;
+
+	private Node[] arena;
+	private int used;
+
+	private final int maxNodes;
+
+	private final int maxDepth;
+
+	private volatile boolean shared;
+
+	/**
+	 * Creates the call tree with small arena that will grow as needed.
+	 *
+	 * @param maxDepth maximal depth of the tree
+	 * @param maxNodes maximal number of distinct nodes in the tree
+	 */
+	CallTree(int maxDepth, int maxNodes) {
+		this.maxDepth = maxDepth;
+		this.maxNodes = maxNodes;
+		arena = new Node[Math.min(INITIAL_ARENA_SIZE, maxNodes)];
+	}
+
+	/**
+	 * Returns maximal depth of the tree.
+	 *
+	 * @return maximal depth
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns true if the tree was created with the specified limits.
+	 *
+	 * @param maxDepth maximal depth
+	 * @param maxNodes maximal node count
+	 * @return true if limits match
+	 */
+	boolean hasLimits(int maxDepth, int maxNodes) {
+		return this.maxDepth == maxDepth && this.maxNodes == maxNodes;
+	}
+
+	/**
+	 * Returns true if the tree can be accessed from other threads.
+	 *
+	 * @return true if the tree is shared
+	 */
+	boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Marks the tree as shared - from now on all modifications are synchronized and the arena
+	 * will not be reused for the next tree.
+	 */
+	void share() {
+		shared = true;
+	}
+
+	/**
+	 * Discards previous content of the arena and creates the root node.
+	 *
+	 * @param name name of the root Stopwatch
+	 * @return root node
+	 */
+	Node root(String name) {
+		used = 0;
+		return allocate(name, null);
+	}
+
+	/**
+	 * Returns the child node for the specified Stopwatch name - existing or newly allocated one.
+	 *
+	 * @param parent parent node
+	 * @param name name of the Stopwatch
+	 * @return child node or null if the arena is exhausted
+	 */
+	Node child(Node parent, String name) {
+		if (shared) {
+			synchronized (this) {
+				return childPrivate(parent, name);
+			}
+		}
+		return childPrivate(parent, name);
+	}
+
+	private Node childPrivate(Node parent, String name) {
+		Node node = parent.child(name);
+		if (node == null) {
+			node = allocate(name, parent);
+		}
+		if (node == null) {
+			parent.dropped++;
+		}
+		return node;
+	}
+
+	/**
+	 * Records split time into the node.
+	 *
+	 * @param node recorded node
+	 * @param ns split time in ns
+	 */
+	void record(Node node, long ns) {
+		if (shared) {
+			synchronized (this) {
+				node.record(ns);
+			}
+		} else {
+			node.record(ns);
+		}
+	}
+
+	/**
+	 * Counts dropped nested split in the node.
+	 *
+	 * @param node node under which the split was dropped
+	 */
+	void drop(Node node) {
+		if (shared) {
+			synchronized (this) {
+				node.dropped++;
+			}
+		} else {
+			node.dropped++;
+		}
+	}
+
+	/**
+	 * Creates detached snapshot of the whole tree.
+	 *
+	 * @return root node of the snapshot or null if nothing was recorded
+	 */
+	CallTreeNode snapshot() {
+		if (shared) {
+			synchronized (this) {
+				return used == 0 ? null : arena[0].snapshot();
+			}
+		}
+		return used == 0 ? null : arena[0].snapshot();
+	}
+
+	/**
+	 * Returns the root node of the tree.
+	 *
+	 * @return root node or null if the tree is empty
+	 */
+	Node rootNode() {
+		return used == 0 ? null : arena[0];
+	}
+
+	/**
+	 * Returns total time of the root node in ns.
+	 *
+	 * @return root total time
+	 */
+	long rootTotal() {
+		return used == 0 ? 0 : arena[0].total;
+	}
+
+	private Node allocate(String name, Node parent) {
+		if (used == arena.length) {
+			if (used == maxNodes) {
+				return null;
+			}
+			Node[] newArena = new Node[Math.min(arena.length * 2, maxNodes)];
+			System.arraycopy(arena, 0, newArena, 0, used);
+			arena = newArena;
+		}
+		if (arena[used] == null) {
+			arena[used] = new Node(this);
+		}
+		Node node = arena[used++];
+		node.reset(name);
+		if (parent != null) {
+			parent.append(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Mutable arena node, children are kept as a linked list of siblings. Node also serves
+	 * as the captured context - it knows its tree and new splits can be attached under it.
+	 */
+	static final class Node extends CallTreeContext {
+		private final CallTree tree;
+		private String name;
+		private long count;
+		private long total;
+		private long max;
+		private long dropped;
+		private Node firstChild;
+		private Node lastChild;
+		private Node nextSibling;
+
+		Node(CallTree tree) {
+			this.tree = tree;
+		}
+
+		CallTree getTree() {
+			return tree;
+		}
+
+		void reset(String name) {
+			this.name = name;
+			count = 0;
+			total = 0;
+			max = 0;
+			dropped = 0;
+			firstChild = null;
+			lastChild = null;
+			nextSibling = null;
+		}
+
+		Node child(String name) {
+			for (Node child = firstChild; child != null; child = child.nextSibling) {
+				if (name == null ? child.name == null : name.equals(child.name)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		void append(Node child) {
+			if (lastChild == null) {
+				firstChild = child;
+			} else {
+				lastChild.nextSibling = child;
+			}
+			lastChild = child;
+		}
+
+		void record(long ns) {
+			count++;
+			total += ns;
+			if (ns > max) {
+				max = ns;
+			}
+		}
+
+		CallTreeNode snapshot() {
+			CallTreeNode node = new CallTreeNode(name, count, total, max, dropped);
+			for (Node child = firstChild; child != null; child = child.nextSibling) {
+				node.addChild(child.snapshot());
+			}
+			return node;
+		}
+	}
+}
@@ -0,0 +1,513 @@
+package org.javasimon.calltree;
+
+import org.javasimon.CallbackSkeleton;
+import org.javasimon.SimonException;
+import org.javasimon.SimonPattern;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.utils.SimonUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Callback building the tree of nested splits for every thread. The first split started on the thread
+ * (optionally only split of the Stopwatch matching the root pattern) becomes the root of the tree,
+ * every split started before the root is stopped is added under the currently running split.
+ * Splits of the same Stopwatch started under the same parent are aggregated into one node with
+ * the count and the total time - so 200 identical SQL statements from one service method end up
+ * in a single node.
+ * <p/>
+ * When the root split is stopped and its time is over the threshold the tree is reported to the
+ * {@link CallTreeSink} ({@link LoggingCallTreeSink} is used by default). Overhead is bounded - nodes
+ * are kept in an arena that is returned to the pool when the root split is stopped and reused for the
+ * next tree, both the depth and the node count of the tree are limited. Nothing is retained by the thread
+ * between the trees, which is important when there are many (virtual) threads.
+ * <p/>
+ * Splits can be also placed into the tree explicitly without any thread-local state - see
+ * {@link #begin(org.javasimon.Stopwatch)} and {@link CallTreeSplit}.
+ * <p/>
+ * Work handed over to other threads can be attached to the tree of the originating thread - the context
+ * is captured with {@link #capture()} and restored with {@link #restore(CallTreeContext)}, or simply
+ * the task or the whole executor is wrapped with one of the {@code wrap} methods:
+ * <pre>
+ * Executor executor = callTreeCallback.wrap(Executors.newFixedThreadPool(4));
+ * executor.execute(task); // splits started in the task are children of the currently running split</pre>
+ * <p/>
+ * Callback can be configured via Manager configuration facility:
+ * <pre>{@literal
+ * <callback class="org.javasimon.calltree.CallTreeCallback">
+ *     <set property="rootPattern" value="org.javasimon.web.*"/>
+ *     <set property="threshold" value="500"/>
+ *     <set property="maxDepth" value="16"/>
+ *     <set property="maxNodes" value="256"/>
+ * </callback>}</pre>
+ *
+ * @since 3.0
+ */
+public class CallTreeCallback extends CallbackSkeleton {
+	/**
+	 * Default maximal depth of the call tree.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 32;
+
+	/**
+	 * Default maximal number of distinct nodes in the call tree.
+	 */
+	public static final int DEFAULT_MAX_NODES = 512;
+
+	/**
+	 * Default maximal number of idle call trees kept for reuse.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 64;
+
+	private final ThreadLocal<CallStack> stacks = new ThreadLocal<CallStack>();
+
+	private volatile BlockingQueue<CallStack> pool = new ArrayBlockingQueue<CallStack>(DEFAULT_POOL_SIZE);
+
+	private boolean threadBound = true;
+
+	private long threshold;
+
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+
+	private int maxNodes = DEFAULT_MAX_NODES;
+
+	private SimonPattern rootPattern;
+
+	private CallTreeSink sink = new LoggingCallTreeSink();
+
+	/**
+	 * Adds the started split into the call tree of the current thread or starts the new tree.
+	 *
+	 * @param split started split
+	 */
+	@Override
+	public void stopwatchStart(Split split) {
+		if (!threadBound) {
+			return;
+		}
+		CallStack stack = stacks.get();
+		if (stack != null && stack.isActive()) {
+			stack.start(split);
+		} else if (rootPattern == null || rootPattern.matches(split.getStopwatch().getName())) {
+			stack = borrow();
+			stacks.set(stack);
+			stack.startRoot(split);
+		}
+	}
+
+	/**
+	 * Records the split time into the call tree of the current thread and reports the tree
+	 * if the root split is stopped and the tree is over the threshold.
+	 *
+	 * @param split stopped split
+	 */
+	@Override
+	public void stopwatchStop(Split split) {
+		if (!threadBound) {
+			return;
+		}
+		CallStack stack = stacks.get();
+		if (stack != null && stack.isActive() && stack.stop(split, split.runningFor())) {
+			// nothing is retained by the thread between trees
+			stacks.remove();
+			complete(stack.getTree(), split);
+			// shared tree may be still referenced by captured contexts, it cannot be reused
+			if (!stack.getTree().isShared()) {
+				pool.offer(stack);
+			}
+		}
+	}
+
+	/**
+	 * Starts the new call tree in the explicit mode - the returned root split is used to start nested
+	 * splits and no thread-local state is involved. See {@link CallTreeSplit} for more.
+	 *
+	 * @param stopwatch Stopwatch of the root split
+	 * @return root split of the new call tree
+	 */
+	public CallTreeSplit begin(Stopwatch stopwatch) {
+		Split split = stopwatch.start();
+		CallTree tree = new CallTree(maxDepth, maxNodes);
+		// explicit tree can be used from any thread
+		tree.share();
+		return new CallTreeSplit(this, tree, tree.root(stopwatch.getName()), null, 1, split);
+	}
+
+	/**
+	 * Reports the completed tree if its root is over the threshold.
+	 *
+	 * @param tree completed call tree
+	 * @param split stopped root split
+	 */
+	void complete(CallTree tree, Split split) {
+		if (tree.rootTotal() >= threshold) {
+			CallTreeNode root = tree.snapshot();
+			if (root != null && sink != null) {
+				sink.report(split, root);
+			}
+		}
+	}
+
+	private CallStack borrow() {
+		CallStack stack = pool.poll();
+		while (stack != null && !stack.getTree().hasLimits(maxDepth, maxNodes)) {
+			stack = pool.poll();
+		}
+		if (stack == null) {
+			stack = new CallStack(new CallTree(maxDepth, maxNodes));
+		}
+		return stack;
+	}
+
+	/**
+	 * Captures the current position in the call tree of this thread. Returned context can be restored
+	 * on another thread with {@link #restore(CallTreeContext)} - splits started there are then attached
+	 * under the split that is running now. Capturing only returns the reference to the current tree node,
+	 * the tree is marked as shared and its arena is not reused for the next tree on this thread.
+	 * Splits stopped after the root split of the originating thread is stopped are not reported.
+	 *
+	 * @return captured context or null if there is no call tree being built on this thread
+	 */
+	public CallTreeContext capture() {
+		CallStack stack = stacks.get();
+		if (stack == null || !stack.isActive()) {
+			return null;
+		}
+		CallTree.Node node = stack.current();
+		if (node != null) {
+			node.getTree().share();
+		}
+		return node;
+	}
+
+	/**
+	 * Restores the captured context on the current thread. Every call must be paired with {@link #release()}
+	 * in the finally block.
+	 *
+	 * @param context captured context
+	 * @throws IllegalArgumentException if the context is null
+	 */
+	public void restore(CallTreeContext context) {
+		if (context == null) {
+			throw new IllegalArgumentException("Context must not be null");
+		}
+		stacks.set(new CallStack((CallTree.Node) context, stacks.get()));
+	}
+
+	/**
+	 * Releases the context restored by {@link #restore(CallTreeContext)} and returns to the previous state
+	 * of the current thread.
+	 */
+	public void release() {
+		CallStack stack = stacks.get();
+		if (stack != null && stack.getPrevious() != null) {
+			stacks.set(stack.getPrevious());
+		} else {
+			stacks.remove();
+		}
+	}
+
+	/**
+	 * Detaches the call tree of the current thread whose root split is going to be stopped on another thread -
+	 * e.g. asynchronous HTTP request that was suspended by its dispatch. Splits still running on this thread
+	 * are discarded, the tree is marked as shared (captured contexts can still add splits into it) and the thread
+	 * is free to start a new tree. The root split must be stopped with {@link #stopDetached(CallTreeContext, Split)}
+	 * to report the tree.
+	 *
+	 * @return context of the detached tree or null if there is no call tree being built on this thread
+	 * (or the thread runs with the restored context)
+	 */
+	public CallTreeContext detach() {
+		CallStack stack = stacks.get();
+		if (stack == null || !stack.isActive() || stack.getPrevious() != null || stack.current() == null) {
+			return null;
+		}
+		stacks.remove();
+		CallTree tree = stack.getTree();
+		tree.share();
+		return tree.rootNode();
+	}
+
+	/**
+	 * Records the stopped root split of the detached tree and reports the tree if it is over the threshold.
+	 * Can be called from any thread.
+	 *
+	 * @param context context returned by {@link #detach()}
+	 * @param split stopped root split
+	 * @throws IllegalArgumentException if the context is null
+	 */
+	public void stopDetached(CallTreeContext context, Split split) {
+		if (context == null) {
+			throw new IllegalArgumentException("Context must not be null");
+		}
+		CallTree.Node root = (CallTree.Node) context;
+		root.getTree().record(root, split.runningFor());
+		complete(root.getTree(), split);
+	}
+
+	/**
+	 * Wraps the runnable so that it runs with the context captured at the time of wrapping.
+	 * If there is no call tree being built, the original runnable is returned.
+	 *
+	 * @param runnable wrapped runnable
+	 * @return runnable restoring the captured context
+	 */
+	public Runnable wrap(final Runnable runnable) {
+		final CallTreeContext context = capture();
+		if (context == null) {
+			return runnable;
+		}
+		return new Runnable() {
+			public void run() {
+				restore(context);
+				try {
+					runnable.run();
+				} finally {
+					release();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wraps the callable so that it runs with the context captured at the time of wrapping.
+	 * If there is no call tree being built, the original callable is returned.
+	 *
+	 * @param callable wrapped callable
+	 * @param <T> return type
+	 * @return callable restoring the captured context
+	 */
+	public <T> Callable<T> wrap(final Callable<T> callable) {
+		final CallTreeContext context = capture();
+		if (context == null) {
+			return callable;
+		}
+		return new Callable<T>() {
+			public T call() throws Exception {
+				restore(context);
+				try {
+					return callable.call();
+				} finally {
+					release();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wraps the executor so that every submitted task runs with the context captured in the submitting
+	 * thread. Wrapped executor can be used also for asynchronous stages of {@code CompletableFuture}.
+	 *
+	 * @param executor wrapped executor
+	 * @return executor propagating the call tree context
+	 */
+	public Executor wrap(final Executor executor) {
+		return new Executor() {
+			public void execute(Runnable command) {
+				executor.execute(wrap(command));
+			}
+		};
+	}
+
+	/**
+	 * Returns threshold for reporting of the call tree in nanoseconds.
+	 *
+	 * @return threshold in ns
+	 */
+	public long getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the threshold in milliseconds - only trees with the root split longer than this
+	 * are reported. Default threshold is 0, all trees are reported.
+	 *
+	 * @param threshold threshold in ms
+	 */
+	public void setThreshold(long threshold) {
+		this.threshold = threshold * SimonUtils.NANOS_IN_MILLIS;
+	}
+
+	/**
+	 * Sets the threshold in milliseconds - used by the configure facility to configure the callback.
+	 *
+	 * @param threshold threshold in ms as string
+	 */
+	public void setThreshold(String threshold) {
+		setThreshold(parse(threshold));
+	}
+
+	/**
+	 * Returns maximal depth of the call tree.
+	 *
+	 * @return maximal depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Sets maximal depth of the call tree. Splits nested deeper are not recorded.
+	 *
+	 * @param maxDepth maximal depth
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Max depth must be positive: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets maximal depth of the call tree - used by the configure facility to configure the callback.
+	 *
+	 * @param maxDepth maximal depth as string
+	 */
+	public void setMaxDepth(String maxDepth) {
+		setMaxDepth((int) parse(maxDepth));
+	}
+
+	/**
+	 * Returns maximal number of distinct nodes in the call tree.
+	 *
+	 * @return maximal node count
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Sets maximal number of distinct nodes in the call tree. Splits that would need another node are not recorded.
+	 *
+	 * @param maxNodes maximal node count
+	 */
+	public void setMaxNodes(int maxNodes) {
+		if (maxNodes < 1) {
+			throw new IllegalArgumentException("Max nodes must be positive: " + maxNodes);
+		}
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * Sets maximal number of distinct nodes in the call tree - used by the configure facility to configure the callback.
+	 *
+	 * @param maxNodes maximal node count as string
+	 */
+	public void setMaxNodes(String maxNodes) {
+		setMaxNodes((int) parse(maxNodes));
+	}
+
+	/**
+	 * Sets the pattern of Stopwatches that can start the new call tree. If no pattern is set any split
+	 * started on the thread without running tree starts the new tree.
+	 *
+	 * @param rootPattern Simon pattern or null
+	 */
+	public void setRootPattern(String rootPattern) {
+		this.rootPattern = rootPattern != null ? new SimonPattern(rootPattern) : null;
+	}
+
+	/**
+	 * Sets maximal number of idle call trees kept for reuse. Trees are borrowed from the pool when the root
+	 * split is started and returned when it is stopped, so the pool should cover the usual number
+	 * of concurrently built trees. Currently pooled trees are discarded.
+	 *
+	 * @param poolSize maximal number of pooled trees
+	 */
+	public void setPoolSize(int poolSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+		}
+		pool = new ArrayBlockingQueue<CallStack>(poolSize);
+	}
+
+	/**
+	 * Sets maximal number of idle call trees kept for reuse - used by the configure facility to configure the callback.
+	 *
+	 * @param poolSize maximal number of pooled trees as string
+	 */
+	public void setPoolSize(String poolSize) {
+		setPoolSize((int) parse(poolSize));
+	}
+
+	/**
+	 * Returns true if the callback tracks splits started on the thread (default), false if only
+	 * the explicit mode via {@link #begin(org.javasimon.Stopwatch)} is used.
+	 *
+	 * @return true if splits are tracked per thread
+	 */
+	public boolean isThreadBound() {
+		return threadBound;
+	}
+
+	/**
+	 * Sets whether the callback tracks splits started on the thread. If set to false the callback ignores
+	 * all stopwatch events and does not touch any thread-local state - only the explicit mode via
+	 * {@link #begin(org.javasimon.Stopwatch)} is used then. This is suitable for applications with huge number
+	 * of (virtual) threads where the request context is passed explicitly.
+	 *
+	 * @param threadBound true if splits should be tracked per thread
+	 */
+	public void setThreadBound(boolean threadBound) {
+		this.threadBound = threadBound;
+	}
+
+	/**
+	 * Sets whether the callback tracks splits started on the thread - used by the configure facility to
+	 * configure the callback.
+	 *
+	 * @param threadBound true or false as string
+	 */
+	public void setThreadBound(String threadBound) {
+		setThreadBound(Boolean.parseBoolean(threadBound.trim()));
+	}
+
+	/**
+	 * Returns the sink that receives reported call trees.
+	 *
+	 * @return call tree sink
+	 */
+	public CallTreeSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * Sets the sink that receives reported call trees.
+	 *
+	 * @param sink call tree sink
+	 */
+	public void setSink(CallTreeSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Sets the sink by its class name - used by the configure facility to configure the callback.
+	 *
+	 * @param sinkClass class name of the sink with public no-arg constructor
+	 */
+	public void setSink(String sinkClass) {
+		try {
+			this.sink = (CallTreeSink) Class.forName(sinkClass).newInstance();
+		} catch (InstantiationException e) {
+			throw new SimonException(e);
+		} catch (IllegalAccessException e) {
+			throw new SimonException(e);
+		} catch (ClassNotFoundException e) {
+			throw new SimonException(e);
+		} catch (ClassCastException e) {
+			throw new SimonException(e);
+		}
+	}
+
+	private long parse(String value) {
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new SimonException(e);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package org.javasimon.calltree;
+
+/**
+ * Captured position in the call tree - obtained by {@link CallTreeCallback#capture()} on the thread
+ * that builds the tree and restored by {@link CallTreeCallback#restore(CallTreeContext)} on another thread,
+ * so the splits started there are attached under the captured split of the originating request.
+ * Context is just a reference to the tree node, capturing it does not copy anything.
+ *
+ * @since 3.0
+ */
+public abstract class CallTreeContext {
+	/**
+	 * Context can be created only by the call tree itself.
+	 */
+	CallTreeContext() {
+	}
+}
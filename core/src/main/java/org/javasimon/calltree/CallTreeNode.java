@@ -0,0 +1,145 @@
+package org.javasimon.calltree;
+
+import org.javasimon.utils.SimonUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One node of the reported call tree. Node represents all splits of the same Stopwatch that
+ * were started under the same parent node - e.g. 200 identical SQL statements executed from
+ * one service method are represented by a single node with count 200 and their total time.
+ * <p/>
+ * Nodes are created only when the tree is reported (see {@link CallTreeSink}), they are detached
+ * from the arena used during the measuring and can be safely kept or passed to other threads.
+ *
+ * @since 3.0
+ */
+public final class CallTreeNode {
+	private final String name;
+	private final long count;
+	private final long total;
+	private final long max;
+	private final long dropped;
+	private final List<CallTreeNode> children = new ArrayList<CallTreeNode>();
+
+	/**
+	 * Creates the node - used only internally when the arena is snapshotted.
+	 *
+	 * @param name name of the Stopwatch
+	 * @param count number of splits aggregated in this node
+	 * @param total total time of all splits in this node in ns
+	 * @param max maximal split time in ns
+	 * @param dropped number of child splits not recorded because of the tree limits
+	 */
+	CallTreeNode(String name, long count, long total, long max, long dropped) {
+		this.name = name;
+		this.count = count;
+		this.total = total;
+		this.max = max;
+		this.dropped = dropped;
+	}
+
+	void addChild(CallTreeNode child) {
+		children.add(child);
+	}
+
+	/**
+	 * Returns the name of the Stopwatch this node was created for.
+	 *
+	 * @return name of the Stopwatch
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns number of splits aggregated in this node.
+	 *
+	 * @return number of splits
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns total time of all splits aggregated in this node in nanoseconds.
+	 *
+	 * @return total time in ns
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns maximal split time in this node in nanoseconds.
+	 *
+	 * @return max split time in ns
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns time of this node not covered by any of its children - "self time" in nanoseconds.
+	 *
+	 * @return self time in ns
+	 */
+	public long getSelf() {
+		long self = total;
+		for (CallTreeNode child : children) {
+			self -= child.total;
+		}
+		return self > 0 ? self : 0;
+	}
+
+	/**
+	 * Returns number of nested splits that were not recorded under this node because the maximal depth
+	 * or the maximal node count of the tree was reached.
+	 *
+	 * @return number of dropped nested splits
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Returns unmodifiable list of child nodes in the order they were first started.
+	 *
+	 * @return child nodes
+	 */
+	public List<CallTreeNode> getChildren() {
+		return Collections.unmodifiableList(children);
+	}
+
+	/**
+	 * Returns the whole subtree as a multi-line human readable string.
+	 *
+	 * @return subtree as string
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		print(0, sb);
+		return sb.toString();
+	}
+
+	private void print(int level, StringBuilder sb) {
+		for (int i = 0; i < level; i++) {
+			sb.append("  ");
+		}
+		sb.append(name)
+			.append(": total ").append(SimonUtils.presentNanoTime(total))
+			.append(", count ").append(count)
+			.append(", max ").append(SimonUtils.presentNanoTime(max))
+			.append(", self ").append(SimonUtils.presentNanoTime(getSelf()));
+		if (dropped > 0) {
+			sb.append(", dropped ").append(dropped);
+		}
+		sb.append('\n');
+		for (CallTreeNode child : children) {
+			child.print(level + 1, sb);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+
+/**
+ * Receives call trees reported by the {@link CallTreeCallback} - that is trees whose root split
+ * was longer than the configured threshold. Sink is called on the thread that stopped the root split,
+ * implementation should not block for a long time and should hand the work over to another thread
+ * if the processing is expensive. Reported nodes are detached from the callback and can be kept.
+ *
+ * @since 3.0
+ */
+public interface CallTreeSink {
+	/**
+	 * Reports the call tree.
+	 *
+	 * @param split stopped root split of the tree
+	 * @param root root node of the call tree
+	 */
+	void report(Split split, CallTreeNode root);
+}
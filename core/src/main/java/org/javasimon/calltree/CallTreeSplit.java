@@ -0,0 +1,107 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+
+/**
+ * Split that is explicitly placed in the call tree - explicit alternative to the thread-bound tracking
+ * of the {@link CallTreeCallback} that does not use any thread-local state. Root is obtained from
+ * {@link CallTreeCallback#begin(org.javasimon.Stopwatch)}, nested splits are started from their parent
+ * and the object can be passed freely between threads (e.g. along with the request through asynchronous
+ * stages or virtual threads):
+ * <pre>
+ * CallTreeSplit request = callTreeCallback.begin(SimonManager.getStopwatch("org.myapp.request"));
+ * CallTreeSplit sql = request.start(SimonManager.getStopwatch("org.myapp.sql.select"));
+ * // ... measured code
+ * sql.stop();
+ * request.stop(); // reports the tree if it is over the threshold</pre>
+ * Memory needed for the request is just the tree with nodes that were actually used and one small object
+ * per running split. Callback used for the explicit mode should be set as not thread-bound
+ * (see {@link CallTreeCallback#setThreadBound(boolean)}), otherwise splits are also recorded in the
+ * thread-bound tree if it is being built on the current thread.
+ *
+ * @since 3.0
+ */
+public final class CallTreeSplit {
+	private final CallTreeCallback callback;
+	private final CallTree tree;
+	private final CallTree.Node node;
+	private final CallTreeSplit parent;
+	private final int depth;
+	private final Split split;
+
+	CallTreeSplit(CallTreeCallback callback, CallTree tree, CallTree.Node node, CallTreeSplit parent, int depth, Split split) {
+		this.callback = callback;
+		this.tree = tree;
+		this.node = node;
+		this.parent = parent;
+		this.depth = depth;
+		this.split = split;
+	}
+
+	/**
+	 * Starts the nested split of the specified Stopwatch under this split. Splits of the same Stopwatch
+	 * started under the same parent are aggregated into one node of the tree.
+	 *
+	 * @param stopwatch Stopwatch of the nested split
+	 * @return nested call tree split
+	 */
+	public CallTreeSplit start(Stopwatch stopwatch) {
+		Split childSplit = stopwatch.start();
+		CallTree.Node child = null;
+		if (depth < tree.getMaxDepth() && node != null) {
+			child = tree.child(node, stopwatch.getName());
+		} else {
+			CallTree.Node ancestor = recordedNode();
+			if (ancestor != null) {
+				tree.drop(ancestor);
+			}
+		}
+		return new CallTreeSplit(callback, tree, child, this, depth + 1, childSplit);
+	}
+
+	/**
+	 * Stops the split and records its time into the tree. If this is the root split the tree is complete
+	 * and it is reported if it is over the threshold of the callback.
+	 *
+	 * @return split time in ns
+	 */
+	public long stop() {
+		long ns = split.stop();
+		if (ns != 0 && node != null) {
+			tree.record(node, ns);
+		}
+		if (parent == null) {
+			callback.complete(tree, split);
+		}
+		return ns;
+	}
+
+	/**
+	 * Returns the underlying split.
+	 *
+	 * @return underlying split
+	 */
+	public Split getSplit() {
+		return split;
+	}
+
+	/**
+	 * Returns the context of this split that can be restored with {@link CallTreeCallback#restore(CallTreeContext)}
+	 * on a thread where thread-bound code (e.g. JDBC proxy driver) should add its splits under this split.
+	 *
+	 * @return context of this split or null if the split was not recorded because of the tree limits
+	 */
+	public CallTreeContext getContext() {
+		return recordedNode();
+	}
+
+	private CallTree.Node recordedNode() {
+		for (CallTreeSplit s = this; s != null; s = s.parent) {
+			if (s.node != null) {
+				return s.node;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,47 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Call tree sink that logs reported trees via JDK logging API. This is the default sink
+ * of the {@link CallTreeCallback}.
+ *
+ * @since 3.0
+ */
+public final class LoggingCallTreeSink implements CallTreeSink {
+	private Logger logger = Logger.getLogger("org.javasimon");
+	private Level level = Level.WARNING;
+
+	/**
+	 * Logs the call tree on a specified log level.
+	 *
+	 * @param split stopped root split
+	 * @param root root node of the call tree
+	 */
+	public void report(Split split, CallTreeNode root) {
+		if (logger.isLoggable(level)) {
+			logger.log(level, "SIMON CALL TREE: " + split + "\n" + root);
+		}
+	}
+
+	/**
+	 * Sets the logger that will be used to log call trees.
+	 *
+	 * @param logger new specified logger
+	 */
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * Sets the level that will be used to log call trees.
+	 *
+	 * @param level log level used to log call trees
+	 */
+	public void setLevel(Level level) {
+		this.level = level;
+	}
+}
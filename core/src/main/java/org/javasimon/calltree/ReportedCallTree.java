@@ -0,0 +1,53 @@
+package org.javasimon.calltree;
+
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Call tree kept by the {@link RingBufferCallTreeSink} together with the time when it was reported.
+ *
+ * @since 3.0
+ */
+public final class ReportedCallTree {
+	private final long timestamp;
+
+	private final CallTreeNode root;
+
+	/**
+	 * Creates the reported call tree.
+	 *
+	 * @param timestamp time of the report in ms
+	 * @param root root node of the call tree
+	 */
+	ReportedCallTree(long timestamp, CallTreeNode root) {
+		this.timestamp = timestamp;
+		this.root = root;
+	}
+
+	/**
+	 * Returns the time when the tree was reported.
+	 *
+	 * @return timestamp in ms
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the root node of the call tree.
+	 *
+	 * @return root node
+	 */
+	public CallTreeNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the report time and the whole call tree as a multi-line human readable string.
+	 *
+	 * @return reported tree as string
+	 */
+	@Override
+	public String toString() {
+		return SimonUtils.presentTimestamp(timestamp) + "\n" + root;
+	}
+}
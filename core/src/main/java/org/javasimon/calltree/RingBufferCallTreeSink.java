@@ -0,0 +1,103 @@
+package org.javasimon.calltree;
+
+import org.javasimon.Split;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Call tree sink keeping the last reported call trees in memory, e.g. to show recent slow requests
+ * in the console. Memory is bounded - the buffer has fixed capacity and the oldest trees are overwritten,
+ * every tree is bounded by the limits of the {@link CallTreeCallback}.
+ *
+ * @since 3.0
+ */
+public final class RingBufferCallTreeSink implements CallTreeSink {
+	/**
+	 * Default number of kept call trees.
+	 */
+	public static final int DEFAULT_CAPACITY = 100;
+
+	private final ReportedCallTree[] buffer;
+
+	private int next;
+
+	private long reported;
+
+	/**
+	 * Creates the sink with the default capacity.
+	 */
+	public RingBufferCallTreeSink() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates the sink with the specified capacity.
+	 *
+	 * @param capacity maximal number of kept call trees
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public RingBufferCallTreeSink(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		buffer = new ReportedCallTree[capacity];
+	}
+
+	/**
+	 * Stores the call tree, the oldest kept tree is dropped if the buffer is full.
+	 *
+	 * @param split stopped root split
+	 * @param root root node of the call tree
+	 */
+	public synchronized void report(Split split, CallTreeNode root) {
+		buffer[next] = new ReportedCallTree(System.currentTimeMillis(), root);
+		next = (next + 1) % buffer.length;
+		reported++;
+	}
+
+	/**
+	 * Returns kept call trees, the most recent first.
+	 *
+	 * @return list of kept call trees
+	 */
+	public synchronized List<ReportedCallTree> getReports() {
+		List<ReportedCallTree> reports = new ArrayList<ReportedCallTree>(buffer.length);
+		for (int i = 1; i <= buffer.length; i++) {
+			ReportedCallTree report = buffer[(next - i + buffer.length) % buffer.length];
+			if (report == null) {
+				break;
+			}
+			reports.add(report);
+		}
+		return reports;
+	}
+
+	/**
+	 * Returns the total number of reported call trees including the overwritten ones.
+	 *
+	 * @return number of reported call trees
+	 */
+	public synchronized long getReported() {
+		return reported;
+	}
+
+	/**
+	 * Returns the capacity of the buffer.
+	 *
+	 * @return maximal number of kept call trees
+	 */
+	public int getCapacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Removes all kept call trees.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < buffer.length; i++) {
+			buffer[i] = null;
+		}
+		next = 0;
+	}
+}
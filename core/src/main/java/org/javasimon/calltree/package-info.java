@@ -0,0 +1,11 @@
+/**
+ * Call tree profiling - {@link org.javasimon.calltree.CallTreeCallback} builds the tree of nested splits
+ * for each thread (e.g. SQL statements under the service method under the HTTP request) with repeated
+ * splits aggregated into single nodes. Trees over the threshold are reported to the pluggable
+ * {@link org.javasimon.calltree.CallTreeSink} as detached {@link org.javasimon.calltree.CallTreeNode} structures -
+ * trees can be logged, kept in the bounded {@link org.javasimon.calltree.RingBufferCallTreeSink} or handed over
+ * to any sink on a background thread by {@link org.javasimon.calltree.AsyncCallTreeSink}.
+ * Work executed on other threads can be attached to the originating tree via captured
+ * {@link org.javasimon.calltree.CallTreeContext}.
+ */
+package org.javasimon.calltree;
@@ -0,0 +1,36 @@
+package org.javasimon.clock;
+
+/**
+ * Source of the time for Simons. Nanosecond time is used for split durations and it should be precise,
+ * millisecond timestamps are used for first/last usage, min/max timestamps and similar values where
+ * some imprecision is acceptable. Clock is set per {@link org.javasimon.Manager}. Timestamps returned by
+ * {@link #milliTime()} and {@link #millisForNano(long)} must be in the same time base, because they are
+ * compared with each other (e.g. idle times of Simons, changes since the last refresh).
+ *
+ * @since 3.0
+ */
+public interface Clock {
+	/**
+	 * Returns current value of the nanosecond timer - only differences of these values are meaningful
+	 * (like {@link System#nanoTime()}).
+	 *
+	 * @return current nano-time
+	 */
+	long nanoTime();
+
+	/**
+	 * Returns current ms timestamp (like {@link System#currentTimeMillis()}).
+	 *
+	 * @return current ms timestamp
+	 */
+	long milliTime();
+
+	/**
+	 * Converts value of the nanosecond timer obtained from {@link #nanoTime()} to the ms timestamp. This allows
+	 * to get the timestamp for the event without reading the time again.
+	 *
+	 * @param nanos nano-time obtained from this clock
+	 * @return ms timestamp
+	 */
+	long millisForNano(long nanos);
+}
@@ -0,0 +1,106 @@
+package org.javasimon.clock;
+
+/**
+ * Clock with millisecond timestamps updated by the background daemon thread - reading the timestamp
+ * is just a read of the volatile field, which helps on hosts where reading the system time is expensive
+ * (some virtualized environments). Precision of the timestamps is given by the tick period.
+ * Nano-time is still read from {@link System#nanoTime()} because split durations must be precise.
+ * <p/>
+ * Clock is used like this:
+ * <pre>
+ * SimonManager.manager().setClock(new CoarseClock());</pre>
+ * When the clock is not needed anymore it should be stopped with {@link #stop()}.
+ *
+ * @since 3.0
+ */
+public final class CoarseClock implements Clock {
+	/**
+	 * Default tick period in ms.
+	 */
+	public static final long DEFAULT_TICK_MILLIS = 10;
+
+	private final long tickMillis;
+
+	private volatile long millis = System.currentTimeMillis();
+
+	private final Thread ticker;
+
+	/**
+	 * Creates and starts the coarse clock with the default tick period.
+	 */
+	public CoarseClock() {
+		this(DEFAULT_TICK_MILLIS);
+	}
+
+	/**
+	 * Creates and starts the coarse clock with the specified tick period.
+	 *
+	 * @param tickMillis tick period in ms
+	 */
+	public CoarseClock(long tickMillis) {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("Tick period must be positive: " + tickMillis);
+		}
+		this.tickMillis = tickMillis;
+		ticker = new Thread(new Runnable() {
+			public void run() {
+				tick();
+			}
+		}, "javasimon-coarse-clock");
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+
+	private void tick() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Thread.sleep(tickMillis);
+				millis = System.currentTimeMillis();
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		}
+	}
+
+	/**
+	 * Returns tick period of the clock.
+	 *
+	 * @return tick period in ms
+	 */
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Stops the background thread, timestamp is not updated anymore.
+	 */
+	public void stop() {
+		ticker.interrupt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Returns last ticked timestamp.
+	 *
+	 * @return ms timestamp with the precision of the tick period
+	 */
+	public long milliTime() {
+		return millis;
+	}
+
+	/**
+	 * Returns last ticked timestamp, nano-time is ignored.
+	 *
+	 * @param nanos ignored
+	 * @return ms timestamp with the precision of the tick period
+	 */
+	public long millisForNano(long nanos) {
+		return millis;
+	}
+}
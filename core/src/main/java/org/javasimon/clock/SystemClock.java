@@ -0,0 +1,51 @@
+package org.javasimon.clock;
+
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Default clock based on {@link System#nanoTime()}. All ms timestamps are computed from the difference
+ * to the nano-time when the clock was initialized (with {@link System#currentTimeMillis()} read only then),
+ * so the Stopwatch does not read the system time again for its usage timestamps and all Simons of the manager
+ * share one time base. Timestamps are not adjusted when the wall-clock time changes (NTP, manual change) -
+ * {@link WallClock} can be used if this is required.
+ *
+ * @since 3.0
+ */
+public final class SystemClock implements Clock {
+	/**
+	 * Shared instance of the system clock.
+	 */
+	public static final SystemClock INSTANCE = new SystemClock();
+
+	private final long initNanos;
+
+	private final long initMillis;
+
+	private SystemClock() {
+		initMillis = System.currentTimeMillis();
+		initNanos = System.nanoTime();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Returns current ms timestamp derived from the nano-time.
+	 *
+	 * @return current ms timestamp
+	 */
+	public long milliTime() {
+		return millisForNano(System.nanoTime());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long millisForNano(long nanos) {
+		return initMillis + (nanos - initNanos) / SimonUtils.NANOS_IN_MILLIS;
+	}
+}
@@ -0,0 +1,45 @@
+package org.javasimon.clock;
+
+/**
+ * Clock with wall-clock timestamps for all events - even the timestamps for nano-times are read
+ * from {@link System#currentTimeMillis()}, so they follow wall-clock changes (NTP, manual change)
+ * at the cost of one more time read on every split start and stop. Clock is not used by default,
+ * it must be set explicitly:
+ * <pre>
+ * SimonManager.manager().setClock(WallClock.INSTANCE);</pre>
+ *
+ * @since 3.0
+ */
+public final class WallClock implements Clock {
+	/**
+	 * Shared instance of the wall clock.
+	 */
+	public static final WallClock INSTANCE = new WallClock();
+
+	private WallClock() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long milliTime() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns current ms timestamp, nano-time is ignored.
+	 *
+	 * @param nanos ignored
+	 * @return current ms timestamp
+	 */
+	public long millisForNano(long nanos) {
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * Clock sources used by Simons - {@link org.javasimon.clock.Clock} provides precise nanosecond time
+ * for split durations and millisecond timestamps for usage statistics. {@link org.javasimon.clock.SystemClock}
+ * is used by default, {@link org.javasimon.clock.CoarseClock} avoids reading the system time for timestamps
+ * on every Simon event and {@link org.javasimon.clock.WallClock} reads wall-clock time for every Stopwatch timestamp.
+ */
+package org.javasimon.clock;
@@ -38,13 +38,14 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 	 * @param maxActive maximum paralel measures
 	 * @param maxActiveTimestamp time when maximum paralel measures happend
 	 * @param last last split value in ns
+	 * @param sampling sampling rate of the stopwatch
 	 */
 	@ConstructorProperties({"mean", "standardDeviation", "variance", "varianceN", "note", "firstUsage", "lastUsage",
 		"lastReset", "total", "counter", "min", "max", "minTimestamp", "maxTimestamp", "active", "maxActive",
-		"maxActiveTimestamp", "last"})
+		"maxActiveTimestamp", "last", "sampling"})
 	public StopwatchSample(double mean, double stdDev, double var, double varN, String note, long firstUsage,
 		long lastUsage, long lastReset, long total, long counter, long min, long max, long minTimestamp,
-		long maxTimestamp, long active, long maxActive, long maxActiveTimestamp, long last) {
+		long maxTimestamp, long active, long maxActive, long maxActiveTimestamp, long last, int sampling) {
 		setMean(mean);
 		setStandardDeviation(stdDev);
 		setVariance(var);
@@ -64,6 +65,7 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setMaxActive(maxActive);
 		setMaxActiveTimestamp(maxActiveTimestamp);
 		setLast(last);
+		setSampling(sampling);
 	}
 
 	/**
@@ -92,5 +94,6 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setMaxActive(s.getMaxActive());
 		setMaxActiveTimestamp(s.getMaxActiveTimestamp());
 		setLast(s.getLast());
+		setSampling(s.getSampling());
 	}
 }
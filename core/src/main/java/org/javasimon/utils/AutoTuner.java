@@ -0,0 +1,309 @@
+package org.javasimon.utils;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Simon;
+import org.javasimon.SimonState;
+import org.javasimon.Stopwatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AutoTuner finds Stopwatches whose measured splits are so short that the instrumentation itself
+ * is a substantial part of them and disables them or switches them to sampling. Cost of one start/stop
+ * pair is calibrated when the tuner is created. Every tuning pass compares the mean split of each Stopwatch
+ * since the previous pass with the calibrated cost - if the mean is below {@link #getCostMultiple()} times
+ * the cost and the Stopwatch was called at least {@link #getMinRate()} times per second, the Stopwatch is
+ * disabled or its sampling is set so the amortized overhead is within the limit. Every action is reported
+ * with {@link Manager#message(String)}.
+ * <p/>
+ * Only enabled Stopwatches with inherited state and without sampling are tuned - Simons with explicitly
+ * set state or sampling are left as they are. Tuner is used like this:
+ * <pre>
+ * AutoTuner tuner = new AutoTuner(SimonManager.manager());
+ * tuner.setAction(AutoTuner.Action.SAMPLE);
+ * tuner.start(60000);
+ * ...
+ * tuner.stop();</pre>
+ * Passes can be also executed explicitly with {@link #tune()}.
+ *
+ * @since 3.0
+ */
+public final class AutoTuner {
+	/**
+	 * Default cost multiple - Stopwatches with mean split below ten times the instrumentation cost are tuned.
+	 */
+	public static final double DEFAULT_COST_MULTIPLE = 10;
+
+	/**
+	 * Default minimal call rate (calls per second) of the tuned Stopwatch.
+	 */
+	public static final double DEFAULT_MIN_RATE = 100;
+
+	/**
+	 * Default maximal sampling rate set by the tuner.
+	 */
+	public static final int DEFAULT_MAX_SAMPLING = 1000;
+
+	private static final int CALIBRATION_WARMUP = 200000;
+	private static final int CALIBRATION_ROUNDS = 5;
+	private static final int CALIBRATION_LOOP = 100000;
+
+	/**
+	 * What the tuner does with the Stopwatch whose overhead dominates.
+	 */
+	public enum Action {
+		/**
+		 * Stopwatch is disabled.
+		 */
+		DISABLE,
+
+		/**
+		 * Sampling of the Stopwatch is set so that the amortized overhead is within the limit.
+		 */
+		SAMPLE
+	}
+
+	private final Manager manager;
+
+	private final long cost;
+
+	private volatile double costMultiple = DEFAULT_COST_MULTIPLE;
+
+	private volatile double minRate = DEFAULT_MIN_RATE;
+
+	private volatile int maxSampling = DEFAULT_MAX_SAMPLING;
+
+	private volatile Action action = Action.DISABLE;
+
+	/**
+	 * Counter and total of every Stopwatch from the previous pass, null before the first pass.
+	 */
+	private Map<String, long[]> previous;
+
+	private long previousPass;
+
+	private Thread thread;
+
+	/**
+	 * Creates the tuner for the manager and calibrates the instrumentation cost.
+	 *
+	 * @param manager tuned manager
+	 */
+	public AutoTuner(Manager manager) {
+		this(manager, calibrate());
+	}
+
+	/**
+	 * Creates the tuner for the manager with the known instrumentation cost.
+	 *
+	 * @param manager tuned manager
+	 * @param cost cost of one start/stop pair in ns
+	 */
+	public AutoTuner(Manager manager, long cost) {
+		this.manager = manager;
+		this.cost = cost;
+	}
+
+	/**
+	 * Measures the cost of one start/stop pair of the enabled Stopwatch in ns - minimum of the several rounds
+	 * after the warm-up. Separate manager is used so the callbacks of the application are not involved.
+	 *
+	 * @return cost of one start/stop pair in ns (at least 1)
+	 */
+	public static long calibrate() {
+		Stopwatch stopwatch = new EnabledManager().getStopwatch("org.javasimon.utils.AutoTuner.calibration");
+		for (int i = 0; i < CALIBRATION_WARMUP; i++) {
+			stopwatch.start().stop();
+		}
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+			long ns = System.nanoTime();
+			for (int i = 0; i < CALIBRATION_LOOP; i++) {
+				stopwatch.start().stop();
+			}
+			best = Math.min(best, (System.nanoTime() - ns) / CALIBRATION_LOOP);
+		}
+		return Math.max(best, 1);
+	}
+
+	/**
+	 * Returns the calibrated cost of one start/stop pair.
+	 *
+	 * @return cost in ns
+	 */
+	public long getCost() {
+		return cost;
+	}
+
+	/**
+	 * Returns the cost multiple - Stopwatches with mean split below this multiple of the cost are tuned.
+	 *
+	 * @return cost multiple
+	 */
+	public double getCostMultiple() {
+		return costMultiple;
+	}
+
+	/**
+	 * Sets the cost multiple.
+	 *
+	 * @param costMultiple cost multiple
+	 */
+	public void setCostMultiple(double costMultiple) {
+		this.costMultiple = costMultiple;
+	}
+
+	/**
+	 * Returns minimal call rate (calls per second) of the tuned Stopwatch - rarely used Stopwatches do not matter.
+	 *
+	 * @return minimal call rate
+	 */
+	public double getMinRate() {
+		return minRate;
+	}
+
+	/**
+	 * Sets the minimal call rate.
+	 *
+	 * @param minRate minimal calls per second
+	 */
+	public void setMinRate(double minRate) {
+		this.minRate = minRate;
+	}
+
+	/**
+	 * Returns the maximal sampling rate set by the {@link Action#SAMPLE} action.
+	 *
+	 * @return maximal sampling rate
+	 */
+	public int getMaxSampling() {
+		return maxSampling;
+	}
+
+	/**
+	 * Sets the maximal sampling rate.
+	 *
+	 * @param maxSampling maximal sampling rate
+	 */
+	public void setMaxSampling(int maxSampling) {
+		if (maxSampling < 1) {
+			throw new IllegalArgumentException("Sampling must be positive: " + maxSampling);
+		}
+		this.maxSampling = maxSampling;
+	}
+
+	/**
+	 * Returns the action executed on the Stopwatch whose overhead dominates.
+	 *
+	 * @return tuning action
+	 */
+	public Action getAction() {
+		return action;
+	}
+
+	/**
+	 * Sets the action executed on the Stopwatch whose overhead dominates.
+	 *
+	 * @param action tuning action
+	 */
+	public void setAction(Action action) {
+		this.action = action;
+	}
+
+	/**
+	 * Starts the background daemon thread executing the tuning pass periodically.
+	 *
+	 * @param periodMillis period of the tuning passes in ms
+	 */
+	public synchronized void start(final long periodMillis) {
+		if (periodMillis < 1) {
+			throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+		}
+		stop();
+		thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						tune();
+						Thread.sleep(periodMillis);
+					}
+				} catch (InterruptedException e) {
+					// stopped
+				}
+			}
+		}, "javasimon-auto-tuner");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the background thread if it is running.
+	 */
+	public synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	/**
+	 * Executes one tuning pass. Mean and call rate are computed from the splits since the previous pass,
+	 * hence the first pass only records the current state. Stopwatches reset since the previous pass are not
+	 * tuned in this pass, their current state is recorded as a new baseline.
+	 *
+	 * @return number of tuned Stopwatches
+	 */
+	public synchronized int tune() {
+		long now = manager.clock().milliTime();
+		double seconds = (now - previousPass) / 1000d;
+		Map<String, long[]> current = new HashMap<String, long[]>();
+
+		int tuned = 0;
+		for (String name : manager.simonNames()) {
+			Simon simon = manager.getSimon(name);
+			if (!(simon instanceof Stopwatch)) {
+				continue;
+			}
+			Stopwatch stopwatch = (Stopwatch) simon;
+			long counter = stopwatch.getCounter();
+			long total = stopwatch.getTotal();
+			current.put(name, new long[] {counter, total});
+			long[] last = previous != null ? previous.get(name) : null;
+			// Stopwatch reset since the previous pass has no valid delta - current state is just the new baseline
+			if (last == null || seconds <= 0 || stopwatch.getLastReset() >= previousPass
+				|| counter <= last[0] || total < last[1])
+			{
+				continue;
+			}
+			if (!stopwatch.isEnabled() || stopwatch.getState() != SimonState.INHERIT || stopwatch.getSampling() != 1) {
+				continue;
+			}
+
+			long calls = counter - last[0];
+			double mean = (double) (total - last[1]) / calls;
+			double rate = calls / seconds;
+			if (rate >= minRate && mean < costMultiple * cost) {
+				tune(stopwatch, mean, rate);
+				tuned++;
+			}
+		}
+		previous = current;
+		previousPass = now;
+		return tuned;
+	}
+
+	private void tune(Stopwatch stopwatch, double mean, double rate) {
+		String reason = ": mean " + SimonUtils.presentNanoTime((long) mean) + " < " + costMultiple + " x instrumentation cost "
+			+ SimonUtils.presentNanoTime(cost) + ", " + (long) rate + " calls/s";
+		if (action == Action.DISABLE) {
+			stopwatch.setState(SimonState.DISABLED, false);
+			manager.message("Auto-tuner disabled Stopwatch " + stopwatch.getName() + reason);
+		} else {
+			int sampling = (int) Math.min(maxSampling, Math.ceil(costMultiple * cost / Math.max(mean, 1)));
+			stopwatch.setSampling(Math.max(sampling, 2));
+			manager.message("Auto-tuner set sampling 1/" + stopwatch.getSampling() + " for Stopwatch " + stopwatch.getName() + reason);
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package org.javasimon.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the caller of the name generating methods and caches generated names per call-site. Stack is walked
+ * lazily with {@code java.lang.StackWalker} (if available at runtime, looked up reflectively so the library still
+ * runs on older JVMs) and only up to {@link #MAX_DEPTH} frames are examined - no full stack trace array is built.
+ * Without the stack walker {@link Thread#getStackTrace()} is used. Frames of the name generating classes are
+ * skipped, the first frame after them is the caller.
+ * <p/>
+ * Name prefixes are cached by the caller class and method (if included), so the same call-site without suffix
+ * returns the same String instance every time - its hash code is already computed when it is used as a key in
+ * the manager. Suffix is appended to the cached prefix and it is not cached, because it may be dynamic and
+ * the cache would grow without limit.
+ *
+ * @since 3.0
+ */
+final class CallerResolver {
+	/**
+	 * Maximal number of frames examined by the stack walker.
+	 */
+	static final int MAX_DEPTH = 16;
+
+	private static final MethodHandle WALK;
+	private static final MethodHandle CLASS_NAME;
+	private static final MethodHandle METHOD_NAME;
+
+	private static final Function<Stream<?>, Object> CALLER_FINDER = new Function<Stream<?>, Object>() {
+		public Object apply(Stream<?> frames) {
+			Iterator<?> iterator = frames.limit(MAX_DEPTH).iterator();
+			boolean internal = false;
+			try {
+				while (iterator.hasNext()) {
+					Object frame = iterator.next();
+					String className = (String) CLASS_NAME.invokeExact(frame);
+					if (isInternal(className)) {
+						internal = true;
+					} else if (internal) {
+						return new CallSite(className, (String) METHOD_NAME.invokeExact(frame));
+					}
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+			return null;
+		}
+	};
+
+	private static final ConcurrentMap<NameKey, String> NAMES = new ConcurrentHashMap<NameKey, String>();
+
+	static {
+		MethodHandle walk = null;
+		MethodHandle className = null;
+		MethodHandle methodName = null;
+		try {
+			Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+			Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+			// walk is caller-sensitive, public lookup can't find it
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Object walker = walkerClass.getMethod("getInstance").invoke(null);
+			walk = lookup.findVirtual(walkerClass, "walk", MethodType.methodType(Object.class, Function.class))
+				.bindTo(walker);
+			MethodType nameType = MethodType.methodType(String.class, Object.class);
+			className = lookup.findVirtual(frameClass, "getClassName", MethodType.methodType(String.class)).asType(nameType);
+			methodName = lookup.findVirtual(frameClass, "getMethodName", MethodType.methodType(String.class)).asType(nameType);
+		} catch (Exception e) {
+			// StackWalker is not available, stack trace is used
+			walk = null;
+		}
+		WALK = walk;
+		CLASS_NAME = className;
+		METHOD_NAME = methodName;
+	}
+
+	private CallerResolver() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns true if the stack walker is used, false if the stack trace is used.
+	 *
+	 * @return true if the stack walker is used
+	 */
+	static boolean isStackWalkerUsed() {
+		return WALK != null;
+	}
+
+	/**
+	 * Generates the name for the caller of the name generating method.
+	 *
+	 * @param suffix name suffix or null
+	 * @param includeMethodName true if the method name should be included
+	 * @return generated name, the same instance for the same call-site if the suffix is null
+	 */
+	static String generateName(String suffix, boolean includeMethodName) {
+		CallSite caller = caller();
+		NameKey key = new NameKey(caller.className, includeMethodName ? caller.methodName : null);
+		String name = NAMES.get(key);
+		if (name == null) {
+			name = includeMethodName ? caller.className + '.' + caller.methodName : caller.className;
+			String previous = NAMES.putIfAbsent(key, name);
+			if (previous != null) {
+				name = previous;
+			}
+		}
+		return suffix != null ? name + suffix : name;
+	}
+
+	private static CallSite caller() {
+		if (WALK != null) {
+			CallSite caller;
+			try {
+				caller = (CallSite) (Object) WALK.invokeExact(CALLER_FINDER);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+			if (caller != null) {
+				return caller;
+			}
+		}
+		return callerFromStackTrace();
+	}
+
+	private static CallSite callerFromStackTrace() {
+		boolean internal = false;
+		for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+			if (isInternal(element.getClassName())) {
+				internal = true;
+			} else if (internal) {
+				return new CallSite(element.getClassName(), element.getMethodName());
+			}
+		}
+		throw new IllegalStateException("Caller of the name generation not found");
+	}
+
+	private static boolean isInternal(String className) {
+		return className.equals(CallerResolver.class.getName())
+			|| className.equals(SimonUtils.class.getName())
+			|| className.equals(GeneratedName.class.getName());
+	}
+
+	/**
+	 * Class and method of the caller.
+	 */
+	private static final class CallSite {
+		private final String className;
+		private final String methodName;
+
+		CallSite(String className, String methodName) {
+			this.className = className;
+			this.methodName = methodName;
+		}
+	}
+
+	/**
+	 * Key of the generated name cache.
+	 */
+	private static final class NameKey {
+		private final String className;
+		private final String methodName;
+
+		NameKey(String className, String methodName) {
+			this.className = className;
+			this.methodName = methodName;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof NameKey)) {
+				return false;
+			}
+			NameKey other = (NameKey) o;
+			return className.equals(other.className)
+				&& (methodName == null ? other.methodName == null : methodName.equals(other.methodName));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = className.hashCode();
+			result = 31 * result + (methodName != null ? methodName.hashCode() : 0);
+			return result;
+		}
+	}
+}
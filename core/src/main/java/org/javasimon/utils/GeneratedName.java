@@ -0,0 +1,70 @@
+package org.javasimon.utils;
+
+/**
+ * Holder of the Simon name generated for the call-site on the first call of {@link #get()}. Repeated calls
+ * only read the resolved name, the stack is not walked again. Holder is typically stored in the static field
+ * and used in one method:
+ * <pre>
+ * private static final GeneratedName NAME = new GeneratedName("-stopwatch", true);
+ *
+ * public void businessMethod() {
+ *     Split split = SimonManager.getStopwatch(NAME.get()).start();
+ *     ...
+ * }</pre>
+ * Name is resolved for the first caller of {@link #get()}, hence one holder must not be shared by more methods
+ * if the method name is included. With {@code includeMethodName} set to false the name depends only on the class
+ * and the holder can be resolved eagerly with {@link #resolve()} right in the static initializer.
+ *
+ * @see SimonUtils#generateName(String, boolean)
+ * @since 3.0
+ */
+public final class GeneratedName {
+	private final String suffix;
+
+	private final boolean includeMethodName;
+
+	private volatile String name;
+
+	/**
+	 * Creates the holder of the name with the class and method name of the caller.
+	 */
+	public GeneratedName() {
+		this(null, true);
+	}
+
+	/**
+	 * Creates the holder of the generated name.
+	 *
+	 * @param suffix name suffix for eventual Simon discrimination
+	 * @param includeMethodName if true, method name will be included in the name
+	 */
+	public GeneratedName(String suffix, boolean includeMethodName) {
+		this.suffix = suffix;
+		this.includeMethodName = includeMethodName;
+	}
+
+	/**
+	 * Returns the name generated for the first caller of this method.
+	 *
+	 * @return generated name
+	 */
+	public String get() {
+		String name = this.name;
+		if (name == null) {
+			name = CallerResolver.generateName(suffix, includeMethodName);
+			this.name = name;
+		}
+		return name;
+	}
+
+	/**
+	 * Resolves the name for the caller of this method right now and returns the holder.
+	 *
+	 * @return this holder
+	 */
+	public GeneratedName resolve() {
+		get();
+		return this;
+	}
+
+}
@@ -0,0 +1,230 @@
+package org.javasimon.utils;
+
+import org.javasimon.Sample;
+import org.javasimon.Simon;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ParallelSimonUtils provides operations over the whole Simon subtree that are executed in parallel
+ * using the fork/join framework - recursive reset, collecting of samples and aggregation of the Stopwatch
+ * totals. Operations are suitable for large trees (tens of thousands of Simons and more), for small trees
+ * the sequential methods of {@link SimonUtils} are good enough.
+ * <p/>
+ * Every fork/join task processes at least the cutoff number of Simons sequentially (depth-first) before
+ * it forks the remaining child lists as new tasks, long child lists are split in halves. Default cutoff
+ * is {@link #DEFAULT_CUTOFF}, operations run in the common fork/join pool unless other pool is provided.
+ * Like {@link SimonUtils#recursiveReset(org.javasimon.Simon)} the operations are not atomic as a whole,
+ * Simons created or destroyed during the operation may or may not be visited.
+ *
+ * @since 3.0
+ */
+public final class ParallelSimonUtils {
+	/**
+	 * Default number of Simons processed sequentially by one fork/join task.
+	 */
+	public static final int DEFAULT_CUTOFF = 512;
+
+	private ParallelSimonUtils() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Visitor of the Simons in the subtree. Visitor is called concurrently from more threads, hence
+	 * it must be thread-safe. Parent is always visited before its children.
+	 */
+	public interface Visitor {
+		/**
+		 * Visits the Simon.
+		 *
+		 * @param simon visited Simon
+		 * @return true if the children of the Simon should be visited too
+		 */
+		boolean visit(Simon simon);
+	}
+
+	/**
+	 * Visits the whole subtree in the common fork/join pool with the default cutoff.
+	 *
+	 * @param simon subtree root
+	 * @param visitor thread-safe visitor
+	 */
+	public static void visit(Simon simon, Visitor visitor) {
+		visit(simon, visitor, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+	}
+
+	/**
+	 * Visits the whole subtree in the specified fork/join pool.
+	 *
+	 * @param simon subtree root
+	 * @param visitor thread-safe visitor
+	 * @param pool fork/join pool executing the tasks
+	 * @param cutoff number of Simons processed sequentially by one task
+	 */
+	public static void visit(Simon simon, Visitor visitor, ForkJoinPool pool, int cutoff) {
+		if (cutoff < 1) {
+			throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+		}
+		pool.invoke(new VisitTask(Collections.singletonList(simon), 0, 1, visitor, cutoff));
+	}
+
+	/**
+	 * Resets the whole Simon subtree in parallel - parallel version of {@link SimonUtils#recursiveReset(org.javasimon.Simon)}.
+	 *
+	 * @param simon subtree root
+	 */
+	public static void recursiveReset(Simon simon) {
+		visit(simon, new Visitor() {
+			public boolean visit(Simon simon) {
+				simon.reset();
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Collects samples of all Simons in the subtree. Samples are not created for the Simons without
+	 * a sample (unknown Simons).
+	 *
+	 * @param simon subtree root
+	 * @param reset true if the Simons should be reset after sampling ({@link Simon#sampleAndReset()} is used)
+	 * @return map of samples with Simon names as keys
+	 */
+	public static Map<String, Sample> collectSamples(Simon simon, final boolean reset) {
+		final Map<String, Sample> samples = new ConcurrentHashMap<String, Sample>();
+		visit(simon, new Visitor() {
+			public boolean visit(Simon simon) {
+				Sample sample = reset ? simon.sampleAndReset() : simon.sample();
+				if (sample != null) {
+					samples.put(simon.getName(), sample);
+				}
+				return true;
+			}
+		});
+		return samples;
+	}
+
+	/**
+	 * Aggregates totals of all Stopwatches in the subtree into one sample - total, counter, min, max,
+	 * active and mean are aggregated, other values of the sample are not set. Min and max are zero
+	 * if no Stopwatch in the subtree was used.
+	 *
+	 * @param simon subtree root
+	 * @return aggregated Stopwatch sample
+	 */
+	public static StopwatchSample aggregate(Simon simon) {
+		final LongAdder total = new LongAdder();
+		final LongAdder counter = new LongAdder();
+		final LongAdder active = new LongAdder();
+		final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+		final AtomicLong max = new AtomicLong(0);
+		visit(simon, new Visitor() {
+			public boolean visit(Simon simon) {
+				if (simon instanceof Stopwatch) {
+					Stopwatch stopwatch = (Stopwatch) simon;
+					if (stopwatch.getCounter() > 0) {
+						total.add(stopwatch.getTotal());
+						counter.add(stopwatch.getCounter());
+						updateMin(min, stopwatch.getMin());
+						updateMax(max, stopwatch.getMax());
+					}
+					active.add(stopwatch.getActive());
+				}
+				return true;
+			}
+		});
+
+		StopwatchSample sample = new StopwatchSample();
+		sample.setTotal(total.sum());
+		sample.setCounter(counter.sum());
+		sample.setActive(active.sum());
+		sample.setMin(counter.sum() > 0 ? min.get() : 0);
+		sample.setMax(max.get());
+		sample.setMean(counter.sum() > 0 ? (double) total.sum() / counter.sum() : 0);
+		return sample;
+	}
+
+	private static void updateMin(AtomicLong min, long value) {
+		long current = min.get();
+		while (value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Visits the range of the child list and the subtrees under the Simons in the range.
+	 */
+	private static final class VisitTask extends RecursiveAction {
+		private final List<Simon> simons;
+		private final int from;
+		private final int to;
+		private final Visitor visitor;
+		private final int cutoff;
+
+		VisitTask(List<Simon> simons, int from, int to, Visitor visitor, int cutoff) {
+			this.simons = simons;
+			this.from = from;
+			this.to = to;
+			this.visitor = visitor;
+			this.cutoff = cutoff;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > cutoff) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new VisitTask(simons, from, middle, visitor, cutoff), new VisitTask(simons, middle, to, visitor, cutoff));
+				return;
+			}
+
+			Deque<List<Simon>> pending = new ArrayDeque<List<Simon>>();
+			List<VisitTask> forked = new ArrayList<VisitTask>();
+			int visited = visitRange(simons, from, to, pending);
+			while (!pending.isEmpty()) {
+				List<Simon> children = pending.pop();
+				if (visited >= cutoff || children.size() > cutoff) {
+					VisitTask task = new VisitTask(children, 0, children.size(), visitor, cutoff);
+					task.fork();
+					forked.add(task);
+				} else {
+					visited += visitRange(children, 0, children.size(), pending);
+				}
+			}
+			for (VisitTask task : forked) {
+				task.join();
+			}
+		}
+
+		private int visitRange(List<Simon> list, int start, int end, Deque<List<Simon>> pending) {
+			for (int i = start; i < end; i++) {
+				Simon simon = list.get(i);
+				if (visitor.visit(simon)) {
+					List<Simon> children = simon.getChildren();
+					if (children != null && !children.isEmpty()) {
+						pending.push(children);
+					}
+				}
+			}
+			return end - start;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.javasimon.utils;
 
 import org.javasimon.*;
 
+import java.io.PrintWriter;
 import java.text.*;
 import java.util.Locale;
 import java.util.Date;
@@ -66,7 +67,27 @@ public final class SimonUtils {
 	 *
 	 * @since 2.3
 	 */
-	public static final String ALLOWED_CHARS = "-_[]ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstvwxyz0123456789.,@$%()<>";
+	public static final String ALLOWED_CHARS = "-_[]ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,@$%()<>";
+
+	/**
+	 * Lookup table of characters allowed in the Simon name (the same set as {@link #NAME_PATTERN}).
+	 */
+	private static final boolean[] NAME_CHARS = new boolean[128];
+
+	static {
+		for (char c = 'A'; c <= 'Z'; c++) {
+			NAME_CHARS[c] = true;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			NAME_CHARS[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			NAME_CHARS[c] = true;
+		}
+		for (char c : "-_[].,@$%()<>".toCharArray()) {
+			NAME_CHARS[c] = true;
+		}
+	}
 
 	private static final int UNIT_PREFIX_FACTOR = 1000;
 
@@ -84,20 +105,6 @@ public final class SimonUtils {
 
 	private static final String UNDEF_STRING = "undef";
 
-	private static final int CLIENT_CODE_STACK_INDEX;
-
-	static {
-		// Finds out the index of "this code" in the returned stack trace - funny but it differs in JDK 1.5 and 1.6
-		int i = 1;
-		for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
-			i++;
-			if (ste.getClassName().equals(SimonUtils.class.getName())) {
-				break;
-			}
-		}
-		CLIENT_CODE_STACK_INDEX = i;
-	}
-
 	private SimonUtils() {
 		throw new UnsupportedOperationException();
 	}
@@ -202,6 +209,30 @@ public final class SimonUtils {
 		return sb.toString();
 	}
 
+	/**
+	 * Prints the Simon tree to the writer line by line in the same format as {@link #simonTreeString(Simon)},
+	 * so the string of the whole tree is never built in memory.
+	 *
+	 * @param simon root Simon of the printed tree
+	 * @param writer writer receiving the tree
+	 * @since 3.0
+	 */
+	public static void printSimonTree(Simon simon, PrintWriter writer) {
+		if (simon == null || simon.getName() == null) {
+			return;
+		}
+		printSimonTree(0, simon, new StringBuilder(), writer);
+	}
+
+	private static void printSimonTree(int level, Simon simon, StringBuilder line, PrintWriter writer) {
+		line.setLength(0);
+		printSimon(level, simon, line);
+		writer.append(line);
+		for (Simon child : simon.getChildren()) {
+			printSimonTree(level + 1, child, line, writer);
+		}
+	}
+
 	private static void printSimonTree(int level, Simon simon, StringBuilder sb) {
 		printSimon(level, simon, sb);
 		for (Simon child : simon.getChildren()) {
@@ -239,7 +270,8 @@ public final class SimonUtils {
 	 * Resets the whole Simon subtree - calls {@link org.javasimon.Simon#reset()} on the
 	 * Simon and recursively on all its children. Operation is not truly atomic as a whole,
 	 * consistency on the Simon level depends on the implementation of {@link org.javasimon.Simon#reset()}
-	 * (which is thread-safe in all current implementations).
+	 * (which is thread-safe in all current implementations). For large trees see
+	 * {@link ParallelSimonUtils#recursiveReset(org.javasimon.Simon)}.
 	 *
 	 * @param simon subtree root
 	 */
@@ -252,13 +284,33 @@ public final class SimonUtils {
 
 	/**
 	 * Checks if the input string is correct Simon name. Simon name is checked against
-	 * public {@link #NAME_PATTERN}.
+	 * public {@link #NAME_PATTERN} - in a single pass using lookup table, no regex matcher is involved.
 	 *
 	 * @param name checked string
 	 * @return true if the string is proper Simon name
 	 */
 	public static boolean checkName(String name) {
-		return NAME_PATTERN.matcher(name).matches();
+		int length = name.length();
+		if (length == 0) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (!isNameChar(name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the character is allowed in the Simon name (matches {@link #NAME_PATTERN}).
+	 *
+	 * @param c checked character
+	 * @return true if the character is allowed in the Simon name
+	 * @since 3.0
+	 */
+	public static boolean isNameChar(char c) {
+		return c < NAME_CHARS.length && NAME_CHARS[c];
 	}
 
 	/**
@@ -273,6 +325,10 @@ public final class SimonUtils {
 
 	/**
 	 * Autogenerates name for the Simon using the class name and (optionaly) the method name.
+	 * Caller is found by walking only the top of the stack and the generated name is cached per call-site,
+	 * so the same String instance is returned for the same call-site (suffix is appended to the cached name
+	 * every time, it is not cached). If the name is needed repeatedly
+	 * on the hot path use {@link GeneratedName} holder which walks the stack only once.
 	 *
 	 * @param suffix name suffix for eventual Simon discrimination
 	 * @param includeMethodName if true, method name will be included in the name thus effectively adding another level
@@ -280,20 +336,7 @@ public final class SimonUtils {
 	 * @return autogenerated name for Simon
 	 */
 	public static String generateName(String suffix, boolean includeMethodName) {
-		return generatePrivate(suffix, includeMethodName);
-	}
-
-	// method is exatracted, so the stack trace index is always right
-	private static String generatePrivate(String suffix, boolean includeMethodName) {
-		StackTraceElement stackElement = Thread.currentThread().getStackTrace()[CLIENT_CODE_STACK_INDEX];
-		StringBuilder nameBuilder = new StringBuilder(stackElement.getClassName());
-		if (includeMethodName) {
-			nameBuilder.append('.').append(stackElement.getMethodName());
-		}
-		if (suffix != null) {
-			nameBuilder.append(suffix);
-		}
-		return nameBuilder.toString();
+		return CallerResolver.generateName(suffix, includeMethodName);
 	}
 
 	/**
@@ -303,7 +346,7 @@ public final class SimonUtils {
 	 * @return autogenerated name for Simon
 	 */
 	public static String generateName() {
-		return generatePrivate(null, true);
+		return CallerResolver.generateName(null, true);
 	}
 
 	/**
@@ -5,8 +5,11 @@ import org.testng.Assert;
 import org.javasimon.utils.DebugCallback;
 import org.javasimon.utils.LoggingCallback;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.Writer;
 import java.util.logging.Level;
 
 /**
@@ -47,6 +50,17 @@ public final class ConfigurationTestNG {
 		Assert.assertTrue(manager.configuration().getConfig("org.javasimon.test.debug").getState().equals(SimonState.DISABLED));
 	}
 
+	@Test
+	public void testSamplingConfig() throws IOException {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.hot.*' sampling='100'/>\n" +
+			"</simon-configuration>"));
+		Assert.assertNull(manager.configuration().getConfig("org.javasimon.bubu").getSampling());
+		Assert.assertEquals(manager.getStopwatch("org.javasimon.hot.loop").getSampling(), 100);
+		Assert.assertEquals(manager.getStopwatch("org.javasimon.cold").getSampling(), 1);
+	}
+
 	@Test
 	public void testConditions() {
 		Split split = new EnabledManager().getStopwatch(null).start();
@@ -178,4 +192,131 @@ public final class ConfigurationTestNG {
 		Assert.assertFalse(callback.isTriggered());
 		manager.callback().removeCallback(filter);
 	}
+
+	@Test
+	public void testLimitConfig() throws IOException {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <limit subtree='org.javasimon.jdbc.sql' max='5000'/>\n" +
+			"  <limit subtree='org.javasimon.jdbc.sql.select.*' max='10' min-idle='0'/>\n" +
+			"</simon-configuration>"));
+		Assert.assertNull(manager.configuration().getLimit("org.javasimon.jdbc.sql"));
+		Assert.assertNull(manager.configuration().getLimit("org.javasimon.jdbc.sqlx.select"));
+		SubtreeLimit limit = manager.configuration().getLimit("org.javasimon.jdbc.sql.insert.1");
+		Assert.assertEquals(limit.getMax(), 5000);
+		Assert.assertEquals(limit.getMinIdle(), SubtreeLimit.DEFAULT_MIN_IDLE_MILLIS);
+		limit = manager.configuration().getLimit("org.javasimon.jdbc.sql.select.1");
+		Assert.assertEquals(limit.getSubtree(), "org.javasimon.jdbc.sql.select");
+		Assert.assertEquals(limit.getOtherName(), "org.javasimon.jdbc.sql.select.other");
+		Assert.assertEquals(limit.getMinIdle(), 0);
+	}
+
+	@Test
+	public void testReloadConfig() throws IOException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <callback class='org.javasimon.utils.DebugCallback'/>\n" +
+			"  <callback class='org.javasimon.utils.LoggingCallback'><set property='level' value='INFO'/></callback>\n" +
+			"  <simon pattern='org.javasimon.off.*' state='disabled'/>\n" +
+			"  <simon pattern='org.javasimon.hot.*' sampling='100'/>\n" +
+			"</simon-configuration>"));
+		Stopwatch off = manager.getStopwatch("org.javasimon.off.sw");
+		Stopwatch hot = manager.getStopwatch("org.javasimon.hot.sw");
+		Stopwatch other = manager.getStopwatch("org.javasimon.other.sw");
+		Assert.assertFalse(off.isEnabled());
+		Assert.assertEquals(hot.getSampling(), 100);
+		Callback debugCallback = manager.callback().callbacks().get(0);
+		Assert.assertEquals(manager.callback().callbacks().size(), 2);
+
+		Assert.assertTrue(manager.configuration().reloadConfig(new StringReader("<simon-configuration>\n" +
+			"  <callback class='org.javasimon.utils.DebugCallback'/>\n" +
+			"  <simon pattern='org.javasimon.other.*' state='disabled'/>\n" +
+			"  <simon pattern='org.javasimon.hot.*' sampling='10'/>\n" +
+			"</simon-configuration>")));
+		// existing Simons are reconfigured, unchanged callback is kept, removed one is gone
+		Assert.assertTrue(off.isEnabled());
+		Assert.assertEquals(off.getState(), SimonState.INHERIT);
+		Assert.assertFalse(other.isEnabled());
+		Assert.assertEquals(hot.getSampling(), 10);
+		Assert.assertEquals(manager.callback().callbacks().size(), 1);
+		Assert.assertSame(manager.callback().callbacks().get(0), debugCallback);
+		Assert.assertNull(manager.configuration().getConfig("org.javasimon.off.sw").getState());
+
+		// invalid configuration keeps the current one
+		Assert.assertFalse(manager.configuration().reloadConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.hot.*' sampling='0'/>\n" +
+			"</simon-configuration>")));
+		Assert.assertFalse(other.isEnabled());
+		Assert.assertEquals(hot.getSampling(), 10);
+		Assert.assertEquals(manager.callback().callbacks().size(), 1);
+	}
+
+	@Test
+	public void testReloadKeepsUnchangedAttributes() throws IOException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.tuned.*' state='enabled'/>\n" +
+			"  <simon pattern='org.javasimon.rollup' aggregate='true'/>\n" +
+			"</simon-configuration>"));
+		Stopwatch tuned = manager.getStopwatch("org.javasimon.tuned.sw");
+		tuned.setSampling(50); // e.g. by @Monitored or AutoTuner
+		manager.getStopwatch("org.javasimon.rollup.sw").addTime(10);
+		Assert.assertNotNull(manager.getSimon("org.javasimon.rollup").sample());
+
+		Assert.assertTrue(manager.configuration().reloadConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.tuned.*' state='disabled'/>\n" +
+			"  <simon pattern='org.javasimon.rollup' aggregate='false'/>\n" +
+			"</simon-configuration>")));
+		// only the changed state is applied, sampling was not configured before nor after
+		Assert.assertFalse(tuned.isEnabled());
+		Assert.assertEquals(tuned.getSampling(), 50);
+		// aggregation can be switched off
+		Assert.assertNull(manager.getSimon("org.javasimon.rollup").sample());
+		Assert.assertFalse(manager.rollups().isActive());
+
+		Assert.assertTrue(manager.configuration().reloadConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.tuned.*' state='disabled'/>\n" +
+			"  <simon pattern='org.javasimon.rollup' aggregate='true'/>\n" +
+			"</simon-configuration>")));
+		Assert.assertNotNull(manager.getSimon("org.javasimon.rollup").sample());
+
+		Assert.assertTrue(manager.configuration().reloadConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.tuned.*' state='disabled'/>\n" +
+			"</simon-configuration>")));
+		// removed configuration switches aggregation off as well
+		Assert.assertNull(manager.getSimon("org.javasimon.rollup").sample());
+		Assert.assertEquals(tuned.getSampling(), 50);
+	}
+
+	@Test
+	public void testConfigurationWatcher() throws Exception {
+		EnabledManager manager = new EnabledManager();
+		Stopwatch stopwatch = manager.getStopwatch("org.javasimon.watched.sw");
+		File file = File.createTempFile("simon-config", ".xml");
+		file.deleteOnExit();
+		ConfigurationWatcher watcher = new ConfigurationWatcher(manager, file);
+		watcher.setSettleMillis(50);
+		watcher.start();
+		try {
+			Writer writer = new FileWriter(file);
+			writer.write("<simon-configuration><simon pattern='org.javasimon.watched.*' state='disabled'/></simon-configuration>");
+			writer.close();
+			for (int i = 0; i < 100 && stopwatch.isEnabled(); i++) {
+				Thread.sleep(100);
+			}
+			Assert.assertFalse(stopwatch.isEnabled());
+		} finally {
+			watcher.stop();
+		}
+	}
+
+	@Test
+	public void testConfigurationWatcherOfDisabledManager() throws Exception {
+		SwitchingManager manager = new SwitchingManager();
+		manager.disable();
+		File file = File.createTempFile("simon-config", ".xml");
+		file.deleteOnExit();
+		ConfigurationWatcher watcher = new ConfigurationWatcher(manager, file);
+		Assert.assertFalse(watcher.reload());
+	}
 }
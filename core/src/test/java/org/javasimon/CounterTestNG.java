@@ -68,4 +68,108 @@ public final class CounterTestNG {
 		Assert.assertEquals(counter.getMaxTimestamp(), counter.getLastUsage());
 		Assert.assertEquals(counter.getMinTimestamp(), counter.getLastUsage());
 	}
+
+	@Test
+	public void extremeTimestampsAreLatest() throws InterruptedException {
+		Counter counter = SimonManager.getCounter(COUNTER_NAME);
+		counter.set(5);
+		long firstTimestamp = counter.getMaxTimestamp();
+
+		Thread.sleep(20); // just to assure system ms are changed
+		counter.set(5);
+		Assert.assertEquals(counter.getMax(), 5);
+		Assert.assertEquals(counter.getMin(), 5);
+		Assert.assertTrue(counter.getMaxTimestamp() != firstTimestamp);
+		Assert.assertEquals(counter.getMaxTimestamp(), counter.getLastUsage());
+		Assert.assertEquals(counter.getMinTimestamp(), counter.getLastUsage());
+	}
+
+	@Test
+	public void increaseDecreaseByValue() {
+		final int[] callbacks = new int[2];
+		Callback callback = new CallbackSkeleton() {
+			@Override
+			public void counterDecrease(Counter counter, long dec) {
+				callbacks[0]++;
+			}
+
+			@Override
+			public void counterSet(Counter counter, long val) {
+				callbacks[1]++;
+			}
+		};
+		SimonManager.callback().addCallback(callback);
+		try {
+			Counter counter = SimonManager.getCounter(COUNTER_NAME);
+			counter.increase(10);
+			counter.decrease(3);
+			Assert.assertEquals(counter.getCounter(), 7);
+			Assert.assertEquals(counter.getIncrementSum(), 10);
+			Assert.assertEquals(counter.getDecrementSum(), 3);
+			Assert.assertEquals(counter.getMax(), 10);
+			Assert.assertEquals(counter.getMin(), 7);
+			// decrease is reported once and not as set
+			Assert.assertEquals(callbacks[0], 1);
+			Assert.assertEquals(callbacks[1], 0);
+		} finally {
+			SimonManager.callback().removeCallback(callback);
+		}
+	}
+
+	@Test
+	public void concurrentUpdates() throws InterruptedException {
+		final Counter counter = SimonManager.getCounter(COUNTER_NAME);
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						counter.increase();
+						counter.decrease();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(counter.getCounter(), 0);
+		Assert.assertEquals(counter.getIncrementSum(), 80000);
+		Assert.assertEquals(counter.getDecrementSum(), 80000);
+		Assert.assertTrue(counter.getMax() >= 1 && counter.getMax() <= threads.length);
+		Assert.assertTrue(counter.getMin() >= 0 && counter.getMin() < threads.length);
+	}
+
+	@Test
+	public void concurrentSampleAndReset() throws InterruptedException {
+		final Counter counter = SimonManager.getCounter(COUNTER_NAME);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 100000; j++) {
+						counter.increase();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		long counterTotal = 0;
+		long incrementTotal = 0;
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (Thread thread : threads) {
+				running |= thread.isAlive();
+			}
+			CounterSample sample = (CounterSample) counter.sampleAndReset();
+			counterTotal += sample.getCounter();
+			incrementTotal += sample.getIncrementSum();
+		}
+		Assert.assertEquals(counterTotal, threads.length * 100000L);
+		Assert.assertEquals(incrementTotal, threads.length * 100000L);
+	}
 }
@@ -3,8 +3,19 @@ package org.javasimon;
 import org.testng.annotations.Test;
 import org.testng.annotations.BeforeMethod;
 import org.testng.Assert;
+import org.javasimon.clock.Clock;
+import org.javasimon.clock.CoarseClock;
+import org.javasimon.clock.SystemClock;
+import org.javasimon.clock.WallClock;
+import org.javasimon.jmx.SimonMXBean;
+import org.javasimon.jmx.SimonMXBeanImpl;
+import org.javasimon.utils.GeneratedName;
 import org.javasimon.utils.SimonUtils;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Queue;
 import java.util.LinkedList;
 
@@ -22,6 +33,8 @@ public final class ManagerTestNG {
 	private static final String ORG_JAVASIMON_ENABLED_SW1 = "org.javasimon.enabled.sw1";
 	private static final String ORG_JAVASIMON_DISABLED_SW1 = "org.javasimon.disabled.sw1";
 
+	private static final GeneratedName GENERATED_NAME = new GeneratedName("-static", false).resolve();
+
 	@BeforeMethod
 	public void resetAndEnable() {
 		SimonManager.enable();
@@ -121,6 +134,22 @@ public final class ManagerTestNG {
 	@Test
 	public void testGeneratedNames() {
 		Assert.assertEquals(SimonUtils.generateName("-stopwatch", true), getClass().getName() + ".testGeneratedNames-stopwatch");
+		Assert.assertEquals(SimonUtils.generateName(), getClass().getName() + ".testGeneratedNames");
+		Assert.assertEquals(SimonUtils.generateName(null, false), getClass().getName());
+
+		String[] names = new String[2];
+		String[] suffixedNames = new String[2];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = SimonUtils.generateName();
+			suffixedNames[i] = SimonUtils.generateName("-" + i, true);
+		}
+		Assert.assertSame(names[0], names[1]);
+		Assert.assertEquals(suffixedNames[1], getClass().getName() + ".testGeneratedNames-1");
+
+		GeneratedName holder = new GeneratedName("-holder", true);
+		Assert.assertEquals(holder.get(), getClass().getName() + ".testGeneratedNames-holder");
+		Assert.assertSame(holder.get(), holder.get());
+		Assert.assertEquals(GENERATED_NAME.get(), getClass().getName() + "-static");
 	}
 
 	@Test(expectedExceptions = SimonException.class)
@@ -173,6 +202,167 @@ public final class ManagerTestNG {
 		Assert.assertNull(SimonUtils.simonTreeString(SimonManager.getRootSimon()));
 	}
 
+	@Test
+	public void switchingViaMXBean() {
+		SimonMXBean mxBean = new SimonMXBeanImpl(SimonManager.manager());
+		for (int i = 0; i < 10000; i++) {
+			SimonManager.getStopwatch(ORG_JAVASIMON_ENABLED_SW1).start().stop();
+		}
+		Assert.assertEquals(SimonManager.getStopwatch(ORG_JAVASIMON_ENABLED_SW1).getCounter(), 10000);
+
+		mxBean.disable();
+		Assert.assertFalse(SimonManager.isEnabled());
+		Stopwatch stopwatch = SimonManager.getStopwatch(ORG_JAVASIMON_ENABLED_SW1);
+		Assert.assertTrue(stopwatch instanceof NullSimon);
+		Split split = stopwatch.start();
+		Assert.assertSame(stopwatch.start(), split, "null split should be shared");
+		Assert.assertFalse(split.isEnabled());
+		Assert.assertEquals(split.stop(), 0);
+		Assert.assertTrue(SimonManager.getCounter(ORG_JAVASIMON_TEST_COUNTER) instanceof NullSimon);
+
+		mxBean.enable();
+		Assert.assertTrue(SimonManager.isEnabled());
+		SimonManager.getStopwatch(ORG_JAVASIMON_ENABLED_SW1).start().stop();
+		Assert.assertEquals(SimonManager.getStopwatch(ORG_JAVASIMON_ENABLED_SW1).getCounter(), 10001);
+	}
+
+	@Test
+	public void subtreeLimit() {
+		final long[] millis = {1000};
+		Manager manager = new EnabledManager();
+		manager.setClock(new Clock() {
+			public long nanoTime() {
+				return millis[0] * SimonUtils.NANOS_IN_MILLIS;
+			}
+
+			public long milliTime() {
+				return millis[0];
+			}
+
+			public long millisForNano(long nanos) {
+				return nanos / SimonUtils.NANOS_IN_MILLIS;
+			}
+		});
+		final List<String> destroyed = new ArrayList<String>();
+		final List<String> messages = new ArrayList<String>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			public void simonDestroyed(Simon simon) {
+				destroyed.add(simon.getName());
+			}
+
+			public void message(String message) {
+				messages.add(message);
+			}
+		});
+		manager.configuration().setLimit("org.javasimon.limited.*", 3, 100);
+
+		manager.getStopwatch("org.javasimon.limited.sw1");
+		millis[0] += 10;
+		AbstractSimon sw2 = (AbstractSimon) manager.getStopwatch("org.javasimon.limited.sw2");
+		millis[0] += 10;
+		manager.getStopwatch("org.javasimon.limited.sw3");
+		millis[0] += 10;
+		manager.getStopwatch("org.javasimon.limited.sw1").start().stop();
+
+		// nothing is idle long enough - folded into "other"
+		Stopwatch overflow = manager.getStopwatch("org.javasimon.limited.sw4");
+		Assert.assertEquals(overflow.getName(), "org.javasimon.limited.other");
+		Assert.assertNull(manager.getSimon("org.javasimon.limited.sw4"));
+		Assert.assertTrue(destroyed.isEmpty());
+		Assert.assertEquals(messages.size(), 1);
+
+		// sw2 was used least recently
+		millis[0] += 1000;
+		manager.getStopwatch("org.javasimon.limited.sw1").start().stop();
+		Assert.assertEquals(manager.getStopwatch("org.javasimon.limited.sw5").getName(), "org.javasimon.limited.sw5");
+		Assert.assertEquals(destroyed, Arrays.asList("org.javasimon.limited.sw2"));
+		Assert.assertNull(manager.getSimon("org.javasimon.limited.sw2"));
+		Assert.assertTrue(sw2.isDestroyed());
+		Assert.assertNotNull(manager.getSimon("org.javasimon.limited.sw1"));
+		Assert.assertNotNull(manager.getSimon("org.javasimon.limited.sw3"));
+		Assert.assertEquals(manager.getSimon("org.javasimon.limited").getChildren().size(), 4);
+
+		// Simons outside of the subtree are not limited
+		for (int i = 0; i < 10; i++) {
+			manager.getCounter("org.javasimon.unlimited.c" + i);
+		}
+		Assert.assertEquals(manager.getSimon("org.javasimon.unlimited").getChildren().size(), 10);
+	}
+
+	@Test
+	public void currentSimons() {
+		String name = "org.javasimon.current.sw";
+		Stopwatch stopwatch = SimonManager.getStopwatch(name);
+		Assert.assertTrue(SimonManager.isCurrent(stopwatch));
+		Assert.assertFalse(SimonManager.isCurrent(null));
+
+		SimonManager.destroySimon(name);
+		Assert.assertFalse(SimonManager.isCurrent(stopwatch));
+
+		stopwatch = SimonManager.getStopwatch(name);
+		SimonManager.disable();
+		Assert.assertFalse(SimonManager.isCurrent(stopwatch));
+		Stopwatch nullStopwatch = SimonManager.getStopwatch(name);
+		Assert.assertTrue(SimonManager.isCurrent(nullStopwatch));
+		SimonManager.enable();
+		Assert.assertFalse(SimonManager.isCurrent(nullStopwatch));
+		Assert.assertTrue(SimonManager.isCurrent(stopwatch));
+
+		Simon unknown = SimonManager.getStopwatch(name + ".child").getParent().getParent();
+		Assert.assertTrue(SimonManager.isCurrent(unknown));
+		SimonManager.getStopwatch("org.javasimon.current");
+		Assert.assertFalse(SimonManager.isCurrent(unknown));
+
+		SimonManager.clear();
+		Assert.assertFalse(SimonManager.isCurrent(stopwatch));
+	}
+
+	@Test
+	public void subtreeLimitOverflowOfMixedTypes() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setLimit("org.javasimon.mixed.*", 2, 60000);
+		manager.getStopwatch("org.javasimon.mixed.sw1");
+		manager.getCounter("org.javasimon.mixed.c1");
+
+		// each type is folded into its own "other" Simon
+		Counter counter = manager.getCounter("org.javasimon.mixed.c2");
+		Assert.assertEquals(counter.getName(), "org.javasimon.mixed.other-counter");
+		Stopwatch stopwatch = manager.getStopwatch("org.javasimon.mixed.sw2");
+		Assert.assertEquals(stopwatch.getName(), "org.javasimon.mixed.other");
+		Assert.assertSame(manager.getCounter("org.javasimon.mixed.c3"), counter);
+		Assert.assertSame(manager.getStopwatch("org.javasimon.mixed.sw3"), stopwatch);
+	}
+
+	@Test
+	public void aggregatingUnknownSimon() throws Exception {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.rollup.sql' aggregate='true'/>\n" +
+			"</simon-configuration>"));
+		manager.getStopwatch("org.javasimon.rollup.sql.select.s1").addTime(10);
+		manager.getStopwatch("org.javasimon.rollup.sql.select.s2").addTime(30);
+		manager.getStopwatch("org.javasimon.rollup.sql.insert.i1").addTime(5).addTime(7);
+		manager.getStopwatch("org.javasimon.rollup.other").addTime(1000);
+
+		Assert.assertNull(manager.getSimon("org.javasimon.rollup").sample());
+		Assert.assertNull(manager.getSimon("org.javasimon.rollup.sql.select").sample());
+		StopwatchSample sample = (StopwatchSample) manager.getSimon("org.javasimon.rollup.sql").sample();
+		Assert.assertEquals(sample.getCounter(), 4);
+		Assert.assertEquals(sample.getTotal(), 52);
+		Assert.assertEquals(sample.getMin(), 5);
+		Assert.assertEquals(sample.getMax(), 30);
+		Assert.assertEquals(sample.getMean(), 13.0);
+
+		manager.getStopwatch("org.javasimon.rollup.sql.select.s1").addTime(100);
+		sample = (StopwatchSample) manager.getSimon("org.javasimon.rollup.sql").sampleAndReset();
+		Assert.assertEquals(sample.getCounter(), 5);
+		Assert.assertEquals(sample.getMax(), 100);
+		manager.getStopwatch("org.javasimon.rollup.sql.insert.i1").addTime(3);
+		sample = (StopwatchSample) manager.getSimon("org.javasimon.rollup.sql").sample();
+		Assert.assertEquals(sample.getCounter(), 1);
+		Assert.assertEquals(sample.getTotal(), 3);
+	}
+
 	@Test
 	public void failedInitialization() {
 		final Queue<String> messages = new LinkedList<String>();
@@ -188,4 +378,56 @@ public final class ManagerTestNG {
 		Assert.assertEquals(messages.poll(), "SimonManager initialization error");
 		System.getProperties().remove(SimonManager.PROPERTY_CONFIG_RESOURCE_NAME);
 	}
+
+	@Test
+	public void testClock() throws Exception {
+		final long[] time = {5000000000L, 5000L};
+		Manager manager = new EnabledManager();
+		manager.setClock(new Clock() {
+			public long nanoTime() {
+				return time[0];
+			}
+
+			public long milliTime() {
+				return time[1];
+			}
+
+			public long millisForNano(long nanos) {
+				return nanos / SimonUtils.NANOS_IN_MILLIS;
+			}
+		});
+		Stopwatch stopwatch = manager.getStopwatch("org.javasimon.clock.stopwatch");
+		Split split = stopwatch.start();
+		time[0] += 1000000000L;
+		Assert.assertEquals(split.runningFor(), 1000000000L);
+		Assert.assertEquals(split.stop(), 1000000000L);
+		Assert.assertEquals(stopwatch.getFirstUsage(), 5000L);
+		Assert.assertEquals(stopwatch.getLastUsage(), 6000L);
+
+		Counter counter = manager.getCounter("org.javasimon.clock.counter").increase();
+		Assert.assertEquals(counter.getLastUsage(), 5000L);
+
+		SystemClock systemClock = SystemClock.INSTANCE;
+		long before = System.currentTimeMillis();
+		long millis = systemClock.millisForNano(systemClock.nanoTime());
+		Assert.assertTrue(millis >= before - 1 && millis <= System.currentTimeMillis() + 1, "system clock should follow wall-clock");
+		Assert.assertEquals(systemClock.millisForNano(systemClock.nanoTime() + 5000000000L) - millis, 5000L, 1L);
+		long nanos = systemClock.nanoTime();
+		Assert.assertEquals(systemClock.milliTime(), systemClock.millisForNano(nanos), 1L, "one time base for all timestamps");
+
+		before = System.currentTimeMillis();
+		millis = WallClock.INSTANCE.millisForNano(0);
+		Assert.assertTrue(millis >= before && millis <= System.currentTimeMillis(), "wall clock should read wall-clock");
+
+		CoarseClock coarseClock = new CoarseClock(1);
+		try {
+			manager.setClock(coarseClock);
+			before = System.currentTimeMillis();
+			Thread.sleep(20);
+			counter.increase();
+			Assert.assertTrue(counter.getLastUsage() >= before, "coarse clock should be ticking");
+		} finally {
+			coarseClock.stop();
+		}
+	}
 }
@@ -5,6 +5,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * StopwatchTest.
@@ -49,4 +50,50 @@ public final class SimonTestNG {
 		Assert.assertFalse(simon.getAttributeNames().hasNext());
 		Assert.assertNull(simon.getAttribute("key"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void manyChildren() {
+		Manager manager = new EnabledManager();
+		for (int i = 0; i < 20000; i++) {
+			manager.getStopwatch("org.javasimon.children.sw" + i);
+		}
+		manager.getStopwatch("org.javasimon.children.unknown.sw");
+		Simon parent = manager.getSimon("org.javasimon.children");
+		List<Simon> snapshot = parent.getChildren();
+		Assert.assertEquals(snapshot.size(), 20001);
+		Assert.assertEquals(snapshot.get(0).getName(), "org.javasimon.children.sw0");
+		Assert.assertTrue(snapshot.get(20000) instanceof UnknownSimon);
+
+		// replaced Simon keeps its position, removed one disappears, existing snapshot is not affected
+		manager.getCounter("org.javasimon.children.unknown");
+		manager.destroySimon("org.javasimon.children.sw0");
+		List<Simon> children = parent.getChildren();
+		Assert.assertEquals(children.size(), 20000);
+		Assert.assertEquals(children.get(0).getName(), "org.javasimon.children.sw1");
+		Assert.assertTrue(children.get(19999) instanceof Counter);
+		Assert.assertSame(children.get(19999).getChildren().get(0).getParent(), children.get(19999));
+		Assert.assertEquals(snapshot.size(), 20001);
+		Assert.assertSame(parent.getChildren(), children, "snapshot should be reused while there is no change");
+	}
+
+	@Test
+	public void statePropagation() {
+		Manager manager = new EnabledManager();
+		manager.getStopwatch("org.javasimon.small.sw");
+		for (int i = 0; i < 1000; i++) {
+			manager.getStopwatch("org.javasimon.large.sw" + i);
+		}
+		manager.getStopwatch("org.javasimon.large.kept").setState(SimonState.ENABLED, false);
+
+		// small subtree is walked sequentially, large one in parallel
+		manager.getSimon("org.javasimon.small").setState(SimonState.DISABLED, false);
+		Assert.assertFalse(manager.getSimon("org.javasimon.small.sw").isEnabled());
+		manager.getSimon("org.javasimon.large").setState(SimonState.DISABLED, false);
+		Assert.assertFalse(manager.getSimon("org.javasimon.large.sw0").isEnabled());
+		Assert.assertFalse(manager.getSimon("org.javasimon.large.sw999").isEnabled());
+		Assert.assertTrue(manager.getSimon("org.javasimon.large.kept").isEnabled());
+
+		manager.getSimon("org.javasimon.large").setState(SimonState.ENABLED, false);
+		Assert.assertTrue(manager.getSimon("org.javasimon.large.sw999").isEnabled());
+	}
+}
@@ -48,7 +48,7 @@ public final class StopwatchTestNG {
 	public void resetTest() throws Exception {
 		Stopwatch stopwatch = SimonManager.getStopwatch(STOPWATCH_NAME);
 		stopwatch.reset();
-		long ts = System.currentTimeMillis();
+		long ts = SimonManager.manager().clock().milliTime();
 		stopwatch.addTime(100);
 		Assert.assertEquals(stopwatch.getTotal(), 100);
 		Assert.assertEquals(stopwatch.getMax(), 100);
@@ -118,4 +118,30 @@ public final class StopwatchTestNG {
 		split.stop();
 		split.toString();
 	}
+
+	@Test
+	public void sampling() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(STOPWATCH_NAME);
+		stopwatch.setSampling(10);
+		int measured = 0;
+		for (int i = 0; i < 10000; i++) {
+			Split split = stopwatch.start();
+			if (split.isEnabled()) {
+				measured++;
+			}
+			split.stop();
+		}
+		Assert.assertEquals(stopwatch.getCounter(), measured * 10);
+		Assert.assertTrue(measured > 500 && measured < 1500, "measured: " + measured);
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		StopwatchSample sample = (StopwatchSample) stopwatch.sample();
+		Assert.assertEquals(sample.getSampling(), 10);
+		Assert.assertEquals(sample.getMean(), (double) sample.getTotal() / sample.getCounter(), 1);
+
+		// unsampled split is shared and inert
+		stopwatch.setSampling(Integer.MAX_VALUE);
+		Split split = stopwatch.start();
+		Assert.assertSame(stopwatch.start(), split);
+		Assert.assertEquals(split.stop(), 0);
+	}
 }
@@ -0,0 +1,120 @@
+package org.javasimon.aop;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Stopwatch;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * MonitoredAspectTestNG - test classes are woven with {@link MonitoredAspect} at compile-time.
+ *
+ * @since 3.0
+ */
+public final class MonitoredAspectTestNG {
+	@BeforeMethod
+	public void setUp() {
+		SimonManager.clear();
+		SimonManager.enable();
+	}
+
+	@Test
+	public void annotatedMethods() {
+		MethodMonitored monitored = new MethodMonitored();
+		monitored.plain();
+		monitored.measured();
+		monitored.measured();
+		monitored.renamed();
+
+		String prefix = MethodMonitored.class.getName() + ".";
+		Assert.assertNull(SimonManager.getSimon(prefix + "plain"));
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon(prefix + "measured")).getCounter(), 2);
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon(prefix + "custom")).getCounter(), 1);
+	}
+
+	@Test
+	public void annotatedClass() throws Exception {
+		ClassMonitored monitored = new ClassMonitored();
+		monitored.first();
+		monitored.second();
+		try {
+			monitored.failing();
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon("monitored.first")).getCounter(), 1);
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon("monitored.other")).getCounter(), 1);
+		Stopwatch failing = (Stopwatch) SimonManager.getSimon("monitored.failing");
+		Assert.assertEquals(failing.getCounter(), 1);
+		Assert.assertEquals(failing.getActive(), 0);
+		Assert.assertEquals(failing.getSampling(), 1);
+	}
+
+	@Test
+	public void sampling() {
+		new ClassMonitored().sampled();
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon("monitored.sampled")).getSampling(), 10);
+
+		SampledClassMonitored monitored = new SampledClassMonitored();
+		monitored.inherited();
+		monitored.measuredAll();
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon("sampledClass.inherited")).getSampling(), 100);
+		// sampling 1 on the method overrides the class one
+		Assert.assertEquals(((Stopwatch) SimonManager.getSimon("sampledClass.measuredAll")).getSampling(), 1);
+	}
+
+	@Test
+	public void cachedStopwatchIsReplacedAfterClear() {
+		MethodMonitored monitored = new MethodMonitored();
+		monitored.measured();
+		Stopwatch before = (Stopwatch) SimonManager.getSimon(MethodMonitored.class.getName() + ".measured");
+		SimonManager.clear();
+		monitored.measured();
+		Stopwatch after = (Stopwatch) SimonManager.getSimon(MethodMonitored.class.getName() + ".measured");
+		Assert.assertNotSame(after, before);
+		Assert.assertEquals(after.getCounter(), 1);
+	}
+
+	static class MethodMonitored {
+		void plain() {
+		}
+
+		@Monitored
+		void measured() {
+		}
+
+		@Monitored(name = "custom")
+		void renamed() {
+		}
+	}
+
+	@Monitored(name = "monitored")
+	static class ClassMonitored {
+		void first() {
+		}
+
+		@Monitored(name = "other")
+		void second() {
+		}
+
+		void failing() {
+			throw new IllegalStateException();
+		}
+
+		@Monitored(sampling = 10)
+		void sampled() {
+		}
+	}
+
+	@Monitored(name = "sampledClass", sampling = 100)
+	static class SampledClassMonitored {
+		void inherited() {
+		}
+
+		@Monitored(sampling = 1)
+		void measuredAll() {
+		}
+	}
+}
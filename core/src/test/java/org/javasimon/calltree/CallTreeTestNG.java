@@ -0,0 +1,233 @@
+package org.javasimon.calltree;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CallTreeTestNG.
+ *
+ * @since 3.0
+ */
+public final class CallTreeTestNG {
+	private CallTreeCallback callback;
+	private final List<CallTreeNode> reported = new ArrayList<CallTreeNode>();
+
+	@BeforeMethod
+	public void setUp() {
+		SimonManager.clear();
+		SimonManager.enable();
+		reported.clear();
+		callback = new CallTreeCallback();
+		callback.setSink(new CallTreeSink() {
+			public void report(Split split, CallTreeNode root) {
+				reported.add(root);
+			}
+		});
+		SimonManager.callback().addCallback(callback);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		SimonManager.callback().removeCallback(callback);
+	}
+
+	@Test
+	public void nestedAndAggregatedSplits() {
+		Split request = SimonManager.getStopwatch("test.request").start();
+		Split service = SimonManager.getStopwatch("test.service").start();
+		for (int i = 0; i < 200; i++) {
+			SimonManager.getStopwatch("test.sql").start().stop();
+		}
+		service.stop();
+		SimonManager.getStopwatch("test.sql").start().stop();
+		request.stop();
+
+		Assert.assertEquals(reported.size(), 1);
+		CallTreeNode root = reported.get(0);
+		Assert.assertEquals(root.getName(), "test.request");
+		Assert.assertEquals(root.getCount(), 1);
+		Assert.assertEquals(root.getChildren().size(), 2);
+		CallTreeNode serviceNode = root.getChildren().get(0);
+		Assert.assertEquals(serviceNode.getName(), "test.service");
+		Assert.assertEquals(serviceNode.getChildren().size(), 1);
+		CallTreeNode sqlNode = serviceNode.getChildren().get(0);
+		Assert.assertEquals(sqlNode.getName(), "test.sql");
+		Assert.assertEquals(sqlNode.getCount(), 200);
+		Assert.assertTrue(sqlNode.getTotal() <= serviceNode.getTotal());
+		Assert.assertEquals(root.getChildren().get(1).getCount(), 1);
+	}
+
+	@Test
+	public void limitsAndThreshold() {
+		callback.setMaxNodes(2);
+		callback.setMaxDepth(2);
+		Split request = SimonManager.getStopwatch("test.request").start();
+		Split service = SimonManager.getStopwatch("test.service").start();
+		SimonManager.getStopwatch("test.sql").start().stop(); // too deep
+		service.stop();
+		SimonManager.getStopwatch("test.other").start().stop(); // too many nodes
+		request.stop();
+
+		Assert.assertEquals(reported.size(), 1);
+		CallTreeNode root = reported.get(0);
+		Assert.assertEquals(root.getChildren().size(), 1);
+		Assert.assertEquals(root.getDropped(), 1);
+		Assert.assertEquals(root.getChildren().get(0).getDropped(), 1);
+
+		callback.setThreshold(60000);
+		SimonManager.getStopwatch("test.request").start().stop();
+		Assert.assertEquals(reported.size(), 1);
+	}
+
+	@Test
+	public void rootPattern() {
+		callback.setRootPattern("test.request");
+		SimonManager.getStopwatch("test.sql").start().stop();
+		Assert.assertEquals(reported.size(), 0);
+		Split request = SimonManager.getStopwatch("test.request").start();
+		SimonManager.getStopwatch("test.sql").start().stop();
+		request.stop();
+		Assert.assertEquals(reported.size(), 1);
+		Assert.assertEquals(reported.get(0).getChildren().get(0).getName(), "test.sql");
+	}
+
+	@Test
+	public void contextPropagation() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			Split request = SimonManager.getStopwatch("test.request").start();
+			Split service = SimonManager.getStopwatch("test.service").start();
+			for (int i = 0; i < 10; i++) {
+				callback.wrap(executorService).execute(new Runnable() {
+					public void run() {
+						SimonManager.getStopwatch("test.async").start().stop();
+					}
+				});
+			}
+			executorService.submit(callback.wrap(new Callable<Object>() {
+				public Object call() {
+					return SimonManager.getStopwatch("test.async").start().stop();
+				}
+			})).get();
+			executorService.shutdown();
+			Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+			service.stop();
+			request.stop();
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		Assert.assertEquals(reported.size(), 1);
+		CallTreeNode serviceNode = reported.get(0).getChildren().get(0);
+		Assert.assertEquals(serviceNode.getName(), "test.service");
+		Assert.assertEquals(serviceNode.getChildren().size(), 1);
+		Assert.assertEquals(serviceNode.getChildren().get(0).getName(), "test.async");
+		Assert.assertEquals(serviceNode.getChildren().get(0).getCount(), 11);
+
+		// shared tree is not reused, next request starts with the fresh one
+		SimonManager.getStopwatch("test.request").start().stop();
+		Assert.assertEquals(reported.size(), 2);
+		Assert.assertEquals(reported.get(1).getChildren().size(), 0);
+	}
+
+	@Test
+	public void explicitSplits() throws Exception {
+		callback.setThreadBound(false);
+		final CallTreeSplit request = callback.begin(SimonManager.getStopwatch("test.request"));
+		CallTreeSplit service = request.start(SimonManager.getStopwatch("test.service"));
+		// thread-bound tracking is off, this split is not recorded anywhere
+		SimonManager.getStopwatch("test.ignored").start().stop();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				request.start(SimonManager.getStopwatch("test.async")).stop();
+			}
+		});
+		thread.start();
+		thread.join();
+		service.start(SimonManager.getStopwatch("test.sql")).stop();
+		service.stop();
+		Assert.assertEquals(reported.size(), 0);
+		request.stop();
+
+		Assert.assertEquals(reported.size(), 1);
+		CallTreeNode root = reported.get(0);
+		Assert.assertEquals(root.getName(), "test.request");
+		Assert.assertEquals(root.getChildren().size(), 2);
+		Assert.assertEquals(root.getChildren().get(0).getChildren().get(0).getName(), "test.sql");
+		Assert.assertEquals(root.getChildren().get(1).getName(), "test.async");
+	}
+
+	@Test
+	public void detachedTree() throws Exception {
+		final Split request = SimonManager.getStopwatch("test.request").start();
+		SimonManager.getStopwatch("test.sql").start().stop();
+		SimonManager.getStopwatch("test.unfinished").start();
+		final CallTreeContext context = callback.detach();
+		Assert.assertNotNull(context);
+		Assert.assertNull(callback.detach());
+
+		// thread is free for the next tree
+		SimonManager.getStopwatch("test.other").start().stop();
+		Assert.assertEquals(reported.size(), 1);
+		Assert.assertEquals(reported.get(0).getName(), "test.other");
+
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				request.stop();
+				callback.stopDetached(context, request);
+			}
+		});
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(reported.size(), 2);
+		CallTreeNode root = reported.get(1);
+		Assert.assertEquals(root.getName(), "test.request");
+		Assert.assertEquals(root.getCount(), 1);
+		Assert.assertEquals(root.getChildren().size(), 2);
+		Assert.assertEquals(root.getChildren().get(0).getName(), "test.sql");
+		Assert.assertEquals(root.getChildren().get(1).getCount(), 0);
+	}
+
+	@Test
+	public void ringBufferAndAsyncSinks() throws Exception {
+		RingBufferCallTreeSink ringBuffer = new RingBufferCallTreeSink(3);
+		AsyncCallTreeSink asyncSink = new AsyncCallTreeSink(ringBuffer);
+		callback.setSink(asyncSink);
+		try {
+			for (int i = 0; i < 5; i++) {
+				Split split = SimonManager.getStopwatch("test.request" + i).start();
+				SimonManager.getStopwatch("test.sql").start().stop();
+				split.stop();
+			}
+			long deadline = System.currentTimeMillis() + 10000;
+			while (ringBuffer.getReported() < 5 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} finally {
+			asyncSink.stop();
+		}
+
+		Assert.assertEquals(ringBuffer.getReported(), 5);
+		Assert.assertEquals(asyncSink.getDropped(), 0);
+		List<ReportedCallTree> reports = ringBuffer.getReports();
+		Assert.assertEquals(reports.size(), 3);
+		Assert.assertEquals(reports.get(0).getRoot().getName(), "test.request4");
+		Assert.assertEquals(reports.get(2).getRoot().getName(), "test.request2");
+		Assert.assertEquals(reports.get(0).getRoot().getChildren().get(0).getName(), "test.sql");
+
+		ringBuffer.clear();
+		Assert.assertTrue(ringBuffer.getReports().isEmpty());
+	}
+}
@@ -1,8 +1,24 @@
 package org.javasimon.utils;
 
+import org.javasimon.CallbackSkeleton;
+import org.javasimon.Counter;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Sample;
+import org.javasimon.Simon;
+import org.javasimon.SimonState;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.javasimon.clock.Clock;
 import org.testng.annotations.Test;
 import org.testng.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * OtherTestNG.
  *
@@ -21,4 +37,123 @@ public final class UtilsTestNG {
 		Assert.assertEquals(SimonUtils.presentNanoTime(942141047666L), "942 s");
 		Assert.assertEquals(SimonUtils.presentNanoTime(10942141047666L), "10942 s");
 	}
+
+	@Test
+	public void parallelTreeOperations() {
+		Manager manager = new EnabledManager();
+		for (int group = 0; group < 10; group++) {
+			for (int sub = 0; sub < 10; sub++) {
+				for (int i = 1; i <= 50; i++) {
+					manager.getStopwatch("org.javasimon.parallel.g" + group + ".s" + sub + ".sw" + i).addTime(i);
+				}
+			}
+		}
+		manager.getCounter("org.javasimon.parallel.counter").increase();
+		Simon root = manager.getSimon("org.javasimon.parallel");
+
+		StopwatchSample aggregate = ParallelSimonUtils.aggregate(root);
+		Assert.assertEquals(aggregate.getCounter(), 5000);
+		Assert.assertEquals(aggregate.getTotal(), 100 * (50 * 51 / 2));
+		Assert.assertEquals(aggregate.getMin(), 1);
+		Assert.assertEquals(aggregate.getMax(), 50);
+
+		// small cutoff and more threads so the tree is really split into many tasks
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final AtomicInteger visited = new AtomicInteger();
+			ParallelSimonUtils.visit(root, new ParallelSimonUtils.Visitor() {
+				public boolean visit(Simon simon) {
+					visited.incrementAndGet();
+					return true;
+				}
+			}, pool, 7);
+			Assert.assertEquals(visited.get(), 1 + 1 + 10 + 100 + 5000);
+		} finally {
+			pool.shutdown();
+		}
+
+		Map<String, Sample> samples = ParallelSimonUtils.collectSamples(root, false);
+		Assert.assertEquals(samples.size(), 5001);
+		Assert.assertEquals(((StopwatchSample) samples.get("org.javasimon.parallel.g9.s9.sw50")).getTotal(), 50);
+
+		ParallelSimonUtils.recursiveReset(root);
+		Assert.assertEquals(ParallelSimonUtils.aggregate(root).getCounter(), 0);
+		Assert.assertEquals(((Counter) manager.getSimon("org.javasimon.parallel.counter")).getCounter(), 0);
+
+		// state propagation goes through the parallel visitor too
+		manager.getSimon("org.javasimon.parallel.g3.s3.sw3").setState(SimonState.ENABLED, false);
+		root.setState(SimonState.DISABLED, false);
+		Assert.assertFalse(manager.getSimon("org.javasimon.parallel.g9.s9.sw50").isEnabled());
+		Assert.assertTrue(manager.getSimon("org.javasimon.parallel.g3.s3.sw3").isEnabled());
+		root.setState(SimonState.DISABLED, true);
+		Assert.assertFalse(manager.getSimon("org.javasimon.parallel.g3.s3.sw3").isEnabled());
+		Assert.assertEquals(manager.getSimon("org.javasimon.parallel.g3.s3.sw3").getState(), SimonState.INHERIT);
+		root.setState(SimonState.INHERIT, false);
+		Assert.assertTrue(manager.getSimon("org.javasimon.parallel.g9.s9.sw50").isEnabled());
+	}
+
+	@Test
+	public void autoTuner() {
+		final long[] millis = {1000};
+		Manager manager = new EnabledManager();
+		manager.setClock(new Clock() {
+			public long nanoTime() {
+				return millis[0] * SimonUtils.NANOS_IN_MILLIS;
+			}
+
+			public long milliTime() {
+				return millis[0];
+			}
+
+			public long millisForNano(long nanos) {
+				return nanos / SimonUtils.NANOS_IN_MILLIS;
+			}
+		});
+		final List<String> messages = new ArrayList<String>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			public void message(String message) {
+				messages.add(message);
+			}
+		});
+		Stopwatch fast = manager.getStopwatch("org.javasimon.tuner.fast");
+		Stopwatch slow = manager.getStopwatch("org.javasimon.tuner.slow");
+		Stopwatch rare = manager.getStopwatch("org.javasimon.tuner.rare");
+		Stopwatch sampled = manager.getStopwatch("org.javasimon.tuner.sampled");
+		Stopwatch explicit = manager.getStopwatch("org.javasimon.tuner.explicit");
+		explicit.setState(SimonState.ENABLED, false);
+
+		AutoTuner tuner = new AutoTuner(manager, 100);
+		Assert.assertEquals(tuner.tune(), 0);
+		for (int i = 0; i < 1000; i++) {
+			fast.addTime(50);
+			slow.addTime(1000000);
+			sampled.addTime(40);
+			explicit.addTime(50);
+		}
+		for (int i = 0; i < 5; i++) {
+			rare.addTime(50);
+		}
+		millis[0] += 1000;
+		tuner.setAction(AutoTuner.Action.DISABLE);
+		sampled.setSampling(2);
+		Assert.assertEquals(tuner.tune(), 1);
+		Assert.assertFalse(fast.isEnabled());
+		Assert.assertTrue(slow.isEnabled());
+		Assert.assertTrue(rare.isEnabled());
+		Assert.assertTrue(explicit.isEnabled());
+		Assert.assertEquals(messages.size(), 1);
+		Assert.assertTrue(messages.get(0).startsWith("Auto-tuner disabled Stopwatch org.javasimon.tuner.fast"), messages.get(0));
+
+		sampled.setSampling(1);
+		for (int i = 0; i < 1000; i++) {
+			sampled.addTime(40);
+		}
+		millis[0] += 1000;
+		tuner.setAction(AutoTuner.Action.SAMPLE);
+		Assert.assertEquals(tuner.tune(), 1);
+		Assert.assertEquals(sampled.getSampling(), 25);
+		Assert.assertTrue(sampled.isEnabled());
+
+		Assert.assertTrue(AutoTuner.calibrate() > 0);
+	}
 }
@@ -0,0 +1,151 @@
+package org.javasimon.examples;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.calltree.CallTreeCallback;
+import org.javasimon.calltree.CallTreeNode;
+import org.javasimon.calltree.CallTreeSink;
+import org.javasimon.calltree.CallTreeSplit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CallTreeThreadsComparison compares thread-bound and explicit mode of the {@link CallTreeCallback}
+ * with many concurrent requests. Each request is one task that starts the root split, few nested splits
+ * and then waits with the tree open - hence heap used per in-flight request can be measured. Second part
+ * of every round measures start/stop throughput of nested splits.
+ * <p/>
+ * Virtual threads are used if the JVM provides them (Java 21+), otherwise the demo falls back
+ * to platform threads (and less requests). Number of concurrent requests with virtual threads is 100k,
+ * it can be changed with the system property {@code requests}, e.g. {@code -Drequests=20000}.
+ *
+ * @since 3.0
+ */
+public final class CallTreeThreadsComparison {
+	private static final int VIRTUAL_REQUESTS = Integer.getInteger("requests", 100000);
+	private static final int PLATFORM_REQUESTS = 1000;
+	private static final int LOOP = 1000000;
+
+	private static final Stopwatch REQUEST = SimonManager.getStopwatch("org.javasimon.examples.calltree.request");
+	private static final Stopwatch SERVICE = SimonManager.getStopwatch("org.javasimon.examples.calltree.service");
+	private static final Stopwatch SQL = SimonManager.getStopwatch("org.javasimon.examples.calltree.sql");
+
+	private CallTreeThreadsComparison() {
+	}
+
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 * @throws Exception when waiting for the requests fails
+	 */
+	public static void main(String[] args) throws Exception {
+		CallTreeCallback callback = new CallTreeCallback();
+		callback.setSink(new CallTreeSink() {
+			public void report(Split split, CallTreeNode root) {
+				// we don't want to measure the sink
+			}
+		});
+		SimonManager.callback().addCallback(callback);
+
+		for (int round = 1; round <= 5; round++) {
+			System.out.println("\nRound: " + round);
+
+			callback.setThreadBound(true);
+			inFlight("Thread-bound", callback, false);
+			throughput("Thread-bound", callback, false);
+
+			callback.setThreadBound(false);
+			inFlight("Explicit", callback, true);
+			throughput("Explicit", callback, true);
+		}
+	}
+
+	private static void inFlight(String mode, final CallTreeCallback callback, final boolean explicit) throws Exception {
+		ExecutorService executor = newVirtualExecutor();
+		int requests = VIRTUAL_REQUESTS;
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool();
+			requests = PLATFORM_REQUESTS;
+		}
+		final CountDownLatch started = new CountDownLatch(requests);
+		final CountDownLatch release = new CountDownLatch(1);
+		long before = usedHeap();
+		for (int i = 0; i < requests; i++) {
+			executor.execute(new Runnable() {
+				public void run() {
+					if (explicit) {
+						CallTreeSplit request = callback.begin(REQUEST);
+						CallTreeSplit service = request.start(SERVICE);
+						service.start(SQL).stop();
+						started.countDown();
+						await(release);
+						service.stop();
+						request.stop();
+					} else {
+						Split request = REQUEST.start();
+						Split service = SERVICE.start();
+						SQL.start().stop();
+						started.countDown();
+						await(release);
+						service.stop();
+						request.stop();
+					}
+				}
+			});
+		}
+		started.await();
+		long after = usedHeap();
+		release.countDown();
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		System.out.println(mode + " heap per in-flight request (including the thread): " + (after - before) / requests + " B");
+	}
+
+	private static void throughput(String mode, CallTreeCallback callback, boolean explicit) {
+		long ns = System.nanoTime();
+		if (explicit) {
+			CallTreeSplit request = callback.begin(REQUEST);
+			for (int i = 0; i < LOOP; i++) {
+				request.start(SQL).stop();
+			}
+			request.stop();
+		} else {
+			Split request = REQUEST.start();
+			for (int i = 0; i < LOOP; i++) {
+				SQL.start().stop();
+			}
+			request.stop();
+		}
+		ns = System.nanoTime() - ns;
+		System.out.println(mode + " nested start/stop: " + ns / LOOP + " ns");
+	}
+
+	private static ExecutorService newVirtualExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,74 @@
+package org.javasimon.examples;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.Clock;
+import org.javasimon.clock.CoarseClock;
+import org.javasimon.clock.SystemClock;
+import org.javasimon.clock.WallClock;
+
+/**
+ * Compares clock strategies - raw timestamp reads of {@link SystemClock}, {@link WallClock} and {@link CoarseClock}
+ * and Counter/Stopwatch operations with each clock set on the manager.
+ *
+ * @since 3.0
+ */
+public final class ClockComparison {
+	private static final int LOOP = 10000000;
+
+	private ClockComparison() {
+	}
+
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		CoarseClock coarseClock = new CoarseClock();
+		try {
+			for (int round = 1; round <= 5; round++) {
+				System.out.println("\nRound: " + round);
+				compare("System", SystemClock.INSTANCE);
+				compare("Wall", WallClock.INSTANCE);
+				compare("Coarse", coarseClock);
+			}
+		} finally {
+			coarseClock.stop();
+			SimonManager.manager().setClock(SystemClock.INSTANCE);
+		}
+	}
+
+	private static void compare(String name, Clock clock) {
+		SimonManager.clear();
+		SimonManager.manager().setClock(clock);
+		Stopwatch stopwatch = SimonManager.getStopwatch(null);
+
+		Split split = stopwatch.start();
+		for (int i = 0; i < LOOP; i++) {
+			clock.milliTime();
+		}
+		split.stop();
+		System.out.println(name + " milliTime: " + stopwatch.getTotal() / LOOP + " ns");
+
+		Counter counter = SimonManager.getCounter("org.javasimon.examples.clock.counter");
+		stopwatch.reset();
+		split = stopwatch.start();
+		for (int i = 0; i < LOOP; i++) {
+			counter.increase();
+		}
+		split.stop();
+		System.out.println(name + " counter increase: " + stopwatch.getTotal() / LOOP + " ns");
+
+		Stopwatch tested = SimonManager.getStopwatch("org.javasimon.examples.clock.stopwatch");
+		stopwatch.reset();
+		split = stopwatch.start();
+		for (int i = 0; i < LOOP; i++) {
+			tested.start().stop();
+		}
+		split.stop();
+		System.out.println(name + " stopwatch start/stop: " + stopwatch.getTotal() / LOOP + " ns");
+	}
+}
@@ -6,6 +6,10 @@ import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.rpc.ServiceDefTarget;
 import com.google.gwt.user.client.ui.*;
+import com.google.gwt.user.cellview.client.SimplePager;
+import com.google.gwt.view.client.AsyncDataProvider;
+import com.google.gwt.view.client.HasData;
+import com.google.gwt.view.client.Range;
 
 /**
  * Gwimon console main class with entry point.
@@ -18,6 +22,10 @@ public class Gwimon implements EntryPoint {
 	private GwimonTable simonTable;
 	private FilterForm filterForm;
 
+	/** Mask and server timestamp of the last response - refresh with the same mask only asks for changes. */
+	private String lastMask;
+	private long lastTimestamp;
+
 	@Override
 	public void onModuleLoad() {
 		service = (GwimonServiceAsync) GWT.create(GwimonService.class);
@@ -32,31 +40,67 @@ public class Gwimon implements EntryPoint {
 		filterForm = new FilterForm() {
 			@Override
 			public void callToggleColumns() {
-				if (simonTable != null) {
-					simonTable.toggleColumns();
-				}
+				simonTable.toggleColumns();
 			}
 
 			@Override
 			public void callRefresh() {
-				listAllSimons();
+				String mask = filterForm.getFilterMask();
+				if (mask.equals(lastMask) && lastTimestamp > 0) {
+					listSimons(true);
+				} else {
+					// new mask changes the number of matching Simons, start from the first page
+					simonTable.setVisibleRangeAndClearData(new Range(0, simonTable.getPageSize()), true);
+				}
 			}
 		};
 
+		simonTable = new GwimonTable();
+		simonTable.setPageSize(47);
+		SimplePager pager = new SimplePager();
+		pager.setDisplay(simonTable);
+		contentPanel.add(pager);
+		contentPanel.add(simonTable);
+
 		uberPanel.add(filterForm);
 		uberPanel.add(contentPanel);
 		RootPanel.get().add(uberPanel);
 
-		listAllSimons();
+		// fires the range change with the first page
+		new AsyncDataProvider<SimonValue>() {
+			@Override
+			protected void onRangeChanged(HasData<SimonValue> display) {
+				listSimons(false);
+			}
+		}.addDataDisplay(simonTable);
 	}
 
-	private void listAllSimons() {
+	/**
+	 * Requests the visible page from the server.
+	 *
+	 * @param delta true if only Simons changed since the last response should be transferred
+	 */
+	private void listSimons(final boolean delta) {
+		final Range range = simonTable.getVisibleRange();
+		final String mask = filterForm.getFilterMask();
 		SimonFilter simonFilter = new SimonFilter();
-		simonFilter.setMask(filterForm.getFilterMask());
+		simonFilter.setMask(mask);
+		simonFilter.setSort(simonTable.getSort());
+		simonFilter.setDescending(simonTable.isDescending());
+		simonFilter.setOffset(range.getStart());
+		simonFilter.setLimit(range.getLength());
+		if (delta) {
+			simonFilter.setSince(lastTimestamp);
+		}
 		service.listSimons(simonFilter, new AsyncCallback<SimonAggregation>() {
 			@Override
 			public void onSuccess(SimonAggregation result) {
-				showSimonResults(result);
+				if (!simonTable.showPage(result, range.getStart(), !delta)) {
+					listSimons(false);
+					return;
+				}
+				lastMask = mask;
+				lastTimestamp = result.getTimestamp();
 			}
 
 			@Override
@@ -66,14 +110,6 @@ public class Gwimon implements EntryPoint {
 		});
 	}
 
-	private void showSimonResults(SimonAggregation aggregation) {
-		contentPanel.clear();
-
-		simonTable = new GwimonTable(aggregation.getSimonList());
-		simonTable.setPageSize(47);
-		contentPanel.add(simonTable);
-	}
-
 	public GwimonServiceAsync getService() {
 		return service;
 	}
@@ -2,110 +2,102 @@ package gwimon.client;
 
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.ColumnSortEvent;
+import com.google.gwt.user.cellview.client.ColumnSortList;
 import com.google.gwt.user.cellview.client.TextColumn;
-import com.google.gwt.view.client.ListDataProvider;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * GwimonTable.
+ * GwimonTable. Sorting and paging is done on the server - sorting by the column fires the range change event
+ * handled by the data provider of the table. Rows are updated in place by {@link #showPage}, delta refresh
+ * replaces only values of the changed Simons.
  *
  * @author virgo47@gmail.com
  */
 public class GwimonTable extends CellTable<SimonValue> {
-	private ListDataProvider<SimonValue> dataProvider;
 	private List<SimonColumn> hiddenColumns = new ArrayList<SimonColumn>();
 
-	public GwimonTable(List<SimonValue> simonValues) {
-		dataProvider = new ListDataProvider<SimonValue>(simonValues);
-		dataProvider.addDataDisplay(this);
+	/** Values of Simons on the current page by name. */
+	private Map<String, SimonValue> pageValues = new HashMap<String, SimonValue>();
 
-		addColumn("Simon", true, 400, new StringColumnCallback() {
+	public GwimonTable() {
+		addColumnSortHandler(new ColumnSortEvent.AsyncHandler(this));
+
+		SimonColumn nameColumn = addColumn("Simon", true, 400, SimonFilter.Sort.NAME, new ColumnCallback() {
 			@Override
 			public String getText(SimonValue simon) {
 				return simon.name;
 			}
 		});
-		addColumn("Cnt", true, 70, new ColumnCallback() {
-			@Override
-			public int compare(SimonValue o1, SimonValue o2) {
-				return (o1.counter < o2.counter) ? -1 : (o1.counter == o2.counter ? 0 : 1);
-			}
-
+		addColumn("Cnt", true, 70, SimonFilter.Sort.COUNTER, new ColumnCallback() {
 			@Override
 			public String getText(SimonValue simon) {
 				return String.valueOf(simon.counter);
 			}
 		});
-		addColumn("Total", true, 90, new NsColumnCallback() {
+		addColumn("Total", true, 90, SimonFilter.Sort.TOTAL, new NsColumnCallback() {
 			@Override
 			protected long getValue(SimonValue simon) {
 				return simon.total;
 			}
 		});
-		addColumn("Max", true, 90, new NsColumnCallback() {
+		addColumn("Max", true, 90, SimonFilter.Sort.MAX, new NsColumnCallback() {
 			@Override
 			protected long getValue(SimonValue simon) {
 				return simon.max;
 			}
 		});
-		addColumn("Min", true, 90, new NsColumnCallback() {
+		addColumn("Min", true, 90, SimonFilter.Sort.MIN, new NsColumnCallback() {
 			@Override
 			protected long getValue(SimonValue simon) {
 				return simon.min;
 			}
 		});
-		addColumn("Mean", true, 90, new NsColumnCallback() {
+		addColumn("Mean", true, 90, SimonFilter.Sort.MEAN, new NsColumnCallback() {
 			@Override
 			protected long getValue(SimonValue simon) {
 				return (long) simon.mean;
 			}
 		});
-		addColumn("Note", false, 600, new StringColumnCallback() {
+		addColumn("Note", false, 600, null, new ColumnCallback() {
 			@Override
 			public String getText(SimonValue simon) {
 				return simon.note;
 			}
 		});
 
-//		getColumnSortList().push(nameColumn);
+		getColumnSortList().push(nameColumn);
 	}
 
 	private abstract class SimonColumn extends TextColumn<SimonValue> {
 		private String header;
+		private SimonFilter.Sort sort;
 
-		public SimonColumn(String header) {
+		public SimonColumn(String header, SimonFilter.Sort sort) {
 			this.header = header;
+			this.sort = sort;
 		}
 
 		public String getHeader() {
 			return header;
 		}
+
+		public SimonFilter.Sort getSort() {
+			return sort;
+		}
 	}
 
-	private SimonColumn addColumn(String header, boolean primary, int pxWidth, final ColumnCallback columnCallback) {
-		SimonColumn column = new SimonColumn(header) {
+	private SimonColumn addColumn(String header, boolean primary, int pxWidth, SimonFilter.Sort sort, final ColumnCallback columnCallback) {
+		SimonColumn column = new SimonColumn(header, sort) {
 			@Override
 			public String getValue(SimonValue simon) {
 				return columnCallback.getText(simon);
 			}
 		};
-		column.setSortable(true);
-		ColumnSortEvent.ListHandler<SimonValue> nameSortHandler = new ColumnSortEvent.ListHandler<SimonValue>(dataProvider.getList());
-		nameSortHandler.setComparator(column, new Comparator<SimonValue>() {
-			public int compare(SimonValue o1, SimonValue o2) {
-				if (o1 == o2) {
-					return 0;
-				}
-				if (o1 != null) {
-					return (o2 != null) ? columnCallback.compare(o1, o2) : 1;
-				}
-				return -1;
-			}
-		});
-		addColumnSortHandler(nameSortHandler);
+		column.setSortable(sort != null);
 		if (primary) {
 			addColumn(column, header);
 		} else {
@@ -131,20 +123,66 @@ public class GwimonTable extends CellTable<SimonValue> {
 		redrawHeaders();
 	}
 
-	private interface ColumnCallback {
-		// Will not be null, just compare the two
-		int compare(SimonValue o1, SimonValue o2);
+	/**
+	 * Returns the column the table is sorted by.
+	 *
+	 * @return sort column for the server
+	 */
+	public SimonFilter.Sort getSort() {
+		ColumnSortList sortList = getColumnSortList();
+		if (sortList.size() == 0) {
+			return SimonFilter.Sort.NAME;
+		}
+		return ((SimonColumn) sortList.get(0).getColumn()).getSort();
+	}
+
+	/**
+	 * Returns true if the table is sorted in descending order.
+	 *
+	 * @return true for descending order
+	 */
+	public boolean isDescending() {
+		ColumnSortList sortList = getColumnSortList();
+		return sortList.size() > 0 && !sortList.get(0).isAscending();
+	}
 
+	/**
+	 * Shows the page returned from the server in place. For delta refresh the returned values replace values
+	 * of the changed Simons, other rows keep their values from the previous response.
+	 *
+	 * @param aggregation page returned from the server
+	 * @param start index of the first row of the page
+	 * @param full true if the aggregation contains values of all Simons on the page
+	 * @return false if delta refresh misses value of any Simon (e.g. Simon was moved to the page), full page
+	 * must be requested then
+	 */
+	public boolean showPage(SimonAggregation aggregation, int start, boolean full) {
+		Map<String, SimonValue> values = full ? new HashMap<String, SimonValue>() : pageValues;
+		for (SimonValue value : aggregation.getSimonList()) {
+			values.put(value.name, value);
+		}
+		List<SimonValue> rows = new ArrayList<SimonValue>(aggregation.getPageNames().size());
+		Map<String, SimonValue> newPageValues = new HashMap<String, SimonValue>();
+		for (String name : aggregation.getPageNames()) {
+			SimonValue value = values.get(name);
+			if (value == null) {
+				return false;
+			}
+			rows.add(value);
+			newPageValues.put(name, value);
+		}
+		pageValues = newPageValues;
+		setRowCount(aggregation.getTotalCount(), true);
+		setRowData(start, rows);
+		return true;
+	}
+
+	private interface ColumnCallback {
 		// Give me String value.
 		String getText(SimonValue simon);
 	}
 
 	private abstract class NsColumnCallback implements ColumnCallback {
-		@Override
-		public int compare(SimonValue o1, SimonValue o2) {
-			return (getValue(o1) < getValue(o2)) ? -1 : (getValue(o1) == getValue(o2) ? 0 : 1);
-		}
-
 		@Override
 		public String getText(SimonValue simon) {
 			return Utils.presentNanoTime(getValue(simon));
@@ -152,11 +190,4 @@ public class GwimonTable extends CellTable<SimonValue> {
 
 		protected abstract long getValue(SimonValue simon);
 	}
-
-	private abstract class StringColumnCallback implements ColumnCallback {
-		@Override
-		public int compare(SimonValue o1, SimonValue o2) {
-			return getText(o1).compareTo(getText(o2));
-		}
-	}
 }
@@ -5,13 +5,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * SimonAggregation contains various information returned from Gwimon Servlet.
+ * SimonAggregation contains various information returned from Gwimon Servlet. It contains only the requested page
+ * of Simons - {@link #getPageNames()} lists all Simons of the page in order, {@link #getSimonList()} contains values
+ * of the Simons (for delta refresh only of those that changed since {@link SimonFilter#getSince()}).
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public class SimonAggregation implements Serializable {
 	private List<SimonValue> simonList = new ArrayList<SimonValue>();
 	private SimonValue maxSimon = new SimonValue();
+	private List<String> pageNames = new ArrayList<String>();
+	private int totalCount;
+	private long timestamp;
 
 	public List<SimonValue> getSimonList() {
 		return simonList;
@@ -21,6 +26,46 @@ public class SimonAggregation implements Serializable {
 		return maxSimon;
 	}
 
+	/**
+	 * Returns names of all Simons on the page in the requested order, including those without value in
+	 * {@link #getSimonList()} because they did not change.
+	 *
+	 * @return names of Simons on the page
+	 * @since 3.0
+	 */
+	public List<String> getPageNames() {
+		return pageNames;
+	}
+
+	/**
+	 * Returns the number of all Simons matching the filter.
+	 *
+	 * @return number of matching Simons
+	 * @since 3.0
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public void setTotalCount(int totalCount) {
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * Returns the server timestamp taken before the Simons were read - client sends it back as
+	 * {@link SimonFilter#setSince(long)} for the next delta refresh.
+	 *
+	 * @return server timestamp in ms
+	 * @since 3.0
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
 	public void add(SimonValue value) {
 		updateMaxValues(maxSimon, value);
 		simonList.add(value);
@@ -1,33 +1,158 @@
-package gwimon.client;
-
-import java.io.Serializable;
-
-/**
- * Filter object that specifies what should be returned in {@link SimonAggregation}, can narrow down Simon list,
- * or even trigger reset on Simons (works as a command, sort of, too)
- *
- * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
- */
-public class SimonFilter implements Serializable {
-	/** Regex mask for Simons. */
-	private String mask;
-
-	/** Filters out {@link org.javasimon.UnknownSimon} and unused ones (counter 0). */
-	boolean undef;
-
-	public String getMask() {
-		return mask;
-	}
-
-	public void setMask(String mask) {
-		this.mask = mask;
-	}
-
-	public boolean isUndef() {
-		return undef;
-	}
-
-	public void setUndef(boolean undef) {
-		this.undef = undef;
-	}
-}
+package gwimon.client;
+
+import java.io.Serializable;
+
+/**
+ * Filter object that specifies what should be returned in {@link SimonAggregation}, can narrow down Simon list,
+ * or even trigger reset on Simons (works as a command, sort of, too). Simons are sorted and paged on the server,
+ * so only the requested page is transferred to the client. If {@link #getSince()} is set, only Simons of the page
+ * used or reset since then are returned with their values (see {@link SimonAggregation#getPageNames()}).
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public class SimonFilter implements Serializable {
+	/** Default number of Simons on the page. */
+	public static final int DEFAULT_LIMIT = 50;
+
+	/**
+	 * Column Simons are sorted by.
+	 *
+	 * @since 3.0
+	 */
+	public enum Sort {
+		NAME, COUNTER, TOTAL, MAX, MIN, MEAN
+	}
+
+	/** Regex mask for Simons. */
+	private String mask;
+
+	/** Filters out {@link org.javasimon.UnknownSimon} and unused ones (counter 0). */
+	boolean undef;
+
+	private Sort sort = Sort.NAME;
+
+	private boolean descending;
+
+	private int offset;
+
+	private int limit = DEFAULT_LIMIT;
+
+	private long since;
+
+	public String getMask() {
+		return mask;
+	}
+
+	public void setMask(String mask) {
+		this.mask = mask;
+	}
+
+	public boolean isUndef() {
+		return undef;
+	}
+
+	public void setUndef(boolean undef) {
+		this.undef = undef;
+	}
+
+	/**
+	 * Returns the column Simons are sorted by.
+	 *
+	 * @return sort column
+	 * @since 3.0
+	 */
+	public Sort getSort() {
+		return sort;
+	}
+
+	/**
+	 * Sets the column Simons are sorted by.
+	 *
+	 * @param sort sort column
+	 * @since 3.0
+	 */
+	public void setSort(Sort sort) {
+		this.sort = sort;
+	}
+
+	/**
+	 * Returns true if Simons are sorted in descending order - page with offset 0 then contains top N Simons.
+	 *
+	 * @return true for descending order
+	 * @since 3.0
+	 */
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * Sets the sort order.
+	 *
+	 * @param descending true for descending order
+	 * @since 3.0
+	 */
+	public void setDescending(boolean descending) {
+		this.descending = descending;
+	}
+
+	/**
+	 * Returns the index of the first returned Simon among all matching Simons.
+	 *
+	 * @return offset of the page
+	 * @since 3.0
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Sets the index of the first returned Simon - offset and limit together must not exceed 10000.
+	 *
+	 * @param offset offset of the page
+	 * @since 3.0
+	 */
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns the maximal number of returned Simons.
+	 *
+	 * @return size of the page
+	 * @since 3.0
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Sets the maximal number of returned Simons.
+	 *
+	 * @param limit size of the page
+	 * @since 3.0
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the timestamp of the previous response ({@link SimonAggregation#getTimestamp()}) - only Simons
+	 * changed since then are returned with values. Zero means that all Simons of the page are returned.
+	 *
+	 * @return timestamp of the previous response or zero
+	 * @since 3.0
+	 */
+	public long getSince() {
+		return since;
+	}
+
+	/**
+	 * Sets the timestamp of the previous response for delta refresh.
+	 *
+	 * @param since timestamp of the previous response or zero
+	 * @since 3.0
+	 */
+	public void setSince(long since) {
+		this.since = since;
+	}
+}
@@ -1,83 +1,242 @@
-package gwimon.server;
-
-import com.google.gwt.user.server.rpc.RemoteServiceServlet;
-import gwimon.client.GwimonService;
-import gwimon.client.SimonAggregation;
-import gwimon.client.SimonFilter;
-import gwimon.client.SimonValue;
-import org.javasimon.*;
-
-import java.util.regex.Pattern;
-
-/**
- * Gwimon Servlet providing Simon data for the GWT client.
- *
- * @author Richard "Virgo" Richter (virgo47@gmail.com)
- */
-public class GwimonServlet extends RemoteServiceServlet implements GwimonService {
-	@Override
-	public SimonAggregation listSimons(SimonFilter filter) {
-		Pattern simonMask = null;
-		if (filter.getMask() != null && !filter.getMask().isEmpty()) {
-			// TODO can fail - but maybe we don't need to solve it for now
-			simonMask = Pattern.compile(filter.getMask());
-		}
-		SimonAggregation aggregation = new SimonAggregation();
-		for (String name : SimonManager.manager().simonNames()) {
-			if (simonMask != null && !simonMask.matcher(name).find()) {
-				System.out.println("No match: " + name);
-				continue; // required match, but failed
-			}
-			SimonValue value = new SimonValue();
-			if (name.equals(Manager.ROOT_SIMON_NAME)) {
-				value.name = "!ROOT!";
-			} else {
-				value.name = name;
-			}
-
-			Sample sample = SimonManager.getSimon(name).sample();
-			if (sample != null) {
-				sampleToValueObject(value, sample);
-			}
-			aggregation.add(value);
-		}
-
-		return aggregation;
-	}
-
-	private void sampleToValueObject(SimonValue value, Sample sample) {
-		value.note = sample.getNote();
-		value.firstUsage = sample.getFirstUsage();
-		value.lastUsage = sample.getLastUsage();
-		value.lastReset = sample.getLastReset();
-
-		if (sample instanceof StopwatchSample) {
-			StopwatchSample sws = (StopwatchSample) sample;
-			value.type = SimonValue.TYPE_STOPWATCH;
-			value.counter = sws.getCounter();
-			value.max = sws.getMax();
-			value.maxTimestamp = sws.getMaxTimestamp();
-			value.min = sws.getMin();
-			value.minTimestamp = sws.getMinTimestamp();
-			value.mean = sws.getMean();
-			value.total = sws.getTotal();
-			value.active = sws.getActive();
-			value.last = sws.getLast();
-			value.maxActive = sws.getMaxActive();
-			value.maxActiveTimestamp = sws.getMaxActiveTimestamp();
-			value.standardDeviation = sws.getStandardDeviation();
-			value.variance = sws.getVariance();
-			value.varianceN = sws.getVarianceN();
-		} else if (sample instanceof CounterSample) {
-			CounterSample ctrs = (CounterSample) sample;
-			value.type = SimonValue.TYPE_COUNTER;
-			value.counter = ctrs.getCounter();
-			value.max = ctrs.getMax();
-			value.maxTimestamp = ctrs.getMaxTimestamp();
-			value.min = ctrs.getMin();
-			value.minTimestamp = ctrs.getMinTimestamp();
-			value.incrementSum = ctrs.getIncrementSum();
-			value.decrementSum = ctrs.getDecrementSum();
-		}
-	}
-}
+package gwimon.server;
+
+import com.google.gwt.user.server.rpc.RemoteServiceServlet;
+import gwimon.client.GwimonService;
+import gwimon.client.SimonAggregation;
+import gwimon.client.SimonFilter;
+import gwimon.client.SimonValue;
+import org.javasimon.*;
+import org.javasimon.clock.Clock;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Gwimon Servlet providing Simon data for the GWT client. Simons are sorted and paged on the server
+ * and the tree is walked directly, so only the page is sampled and transferred. Delta refresh returns values
+ * only for Simons used or reset since the previous response.
+ *
+ * @author Richard "Virgo" Richter (virgo47@gmail.com)
+ */
+public class GwimonServlet extends RemoteServiceServlet implements GwimonService {
+	/** Maximal number of Simons on one page. */
+	private static final int MAX_LIMIT = 1000;
+
+	/** Maximal allowed {@code offset + limit}, bounds the memory used for sorting. */
+	private static final int MAX_WINDOW = 10000;
+
+	/** Initial capacity of the sorting heap - it grows only up to the number of matching Simons. */
+	private static final int INITIAL_HEAP_CAPACITY = 16;
+
+	/**
+	 * Delta refresh returns also Simons changed shortly before the previous response - usage timestamp is taken
+	 * before the Simon is updated, so the update can become visible only after the walk of the previous response.
+	 */
+	private static final long DELTA_OVERLAP_MILLIS = 1000;
+
+	/** Last compiled mask - the same mask is sent with every refresh, so it is compiled only when it changes. */
+	private volatile CompiledMask compiledMask;
+
+	@Override
+	public SimonAggregation listSimons(SimonFilter filter) {
+		Manager manager = SimonManager.manager();
+		// taken before the walk, so the changes during the walk are returned by the next delta refresh again;
+		// usage timestamps of the Simons are derived from the nano time, the same time base is used here
+		Clock clock = manager.clock();
+		long timestamp = clock.millisForNano(clock.nanoTime()) - DELTA_OVERLAP_MILLIS;
+		Pattern simonMask = compileMask(filter.getMask());
+		SimonFilter.Sort sort = filter.getSort() != null ? filter.getSort() : SimonFilter.Sort.NAME;
+		int offset = Math.max(filter.getOffset(), 0);
+		int limit = Math.min(Math.max(filter.getLimit(), 0), MAX_LIMIT);
+		if (offset > MAX_WINDOW - limit) {
+			throw new IllegalArgumentException("Offset + limit must not exceed " + MAX_WINDOW);
+		}
+		int window = offset + limit;
+
+		// the heap keeps the window of the best entries, the worst of them on the top
+		PriorityQueue<Entry> heap = new PriorityQueue<Entry>(Math.max(Math.min(window, INITIAL_HEAP_CAPACITY), 1),
+			filter.isDescending() ? Entry.ASCENDING : Entry.DESCENDING);
+		int matched = 0;
+		Deque<Simon> stack = new ArrayDeque<Simon>();
+		stack.push(manager.getRootSimon());
+		while (!stack.isEmpty()) {
+			Simon simon = stack.pop();
+			List<Simon> children = simon.getChildren();
+			if (children != null) {
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.push(children.get(i));
+				}
+			}
+			String name = simon.getName();
+			if (simonMask != null && !simonMask.matcher(name).find()) {
+				continue; // required match, but failed
+			}
+			matched++;
+			if (window > 0) {
+				Entry entry = new Entry(simon, key(simon, sort));
+				if (heap.size() < window) {
+					heap.add(entry);
+				} else if (heap.comparator().compare(entry, heap.peek()) > 0) {
+					heap.poll();
+					heap.add(entry);
+				}
+			}
+		}
+
+		Entry[] sorted = new Entry[heap.size()];
+		for (int i = sorted.length - 1; i >= 0; i--) {
+			sorted[i] = heap.poll();
+		}
+
+		SimonAggregation aggregation = new SimonAggregation();
+		aggregation.setTimestamp(timestamp);
+		aggregation.setTotalCount(matched);
+		long since = filter.getSince();
+		for (int i = offset; i < sorted.length; i++) {
+			Simon simon = sorted[i].simon;
+			String name = simon.getName().equals(Manager.ROOT_SIMON_NAME) ? "!ROOT!" : simon.getName();
+			aggregation.getPageNames().add(name);
+			if (since > 0 && simon.getLastUsage() < since && simon.getLastReset() < since) {
+				continue; // client already has the current value
+			}
+			SimonValue value = new SimonValue();
+			value.name = name;
+			Sample sample = simon.sample();
+			if (sample != null) {
+				sampleToValueObject(value, sample);
+			}
+			aggregation.add(value);
+		}
+		return aggregation;
+	}
+
+	private Pattern compileMask(String mask) {
+		if (mask == null || mask.isEmpty()) {
+			return null;
+		}
+		CompiledMask cached = compiledMask;
+		if (cached != null && cached.mask.equals(mask)) {
+			return cached.pattern;
+		}
+		try {
+			cached = new CompiledMask(mask, Pattern.compile(mask));
+		} catch (PatternSyntaxException e) {
+			throw new IllegalArgumentException("Invalid Simon mask: " + e.getMessage());
+		}
+		compiledMask = cached;
+		return cached.pattern;
+	}
+
+	/**
+	 * Returns the sort key of the Simon read directly from the Simon, so the sample is created only for Simons
+	 * on the returned page.
+	 */
+	private static double key(Simon simon, SimonFilter.Sort sort) {
+		if (simon instanceof Stopwatch) {
+			Stopwatch stopwatch = (Stopwatch) simon;
+			switch (sort) {
+				case COUNTER:
+					return stopwatch.getCounter();
+				case TOTAL:
+					return stopwatch.getTotal();
+				case MAX:
+					return stopwatch.getMax();
+				case MIN:
+					return stopwatch.getMin();
+				case MEAN:
+					return stopwatch.getMean();
+				default:
+					return 0;
+			}
+		}
+		if (simon instanceof Counter) {
+			Counter counter = (Counter) simon;
+			switch (sort) {
+				case COUNTER:
+					return counter.getCounter();
+				case MAX:
+					return counter.getMax();
+				case MIN:
+					return counter.getMin();
+				default:
+					return 0;
+			}
+		}
+		return 0;
+	}
+
+	private void sampleToValueObject(SimonValue value, Sample sample) {
+		value.note = sample.getNote();
+		value.firstUsage = sample.getFirstUsage();
+		value.lastUsage = sample.getLastUsage();
+		value.lastReset = sample.getLastReset();
+
+		if (sample instanceof StopwatchSample) {
+			StopwatchSample sws = (StopwatchSample) sample;
+			value.type = SimonValue.TYPE_STOPWATCH;
+			value.counter = sws.getCounter();
+			value.max = sws.getMax();
+			value.maxTimestamp = sws.getMaxTimestamp();
+			value.min = sws.getMin();
+			value.minTimestamp = sws.getMinTimestamp();
+			value.mean = sws.getMean();
+			value.total = sws.getTotal();
+			value.active = sws.getActive();
+			value.last = sws.getLast();
+			value.maxActive = sws.getMaxActive();
+			value.maxActiveTimestamp = sws.getMaxActiveTimestamp();
+			value.standardDeviation = sws.getStandardDeviation();
+			value.variance = sws.getVariance();
+			value.varianceN = sws.getVarianceN();
+		} else if (sample instanceof CounterSample) {
+			CounterSample ctrs = (CounterSample) sample;
+			value.type = SimonValue.TYPE_COUNTER;
+			value.counter = ctrs.getCounter();
+			value.max = ctrs.getMax();
+			value.maxTimestamp = ctrs.getMaxTimestamp();
+			value.min = ctrs.getMin();
+			value.minTimestamp = ctrs.getMinTimestamp();
+			value.incrementSum = ctrs.getIncrementSum();
+			value.decrementSum = ctrs.getDecrementSum();
+		}
+	}
+
+	/**
+	 * Simon with the sort key captured when the Simon was visited, so the ordering is stable even if the Simon
+	 * is updated during the walk. Ties (and the whole {@link SimonFilter.Sort#NAME} order) are resolved by names.
+	 */
+	private static final class Entry {
+		static final Comparator<Entry> ASCENDING = new Comparator<Entry>() {
+			public int compare(Entry o1, Entry o2) {
+				int result = Double.compare(o1.key, o2.key);
+				return result != 0 ? result : o1.simon.getName().compareTo(o2.simon.getName());
+			}
+		};
+
+		static final Comparator<Entry> DESCENDING = Collections.reverseOrder(ASCENDING);
+
+		private final Simon simon;
+		private final double key;
+
+		Entry(Simon simon, double key) {
+			this.simon = simon;
+			this.key = key;
+		}
+	}
+
+	private static final class CompiledMask {
+		private final String mask;
+		private final Pattern pattern;
+
+		CompiledMask(String mask, Pattern pattern) {
+			this.mask = mask;
+			this.pattern = pattern;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package org.javasimon.javaee;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Response wrapper used by {@link SimonServletFilter} that counts the size of the response body. Bytes are counted
+ * for the output stream, characters for the writer (the real number of bytes depends on the encoding). HTTP status
+ * is read from the wrapped response.
+ *
+ * @since 3.0
+ */
+final class CountingResponseWrapper extends HttpServletResponseWrapper {
+	private long count;
+
+	private ServletOutputStream outputStream;
+
+	private PrintWriter writer;
+
+	/**
+	 * Wraps the response.
+	 *
+	 * @param response wrapped HTTP response
+	 */
+	CountingResponseWrapper(HttpServletResponse response) {
+		super(response);
+	}
+
+	/**
+	 * Returns the number of bytes (or characters for the writer) written to the response body.
+	 *
+	 * @return size of the response body
+	 */
+	long getCount() {
+		return count;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (outputStream == null) {
+			outputStream = new CountingOutputStream(super.getOutputStream());
+		}
+		return outputStream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			writer = new PrintWriter(new CountingWriter(super.getWriter()));
+		}
+		return writer;
+	}
+
+	/**
+	 * Output stream counting the written bytes.
+	 */
+	private final class CountingOutputStream extends ServletOutputStream {
+		private final ServletOutputStream out;
+
+		CountingOutputStream(ServletOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writer counting the written characters.
+	 */
+	private final class CountingWriter extends FilterWriter {
+		CountingWriter(Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			out.write(c);
+			count++;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write(cbuf, off, len);
+			count += len;
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			out.write(str, off, len);
+			count += len;
+		}
+	}
+}
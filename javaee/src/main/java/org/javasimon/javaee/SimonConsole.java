@@ -0,0 +1,421 @@
+package org.javasimon.javaee;
+
+import org.javasimon.Counter;
+import org.javasimon.Simon;
+import org.javasimon.SimonException;
+import org.javasimon.SimonPattern;
+import org.javasimon.Stopwatch;
+import org.javasimon.utils.SimonUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Query of the {@link SimonServletFilter} console listing Simons as JSON or HTML. Simons are selected
+ * on the server side and only the requested page is written - the output is streamed to the response
+ * writer row by row. Query is created from the request parameters:
+ * <ul>
+ * <li>{@code pattern} - {@link SimonPattern} of the listed Simons, all Simons by default</li>
+ * <li>{@code type} - {@code stopwatch} or {@code counter}, both by default (unknown Simons are never listed)</li>
+ * <li>{@code sort} - {@code name} (default, tree order), {@code total}, {@code max}, {@code mean}
+ * or {@code counter} - values are sorted in descending order</li>
+ * <li>{@code limit} - maximal number of listed Simons (top-N), {@link #DEFAULT_LIMIT} by default</li>
+ * <li>{@code offset} - number of skipped Simons for paging, 0 by default</li>
+ * </ul>
+ * Without sorting the tree is listed in its order and the walk only counts the matching Simons after the page
+ * is written. With sorting only the best {@code offset + limit} Simons are kept in a bounded heap while
+ * the tree is walked.
+ *
+ * @since 3.0
+ */
+final class SimonConsole {
+	/**
+	 * Default maximal number of listed Simons.
+	 */
+	static final int DEFAULT_LIMIT = 100;
+
+	/**
+	 * Maximal allowed {@code offset + limit}, bounds the memory used for sorting.
+	 */
+	static final int MAX_WINDOW = 10000;
+
+	/**
+	 * Sort order of the listed Simons.
+	 */
+	enum Sort {
+		NAME, TOTAL, MAX, MEAN, COUNTER;
+
+		double key(Simon simon) {
+			if (simon instanceof Stopwatch) {
+				Stopwatch stopwatch = (Stopwatch) simon;
+				switch (this) {
+					case TOTAL:
+						return stopwatch.getTotal();
+					case MAX:
+						return stopwatch.getMax();
+					case MEAN:
+						return stopwatch.getMean();
+					default:
+						return stopwatch.getCounter();
+				}
+			}
+			Counter counter = (Counter) simon;
+			switch (this) {
+				case MAX:
+					return counter.getMax();
+				case COUNTER:
+					return counter.getCounter();
+				default:
+					return 0;
+			}
+		}
+	}
+
+	private final String patternString;
+
+	private final SimonPattern pattern;
+
+	private final Class<? extends Simon> type;
+
+	private final Sort sort;
+
+	private final int offset;
+
+	private final int limit;
+
+	private SimonConsole(String patternString, SimonPattern pattern, Class<? extends Simon> type, Sort sort, int offset, int limit) {
+		this.patternString = patternString;
+		this.pattern = pattern;
+		this.type = type;
+		this.sort = sort;
+		this.offset = offset;
+		this.limit = limit;
+	}
+
+	/**
+	 * Creates the query from the request parameters.
+	 *
+	 * @param request HTTP request
+	 * @return console query
+	 * @throws IllegalArgumentException if any parameter is invalid
+	 */
+	static SimonConsole fromRequest(HttpServletRequest request) {
+		SimonPattern pattern = null;
+		String patternParam = request.getParameter("pattern");
+		if (patternParam != null && patternParam.length() > 0) {
+			try {
+				pattern = new SimonPattern(patternParam);
+			} catch (SimonException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		}
+
+		Class<? extends Simon> type = Simon.class;
+		String typeParam = request.getParameter("type");
+		if ("stopwatch".equalsIgnoreCase(typeParam)) {
+			type = Stopwatch.class;
+		} else if ("counter".equalsIgnoreCase(typeParam)) {
+			type = Counter.class;
+		} else if (typeParam != null && typeParam.length() > 0 && !"all".equalsIgnoreCase(typeParam)) {
+			throw new IllegalArgumentException("Invalid type: " + typeParam);
+		}
+
+		Sort sort = Sort.NAME;
+		String sortParam = request.getParameter("sort");
+		if (sortParam != null && sortParam.length() > 0) {
+			try {
+				sort = Sort.valueOf(sortParam.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Invalid sort: " + sortParam);
+			}
+		}
+
+		int offset = intParam(request, "offset", 0);
+		int limit = intParam(request, "limit", DEFAULT_LIMIT);
+		if (offset + limit > MAX_WINDOW) {
+			throw new IllegalArgumentException("Offset + limit must not exceed " + MAX_WINDOW);
+		}
+		return new SimonConsole(pattern != null ? patternParam : "", pattern, type, sort, offset, limit);
+	}
+
+	private static int intParam(HttpServletRequest request, String name, int defaultValue) {
+		String value = request.getParameter(name);
+		if (value == null || value.length() == 0) {
+			return defaultValue;
+		}
+		try {
+			int result = Integer.parseInt(value);
+			if (result >= 0) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid " + name + ": " + value);
+	}
+
+	/**
+	 * Writes the selected Simons as JSON object with the page parameters, the array of Simons and the number
+	 * of all matching Simons. Times are in nanoseconds, undefined min/max values are null.
+	 *
+	 * @param root root of the listed tree
+	 * @param writer response writer
+	 */
+	void writeJson(Simon root, final PrintWriter writer) {
+		writer.print("{\"offset\":" + offset + ",\"limit\":" + limit + ",\"sort\":\"" + sort.name().toLowerCase() + "\",\"simons\":[");
+		int matched = select(root, new RowWriter() {
+			public void write(Simon simon, int index) {
+				if (index > offset) {
+					writer.print(',');
+				}
+				writeJsonRow(simon, writer);
+			}
+		});
+		writer.print("],\"matched\":" + matched + "}");
+	}
+
+	private void writeJsonRow(Simon simon, PrintWriter writer) {
+		writer.print("\n{\"name\":\"");
+		writer.print(simon.getName());
+		writer.print("\",\"enabled\":");
+		writer.print(simon.isEnabled());
+		if (simon instanceof Stopwatch) {
+			Stopwatch stopwatch = (Stopwatch) simon;
+			writer.print(",\"type\":\"stopwatch\",\"counter\":" + stopwatch.getCounter()
+				+ ",\"total\":" + stopwatch.getTotal()
+				+ ",\"min\":" + jsonMinMax(stopwatch.getMin())
+				+ ",\"max\":" + jsonMinMax(stopwatch.getMax())
+				+ ",\"mean\":" + (long) stopwatch.getMean()
+				+ ",\"active\":" + stopwatch.getActive());
+		} else {
+			Counter counter = (Counter) simon;
+			writer.print(",\"type\":\"counter\",\"counter\":" + counter.getCounter()
+				+ ",\"min\":" + jsonMinMax(counter.getMin())
+				+ ",\"max\":" + jsonMinMax(counter.getMax())
+				+ ",\"incrementSum\":" + counter.getIncrementSum()
+				+ ",\"decrementSum\":" + counter.getDecrementSum());
+		}
+		if (simon.getNote() != null) {
+			writer.print(",\"note\":\"");
+			writer.print(jsonEscape(simon.getNote()));
+			writer.print('"');
+		}
+		writer.print('}');
+	}
+
+	private static String jsonMinMax(long value) {
+		return value == Long.MAX_VALUE || value == Long.MIN_VALUE ? "null" : String.valueOf(value);
+	}
+
+	private static String jsonEscape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the HTML page with the query form, the table of selected Simons and the paging links.
+	 *
+	 * @param root root of the listed tree
+	 * @param writer response writer
+	 * @param consoleUri URI of the HTML console (used in the form and links)
+	 */
+	void writeHtml(Simon root, final PrintWriter writer, String consoleUri) {
+		writer.println("<!DOCTYPE html>\n<html><head><title>Simon Console</title>"
+			+ "<style>td,th{padding:2px 8px;font-family:monospace}td.n{text-align:right}</style></head><body>");
+		writer.println("<form action=\"" + htmlEscape(consoleUri) + "\">Pattern <input name=\"pattern\" value=\""
+			+ htmlEscape(patternString) + "\"> Type " + select("type", typeName(), "all", "stopwatch", "counter")
+			+ " Sort " + select("sort", sort.name().toLowerCase(), "name", "total", "max", "mean", "counter")
+			+ " Limit <input name=\"limit\" size=\"5\" value=\"" + limit + "\"> <input type=\"submit\" value=\"Show\"></form>");
+		writer.println("<table><tr><th>Name</th><th>Type</th><th>Counter</th><th>Total</th><th>Min</th><th>Max</th>"
+			+ "<th>Mean</th><th>Active</th><th>Note</th></tr>");
+		int matched = select(root, new RowWriter() {
+			public void write(Simon simon, int index) {
+				writeHtmlRow(simon, writer);
+			}
+		});
+		writer.println("</table>");
+		writer.print("<p>" + Math.min(offset + 1, matched) + " - " + Math.min(offset + limit, matched) + " of " + matched + " ");
+		if (offset > 0) {
+			writer.print("<a href=\"" + htmlEscape(pageUri(consoleUri, Math.max(offset - limit, 0))) + "\">previous</a> ");
+		}
+		if (offset + limit < matched && offset + 2 * limit <= MAX_WINDOW) {
+			writer.print("<a href=\"" + htmlEscape(pageUri(consoleUri, offset + limit)) + "\">next</a>");
+		}
+		writer.println("</p></body></html>");
+	}
+
+	private void writeHtmlRow(Simon simon, PrintWriter writer) {
+		writer.print("<tr><td>" + (simon.isEnabled() ? "" : "(-) ") + htmlEscape(simon.getName()) + "</td>");
+		if (simon instanceof Stopwatch) {
+			Stopwatch stopwatch = (Stopwatch) simon;
+			writer.print("<td>stopwatch</td><td class=\"n\">" + stopwatch.getCounter()
+				+ "</td><td class=\"n\">" + SimonUtils.presentNanoTime(stopwatch.getTotal())
+				+ "</td><td class=\"n\">" + SimonUtils.presentMinMaxSplit(stopwatch.getMin())
+				+ "</td><td class=\"n\">" + SimonUtils.presentMinMaxSplit(stopwatch.getMax())
+				+ "</td><td class=\"n\">" + SimonUtils.presentNanoTime((long) stopwatch.getMean())
+				+ "</td><td class=\"n\">" + stopwatch.getActive() + "</td>");
+		} else {
+			Counter counter = (Counter) simon;
+			writer.print("<td>counter</td><td class=\"n\">" + counter.getCounter()
+				+ "</td><td></td><td class=\"n\">" + SimonUtils.presentMinMaxCount(counter.getMin())
+				+ "</td><td class=\"n\">" + SimonUtils.presentMinMaxCount(counter.getMax())
+				+ "</td><td></td><td></td>");
+		}
+		writer.println("<td>" + (simon.getNote() != null ? htmlEscape(simon.getNote()) : "") + "</td></tr>");
+	}
+
+	private String typeName() {
+		return type == Stopwatch.class ? "stopwatch" : type == Counter.class ? "counter" : "all";
+	}
+
+	private static String select(String name, String selected, String... options) {
+		StringBuilder sb = new StringBuilder("<select name=\"").append(name).append("\">");
+		for (String option : options) {
+			sb.append("<option").append(option.equals(selected) ? " selected" : "").append('>').append(option).append("</option>");
+		}
+		return sb.append("</select>").toString();
+	}
+
+	private String pageUri(String consoleUri, int pageOffset) {
+		return consoleUri + "?pattern=" + urlEncode(patternString) + "&type=" + typeName()
+			+ "&sort=" + sort.name().toLowerCase() + "&limit=" + limit + "&offset=" + pageOffset;
+	}
+
+	private static String urlEncode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String htmlEscape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '<':
+					sb.append("&lt;");
+					break;
+				case '>':
+					sb.append("&gt;");
+					break;
+				case '&':
+					sb.append("&amp;");
+					break;
+				case '"':
+					sb.append("&quot;");
+					break;
+				default:
+					sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Walks the tree and passes the Simons of the requested page to the row writer.
+	 *
+	 * @param root root of the walked tree
+	 * @param rowWriter receives Simons of the page
+	 * @return number of all matching Simons
+	 */
+	private int select(Simon root, RowWriter rowWriter) {
+		int matched = 0;
+		int window = offset + limit;
+		PriorityQueue<Entry> heap = sort != Sort.NAME ? new PriorityQueue<Entry>(Math.max(window, 1)) : null;
+
+		Deque<Simon> stack = new ArrayDeque<Simon>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Simon simon = stack.pop();
+			List<Simon> children = simon.getChildren();
+			if (children != null) {
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.push(children.get(i));
+				}
+			}
+			if (!matches(simon)) {
+				continue;
+			}
+			if (heap == null) {
+				if (matched >= offset && matched < window) {
+					rowWriter.write(simon, matched);
+				}
+			} else if (window > 0) {
+				Entry entry = new Entry(simon, sort.key(simon));
+				if (heap.size() < window) {
+					heap.add(entry);
+				} else if (entry.compareTo(heap.peek()) > 0) {
+					heap.poll();
+					heap.add(entry);
+				}
+			}
+			matched++;
+		}
+
+		if (heap != null) {
+			Entry[] sorted = new Entry[heap.size()];
+			for (int i = sorted.length - 1; i >= 0; i--) {
+				sorted[i] = heap.poll();
+			}
+			for (int i = offset; i < sorted.length; i++) {
+				rowWriter.write(sorted[i].simon, i);
+			}
+		}
+		return matched;
+	}
+
+	private boolean matches(Simon simon) {
+		return (simon instanceof Stopwatch || simon instanceof Counter) && type.isInstance(simon)
+			&& (pattern == null || pattern.matches(simon.getName()));
+	}
+
+	/**
+	 * Receives the Simons of the requested page.
+	 */
+	private interface RowWriter {
+		/**
+		 * Writes the Simon.
+		 *
+		 * @param simon written Simon
+		 * @param index index of the Simon among all matching Simons
+		 */
+		void write(Simon simon, int index);
+	}
+
+	/**
+	 * Simon with the sort key captured when the Simon was visited, so the ordering is stable even if the Simon
+	 * is updated during the walk. Lower keys come first in the heap, ties are broken by names.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		private final Simon simon;
+		private final double key;
+
+		Entry(Simon simon, double key) {
+			this.simon = simon;
+			this.key = key;
+		}
+
+		public int compareTo(Entry o) {
+			int result = Double.compare(key, o.key);
+			return result != 0 ? result : o.simon.getName().compareTo(simon.getName());
+		}
+	}
+}
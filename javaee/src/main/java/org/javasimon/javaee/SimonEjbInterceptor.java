@@ -1,14 +1,32 @@
 package org.javasimon.javaee;
 
+import org.javasimon.Counter;
 import org.javasimon.Manager;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.aop.Monitored;
+import org.javasimon.aop.MonitoredSampling;
 
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Simon EJB Interceptor measuring EJB method execution time.
+ * <p/>
+ * Stopwatch is named by the bean class and the method signature under the {@link #DEFAULT_EJB_INTERCEPTOR_PREFIX},
+ * e.g. {@code org.javasimon.ejb.com.acme.OrderBean.find(String,int)}, so overloaded methods and methods of different
+ * beans do not collide. {@link Monitored} annotation on the bean class replaces the class part of the name,
+ * annotation on the method replaces the signature part (and can set the sampling of the Stopwatch). Stopwatches are
+ * resolved once per bean class and method and cached in a {@link ClassValue} shared by all interceptor instances,
+ * so the cache does not hold the class loader of the bean.
+ * <p/>
+ * Time of the invocations that threw an exception is added also to the child Stopwatch {@link #EXCEPTION_SIMON_NAME}
+ * and the number of invocations in progress for each bean is tracked by the Counter {@link #IN_FLIGHT_SIMON_NAME}
+ * under the bean name - its max shows the peak concurrency of the bean.
  *
  * @author <a href="mailto:richard.richter@siemens-enterprise.com">Richard "Virgo" Richter</a>
  * @version $Revision$ $Date$
@@ -20,6 +38,27 @@ public class SimonEjbInterceptor {
 	 */
 	public static final String DEFAULT_EJB_INTERCEPTOR_PREFIX = "org.javasimon.ejb";
 
+	/**
+	 * Local name of the child Stopwatch measuring invocations that threw an exception.
+	 *
+	 * @since 3.0
+	 */
+	public static final String EXCEPTION_SIMON_NAME = "[exception]";
+
+	/**
+	 * Local name of the Counter (under the bean name) with the number of invocations in progress.
+	 *
+	 * @since 3.0
+	 */
+	public static final String IN_FLIGHT_SIMON_NAME = "[in-flight]";
+
+	private static final ClassValue<ConcurrentMap<Method, Monitor>> MONITORS = new ClassValue<ConcurrentMap<Method, Monitor>>() {
+		@Override
+		protected ConcurrentMap<Method, Monitor> computeValue(Class<?> beanClass) {
+			return new ConcurrentHashMap<Method, Monitor>();
+		}
+	};
+
 	/**
 	 * Around invoke method that measures the split for one method invocation.
 	 *
@@ -29,12 +68,86 @@ public class SimonEjbInterceptor {
 	 */
 	@AroundInvoke
 	public Object monitor(InvocationContext context) throws Exception {
-		String simonName = context.getMethod().getName();
-		Split split = SimonManager.getStopwatch(DEFAULT_EJB_INTERCEPTOR_PREFIX + Manager.HIERARCHY_DELIMITER + simonName).start();
+		Monitor monitor = getMonitor(context);
+		monitor.inFlight.increase();
+		Split split = monitor.stopwatch.start();
+		boolean success = false;
 		try {
-			return context.proceed();
+			Object result = context.proceed();
+			success = true;
+			return result;
 		} finally {
 			split.stop();
+			monitor.inFlight.decrease();
+			if (!success && split.isEnabled()) {
+				monitor.exceptionStopwatch().addTime(split.runningFor());
+			}
+		}
+	}
+
+	private Monitor getMonitor(InvocationContext context) {
+		Class<?> beanClass = context.getTarget() != null ? context.getTarget().getClass() : context.getMethod().getDeclaringClass();
+		Method method = context.getMethod();
+		ConcurrentMap<Method, Monitor> monitors = MONITORS.get(beanClass);
+		Monitor monitor = monitors.get(method);
+		if (monitor != null && SimonManager.isCurrent(monitor.stopwatch) && SimonManager.isCurrent(monitor.inFlight)) {
+			return monitor;
+		}
+
+		Monitored classAnnotation = beanClass.getAnnotation(Monitored.class);
+		Monitored methodAnnotation = method.getAnnotation(Monitored.class);
+		String beanName = DEFAULT_EJB_INTERCEPTOR_PREFIX + Manager.HIERARCHY_DELIMITER
+			+ (classAnnotation != null && classAnnotation.name().length() > 0 ? classAnnotation.name() : beanClass.getName());
+		String name = beanName + Manager.HIERARCHY_DELIMITER
+			+ (methodAnnotation != null && methodAnnotation.name().length() > 0 ? methodAnnotation.name() : signature(method));
+		Stopwatch stopwatch = SimonManager.getStopwatch(name);
+		int sampling = MonitoredSampling.resolve(classAnnotation, methodAnnotation);
+		if (sampling != 1 && stopwatch.getSampling() == 1) {
+			stopwatch.setSampling(sampling);
+		}
+		monitor = new Monitor(name, stopwatch, SimonManager.getCounter(beanName + Manager.HIERARCHY_DELIMITER + IN_FLIGHT_SIMON_NAME));
+		monitors.put(method, monitor);
+		return monitor;
+	}
+
+	/**
+	 * Returns the method name with simple names of the parameter types - e.g. {@code find(String,int)}.
+	 */
+	private static String signature(Method method) {
+		StringBuilder sb = new StringBuilder(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(parameterTypes[i].getSimpleName());
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Resolved Simons of the method - the whole monitor is resolved again if the Stopwatch or the in-flight Counter
+	 * is not current. The exception Stopwatch is resolved on the first failure and checked only when it is used.
+	 */
+	private static final class Monitor {
+		private final String name;
+		private final Stopwatch stopwatch;
+		private volatile Stopwatch exception;
+		private final Counter inFlight;
+
+		Monitor(String name, Stopwatch stopwatch, Counter inFlight) {
+			this.name = name;
+			this.stopwatch = stopwatch;
+			this.inFlight = inFlight;
+		}
+
+		Stopwatch exceptionStopwatch() {
+			Stopwatch exception = this.exception;
+			if (!SimonManager.isCurrent(exception)) {
+				exception = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + EXCEPTION_SIMON_NAME);
+				this.exception = exception;
+			}
+			return exception;
 		}
 	}
 }
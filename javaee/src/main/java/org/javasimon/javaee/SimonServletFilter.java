@@ -1,25 +1,51 @@
 package org.javasimon.javaee;
 
+import org.javasimon.Counter;
 import org.javasimon.Manager;
+import org.javasimon.SimonException;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
+import org.javasimon.calltree.AsyncCallTreeSink;
+import org.javasimon.calltree.CallTreeCallback;
+import org.javasimon.calltree.CallTreeContext;
+import org.javasimon.calltree.CallTreeNode;
+import org.javasimon.calltree.CallTreeSink;
+import org.javasimon.calltree.LoggingCallTreeSink;
+import org.javasimon.calltree.ReportedCallTree;
+import org.javasimon.calltree.RingBufferCallTreeSink;
 import org.javasimon.utils.SimonUtils;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.PrintWriter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Simon Servlet filter measuring HTTP request execution times. Non-HTTP usages are not supported.
  * Filter provides these functions:
  * <ul>
  *     <li>measures all requests and creates tree of Simons with names derived from URLs</li>
- *     <li>checks if the request is not longer then a specified threshold and logs warning (TODO)</li>
- *     <li>provides basic "console" function if config parameter {@link #INIT_PARAM_SIMON_CONSOLE_PATH} is used in {@code web.xml}</li>
+ *     <li>collapses numeric and UUID path segments into {@link #ID_SEGMENT} so REST URLs like {@code /order/123}
+ *     and {@code /order/456} share one Simon (can be switched off with {@link #INIT_PARAM_URI_TEMPLATING})</li>
+ *     <li>caches Stopwatches for the request URIs so the name is derived only once per URI, templated URIs
+ *     are cached by their Simon name (see {@link #INIT_PARAM_STOPWATCH_CACHE_SIZE})</li>
+ *     <li>measures asynchronous (Servlet 3) requests until their completion if {@link #INIT_PARAM_ASYNC} is true -
+ *     see {@link #doFilter(ServletRequest, ServletResponse, FilterChain)}</li>
+ *     <li>breaks the requests down by the HTTP status class and exception type and counts response bytes
+ *     if {@link #INIT_PARAM_BREAKDOWN} is true</li>
+ *     <li>reports requests longer than the threshold with the tree of all nested splits (JDBC, EJB, ...) started
+ *     on the request thread - see {@link #INIT_PARAM_REPORT_THRESHOLD}</li>
+ *     <li>provides basic "console" function if config parameter {@link #INIT_PARAM_SIMON_CONSOLE_PATH} is used in {@code web.xml} -
+ *     plain text tree of Simons, list of Simons as JSON ({@code /json}) or HTML ({@code /html}) filtered, sorted and paged
+ *     on the server side (see {@link SimonConsole} for parameters)</li>
  * </ul>
  *
  * @author Richard Richter
@@ -46,30 +72,180 @@ public class SimonServletFilter implements Filter {
 
 	/**
 	 * Name of filter init parameter that sets the value of threshold in milliseconds
-	 * for maximal request duration beyond which all splits will be dumped to log.
+	 * for maximal request duration beyond which all splits will be dumped to log. Splits started during
+	 * the request are collected by {@link CallTreeCallback} registered by the filter - the tree of nested splits
+	 * of the slow request is handed over to the sink ({@link #INIT_PARAM_REPORT_SINK}) on a background thread
+	 * and the last slow requests are kept for the console ({@link #INIT_PARAM_REPORT_BUFFER_SIZE}). Memory is
+	 * bounded by the default limits of the call tree, by the size of the buffer and by the queue of the background
+	 * thread.
 	 */
 	public static final String INIT_PARAM_REPORT_THRESHOLD = "report-threshold";
 
+	/**
+	 * Name of filter init parameter with the class name of the {@link CallTreeSink} receiving slow requests,
+	 * {@link LoggingCallTreeSink} is used by default.
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_REPORT_SINK = "report-sink";
+
+	/**
+	 * Name of filter init parameter that sets the number of the last slow requests shown in the console
+	 * (subcommand {@code /slow}).
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_REPORT_BUFFER_SIZE = "report-buffer-size";
+
+	/**
+	 * Default number of the last slow requests shown in the console.
+	 *
+	 * @since 3.0
+	 */
+	public static final int DEFAULT_REPORT_BUFFER_SIZE = 50;
+
 	/**
 	 * Name of filter init parameter that sets relative ULR path that will provide
 	 * Simon console page.
 	 */
 	public static final String INIT_PARAM_SIMON_CONSOLE_PATH = "console-path";
 
+	/**
+	 * Name of filter init parameter that switches off collapsing of the numeric and UUID path segments
+	 * if set to {@code false}.
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_URI_TEMPLATING = "uri-templating";
+
+	/**
+	 * Name of filter init parameter that sets the maximal number of request URIs (and templated Simon names)
+	 * with cached Stopwatch, {@code 0} switches the cache off. When the cache is full the entry not used since
+	 * the last eviction is replaced (second chance policy).
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_STOPWATCH_CACHE_SIZE = "stopwatch-cache-size";
+
+	/**
+	 * Default maximal number of request URIs with cached Stopwatch.
+	 *
+	 * @since 3.0
+	 */
+	public static final int DEFAULT_STOPWATCH_CACHE_SIZE = 2000;
+
+	/**
+	 * Part of the Simon name replacing numeric and UUID path segments - {@code /order/123} is measured
+	 * by Simon {@code order.[id]}.
+	 *
+	 * @since 3.0
+	 */
+	public static final String ID_SEGMENT = "[id]";
+
+	/**
+	 * Name of filter init parameter that switches on measuring of asynchronous requests until their completion
+	 * if set to {@code true}. Filter must be declared with {@code <async-supported>true</async-supported>}
+	 * in {@code web.xml} and Servlet 3 container is required.
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_ASYNC = "async";
+
+	/**
+	 * Local name of the child Stopwatch measuring the dispatch time of asynchronous requests (time until
+	 * the request was suspended). Parent Stopwatch measures the total time until the completion.
+	 *
+	 * @since 3.0
+	 */
+	public static final String DISPATCH_SIMON_NAME = "[dispatch]";
+
+	/**
+	 * Local name of the Counter (under the filter prefix) with the number of suspended asynchronous requests.
+	 *
+	 * @since 3.0
+	 */
+	public static final String SUSPENDED_SIMON_NAME = "[suspended]";
+
+	/**
+	 * Name of filter init parameter that switches on the breakdown of the requests if set to {@code true}.
+	 * Time of each request is added also to the child Stopwatch of the URI Stopwatch named by the HTTP status
+	 * class ({@code [2xx]}, {@code [4xx]}, ...) or by the simple class name of the exception if the request
+	 * failed ({@code [IllegalStateException]}, nested classes keep the {@code $} in the name). Asynchronous requests
+	 * that timed out are added to {@link #TIMEOUT_SIMON_NAME}. Size of the response body is added to the child Counter
+	 * {@link #BYTES_SIMON_NAME}. For asynchronous requests only bytes going through the response
+	 * passed down the filter chain are captured - use {@code startAsync(request, response)} to start
+	 * asynchronous processing.
+	 *
+	 * @since 3.0
+	 */
+	public static final String INIT_PARAM_BREAKDOWN = "breakdown";
+
+	/**
+	 * Local name of the child Counter of the URI Stopwatch with the total size of response bodies - bytes for
+	 * the output stream, characters for the writer.
+	 *
+	 * @since 3.0
+	 */
+	public static final String BYTES_SIMON_NAME = "[bytes]";
+
+	/**
+	 * Local name of the child Stopwatch of the URI Stopwatch with the time of asynchronous requests that timed out.
+	 *
+	 * @since 3.0
+	 */
+	public static final String TIMEOUT_SIMON_NAME = "[timeout]";
+
+	private static final int UUID_LENGTH = 36;
+
+	private static final int STATUS_CLASSES = 6;
+
 	/**
 	 * Public thread local list of splits used to cummulate all splits for the request.
+	 *
+	 * @deprecated list was never populated, splits of the slow requests are collected by {@link CallTreeCallback}
+	 * now (see {@link #INIT_PARAM_REPORT_THRESHOLD}) and this field is not used anymore
 	 */
+	@Deprecated
 	public static final ThreadLocal<List<Split>> SPLITS = new ThreadLocal<List<Split>>();
 
 	private String simonPrefix = DEFAULT_SIMON_PREFIX;
 
 	private Long reportThreshold;
 
+	/**
+	 * Callback collecting splits of the requests if the report threshold is set.
+	 */
+	private CallTreeCallback callTreeCallback;
+
+	private AsyncCallTreeSink reportSink;
+
+	private RingBufferCallTreeSink slowRequests;
+
 	/**
 	 * URL path that displays Simon web console (or null if no console is required).
 	 */
 	private String consolePath;
 
+	private boolean uriTemplating = true;
+
+	private boolean asyncSupport;
+
+	private boolean breakdown;
+
+	/**
+	 * Simons cached for the request URIs - used only if {@link #getSimonName(HttpServletRequest)} is not
+	 * overridden, because overriding method may use other parts of the request than URI. URIs with ID segments
+	 * are not cached, their Simons are cached by the Simon name instead (names never start with slash, so the keys
+	 * do not clash).
+	 */
+	private ConcurrentMap<String, RequestSimons> stopwatchCache;
+
+	private int stopwatchCacheSize = DEFAULT_STOPWATCH_CACHE_SIZE;
+
+	private String suspendedName;
+
+	private volatile Counter suspendedCounter;
+
 	/**
 	 * Initialization method that processes {@link #INIT_PARAM_PREFIX} and {@link #INIT_PARAM_PUBLISH_MANAGER}
 	 * parameters from {@literal web.xml}.
@@ -80,6 +256,7 @@ public class SimonServletFilter implements Filter {
 		if (filterConfig.getInitParameter(INIT_PARAM_PREFIX) != null) {
 			simonPrefix = filterConfig.getInitParameter(INIT_PARAM_PREFIX);
 		}
+		suspendedName = simonPrefix + Manager.HIERARCHY_DELIMITER + SUSPENDED_SIMON_NAME;
 		String publishManager = filterConfig.getInitParameter(INIT_PARAM_PUBLISH_MANAGER);
 		if (publishManager != null) {
 			filterConfig.getServletContext().setAttribute(publishManager, SimonManager.manager());
@@ -96,11 +273,99 @@ public class SimonServletFilter implements Filter {
 		if (consolePath != null) {
 			this.consolePath = consolePath;
 		}
+		String uriTemplating = filterConfig.getInitParameter(INIT_PARAM_URI_TEMPLATING);
+		if (uriTemplating != null) {
+			this.uriTemplating = Boolean.parseBoolean(uriTemplating);
+		}
+		String async = filterConfig.getInitParameter(INIT_PARAM_ASYNC);
+		if (async != null) {
+			asyncSupport = Boolean.parseBoolean(async);
+		}
+		String breakdown = filterConfig.getInitParameter(INIT_PARAM_BREAKDOWN);
+		if (breakdown != null) {
+			this.breakdown = Boolean.parseBoolean(breakdown);
+		}
+		String cacheSize = filterConfig.getInitParameter(INIT_PARAM_STOPWATCH_CACHE_SIZE);
+		if (cacheSize != null) {
+			try {
+				stopwatchCacheSize = Integer.parseInt(cacheSize);
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+		if (stopwatchCacheSize > 0 && !isSimonNameOverridden()) {
+			stopwatchCache = new ConcurrentHashMap<String, RequestSimons>();
+		}
+		if (reportThreshold != null) {
+			initReporting(filterConfig);
+		}
+	}
+
+	private void initReporting(FilterConfig filterConfig) {
+		int bufferSize = DEFAULT_REPORT_BUFFER_SIZE;
+		String bufferSizeParam = filterConfig.getInitParameter(INIT_PARAM_REPORT_BUFFER_SIZE);
+		if (bufferSizeParam != null) {
+			try {
+				bufferSize = Integer.parseInt(bufferSizeParam);
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+		slowRequests = new RingBufferCallTreeSink(bufferSize);
+		final CallTreeSink sink = createReportSink(filterConfig.getInitParameter(INIT_PARAM_REPORT_SINK));
+		reportSink = new AsyncCallTreeSink(new CallTreeSink() {
+			public void report(Split split, CallTreeNode root) {
+				slowRequests.report(split, root);
+				sink.report(split, root);
+			}
+		});
+
+		callTreeCallback = new CallTreeCallback();
+		callTreeCallback.setRootPattern(simonPrefix + Manager.HIERARCHY_DELIMITER + "*");
+		callTreeCallback.setThreshold(reportThreshold);
+		callTreeCallback.setSink(reportSink);
+		SimonManager.callback().addCallback(callTreeCallback);
+	}
+
+	private static CallTreeSink createReportSink(String sinkClass) {
+		if (sinkClass == null) {
+			return new LoggingCallTreeSink();
+		}
+		try {
+			return (CallTreeSink) Class.forName(sinkClass).newInstance();
+		} catch (InstantiationException e) {
+			throw new SimonException(e);
+		} catch (IllegalAccessException e) {
+			throw new SimonException(e);
+		} catch (ClassNotFoundException e) {
+			throw new SimonException(e);
+		} catch (ClassCastException e) {
+			throw new SimonException(e);
+		}
+	}
+
+	private boolean isSimonNameOverridden() {
+		for (Class<?> type = getClass(); type != SimonServletFilter.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod("getSimonName", HttpServletRequest.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared in this class
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * Wraps the HTTP request with Simon measuring. Separate Simons are created for different URIs (parameters
 	 * ignored).
+	 * <p/>
+	 * If {@link #INIT_PARAM_ASYNC} is true and the request is put into the asynchronous mode, split is not stopped
+	 * when the filter chain returns but when the request completes (or times out or fails) - {@link AsyncListener}
+	 * is registered for this. Time of the dispatch that suspended the request is added to the child Stopwatch
+	 * {@link #DISPATCH_SIMON_NAME} and the number of currently suspended requests is kept in the Counter
+	 * {@link #SUSPENDED_SIMON_NAME}. Asynchronous re-dispatches are not measured separately, they are part
+	 * of the original request.
 	 *
 	 * @param servletRequest HTTP servlet request
 	 * @param response HTTP servlet response
@@ -114,76 +379,413 @@ public class SimonServletFilter implements Filter {
 			consolePage(request, (HttpServletResponse) response);
 			return;
 		}
-		String simonName = getSimonName(request);
-		SPLITS.set(new ArrayList<Split>());
-		Stopwatch stopwatch = SimonManager.getStopwatch(simonPrefix + Manager.HIERARCHY_DELIMITER + simonName);
-		if (stopwatch.getNote() == null) {
-			stopwatch.setNote(request.getRequestURI());
+		if (asyncSupport && request.getDispatcherType() == DispatcherType.ASYNC) {
+			filterChain.doFilter(request, response);
+			return;
 		}
-		Split split = stopwatch.start();
+		RequestSimons simons = getRequestSimons(request);
+		CountingResponseWrapper countingResponse = breakdown ? new CountingResponseWrapper((HttpServletResponse) response) : null;
+		Split split = simons.stopwatch.start();
+		Throwable failure = null;
 		try {
-			filterChain.doFilter(request, response);
-		} catch (Exception e) {
-			e.printStackTrace();
+			filterChain.doFilter(request, countingResponse != null ? countingResponse : response);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		} catch (ServletException e) {
+			failure = e;
+			throw e;
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} catch (Error e) {
+			failure = e;
+			throw e;
 		} finally {
-			split.stop();
-			if (reportThreshold != null && split.runningFor() > reportThreshold) {
-				SimonManager.message("Split is too long: " + SPLITS.get()); // TODO + callback, logging, whatever
+			if (asyncSupport && request.isAsyncStarted()) {
+				suspend(request, simons, split, countingResponse);
+			} else {
+				split.stop();
+				recordBreakdown(simons, split, countingResponse, failure, false);
+			}
+		}
+	}
+
+	private void suspend(HttpServletRequest request, RequestSimons simons, Split split, CountingResponseWrapper countingResponse) {
+		simons.dispatchStopwatch().addTime(split.runningFor());
+		Counter suspended = suspendedCounter;
+		if (!SimonManager.isCurrent(suspended)) {
+			suspended = SimonManager.getCounter(suspendedName);
+			suspendedCounter = suspended;
+		}
+		suspended.increase();
+		// listener is registered before the dispatch returns to the container, so no event can be missed
+		// split will be stopped on another thread, its call tree must be detached from this one
+		CallTreeContext callTree = callTreeCallback != null ? callTreeCallback.detach() : null;
+		request.getAsyncContext().addListener(new SplitListener(simons, split, callTree, suspended, countingResponse));
+	}
+
+	private void recordBreakdown(RequestSimons simons, Split split, CountingResponseWrapper countingResponse, Throwable failure, boolean timeout) {
+		if (countingResponse == null) {
+			return;
+		}
+		Stopwatch child = timeout ? simons.timeoutStopwatch()
+			: failure != null ? simons.exceptionStopwatch(failure) : simons.statusStopwatch(countingResponse.getStatus());
+		if (child != null) {
+			child.addTime(split.runningFor());
+		}
+		simons.bytesCounter().increase(countingResponse.getCount());
+	}
+
+	/**
+	 * Returns Stopwatch measuring the request. Stopwatch is cached for the request URI (or for the Simon name
+	 * if the URI contains ID segments), cached Stopwatch is used only if it is still the Stopwatch of the manager
+	 * with the same name (it was not evicted or destroyed, manager was not cleared or disabled meanwhile).
+	 *
+	 * @param request HTTP request
+	 * @return Stopwatch measuring the request
+	 * @since 3.0
+	 */
+	protected Stopwatch getStopwatch(HttpServletRequest request) {
+		return getRequestSimons(request).stopwatch;
+	}
+
+	private RequestSimons getRequestSimons(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		RequestSimons cached = getCached(uri);
+		if (cached != null) {
+			return cached;
+		}
+
+		String name = simonPrefix + Manager.HIERARCHY_DELIMITER + getSimonName(request);
+		// URIs with IDs would flood the cache, their Simons are cached by the templated name
+		boolean templated = name.contains(ID_SEGMENT);
+		if (templated) {
+			cached = getCached(name);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		Stopwatch stopwatch = SimonManager.getStopwatch(name);
+		if (stopwatch.getNote() == null) {
+			stopwatch.setNote(uri);
+		}
+		RequestSimons simons = new RequestSimons(name, stopwatch, breakdown);
+		if (stopwatchCache != null) {
+			String key = templated ? name : uri;
+			if (stopwatchCache.size() >= stopwatchCacheSize && !stopwatchCache.containsKey(key)) {
+				evictCached();
+			}
+			stopwatchCache.put(key, simons);
+		}
+		return simons;
+	}
+
+	private RequestSimons getCached(String key) {
+		RequestSimons cached = stopwatchCache != null ? stopwatchCache.get(key) : null;
+		if (cached == null || !SimonManager.isCurrent(cached.stopwatch)) {
+			return null;
+		}
+		if (!cached.referenced) {
+			cached.referenced = true;
+		}
+		return cached;
+	}
+
+	/**
+	 * Removes the first entry not used since it was passed by the previous eviction, entries used meanwhile get
+	 * the second chance. If all entries were used, the first one is removed in the second pass.
+	 */
+	private void evictCached() {
+		for (int pass = 0; pass < 2; pass++) {
+			for (Iterator<RequestSimons> iterator = stopwatchCache.values().iterator(); iterator.hasNext(); ) {
+				RequestSimons simons = iterator.next();
+				if (!simons.referenced) {
+					iterator.remove();
+					return;
+				}
+				simons.referenced = false;
 			}
-			SPLITS.remove();
 		}
 	}
 
 	private void consolePage(HttpServletRequest request, HttpServletResponse response) throws IOException {
-		response.setContentType("text/plain");
 		response.setHeader("Cache-Control", "no-cache, no-store, max-age=0, must-revalidate");
 		response.setHeader("Pragma", "no-cache");
 		String subcommand = request.getRequestURI().substring(consolePath.length());
+		if (subcommand.equalsIgnoreCase("/json") || subcommand.equalsIgnoreCase("/html")) {
+			simonList(request, response, subcommand.equalsIgnoreCase("/json"));
+			return;
+		}
+		response.setContentType("text/plain");
 		if (subcommand.isEmpty()) {
 			printSimonTree(response);
 		} else if (subcommand.equalsIgnoreCase("/clear")) {
 			SimonManager.clear();
 			response.getOutputStream().println("Simon Manager was cleared");
+		} else if (subcommand.equalsIgnoreCase("/slow")) {
+			printSlowRequests(response);
 		} else {
 			response.getOutputStream().println("Invalid command\n");
 			simonHelp(response);
 		}
 	}
 
+	private void simonList(HttpServletRequest request, HttpServletResponse response, boolean json) throws IOException {
+		SimonConsole console;
+		try {
+			console = SimonConsole.fromRequest(request);
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		response.setContentType(json ? "application/json;charset=UTF-8" : "text/html;charset=UTF-8");
+		PrintWriter writer = response.getWriter();
+		if (json) {
+			console.writeJson(SimonManager.getRootSimon(), writer);
+		} else {
+			console.writeHtml(SimonManager.getRootSimon(), writer, request.getRequestURI());
+		}
+		writer.flush();
+	}
+
 	private void simonHelp(ServletResponse response) throws IOException {
 		response.getOutputStream().println("Simon Console help:");
+		response.getOutputStream().println("  (empty) - tree of all Simons");
+		response.getOutputStream().println("  /clear - clears the Simon Manager");
+		response.getOutputStream().println("  /slow - last requests over the report threshold with their call trees");
+		response.getOutputStream().println("  /json, /html - list of Simons, parameters: pattern, type (stopwatch, counter),");
+		response.getOutputStream().println("      sort (name, total, max, mean, counter), limit, offset");
 	}
 
 	private void printSimonTree(ServletResponse response) throws IOException {
-		response.getOutputStream().println(SimonUtils.simonTreeString(SimonManager.getRootSimon()));
+		PrintWriter writer = response.getWriter();
+		SimonUtils.printSimonTree(SimonManager.getRootSimon(), writer);
+		writer.flush();
+	}
+
+	private void printSlowRequests(ServletResponse response) throws IOException {
+		if (slowRequests == null) {
+			response.getOutputStream().println("Slow requests are not reported, " + INIT_PARAM_REPORT_THRESHOLD + " is not set");
+			return;
+		}
+		List<ReportedCallTree> reports = slowRequests.getReports();
+		response.getOutputStream().println("Slow requests (over " + reportThreshold + " ms): " + reports.size()
+			+ " shown, " + slowRequests.getReported() + " reported, " + reportSink.getDropped() + " dropped\n");
+		for (ReportedCallTree report : reports) {
+			response.getOutputStream().println(report.toString());
+		}
 	}
 
 	/**
 	 * Returns Simon name for the specified HTTP request. By default it contains URI without parameters with
-	 * all slashes replaced for dots (slashes then determines position in Simon hierarchy). Method can be
-	 * overriden.
+	 * all slashes replaced for dots (slashes then determines position in Simon hierarchy), dots and other characters
+	 * not allowed in Simon names are removed. Numeric and UUID path segments are replaced by {@link #ID_SEGMENT}
+	 * unless {@link #INIT_PARAM_URI_TEMPLATING} is false. Method can be overriden - Stopwatches are not cached
+	 * for URIs in that case.
 	 *
 	 * @param request HTTP request
 	 * @return fully qualified name of the Simon
 	 */
 	protected String getSimonName(HttpServletRequest request) {
-		StringBuilder name = new StringBuilder(request.getRequestURI().replaceAll("\\.+", "").replace('/', '.'));
-		for (int i = 0; i < name.length(); i++) {
-			if (name.charAt(i) == '?') {
-				name.delete(i, name.length());
-				break;
+		String uri = request.getRequestURI();
+		int end = uri.indexOf('?');
+		if (end == -1) {
+			end = uri.length();
+		}
+		StringBuilder name = new StringBuilder(end + Manager.HIERARCHY_DELIMITER.length());
+		int segmentStart = 0;
+		while (segmentStart < end) {
+			int segmentEnd = uri.indexOf('/', segmentStart);
+			if (segmentEnd == -1 || segmentEnd > end) {
+				segmentEnd = end;
 			}
-			if (SimonUtils.ALLOWED_CHARS.indexOf(name.charAt(i)) == -1) {
-				name.deleteCharAt(i);
-				i--;
+			if (segmentEnd > segmentStart) {
+				appendSegment(name, uri, segmentStart, segmentEnd);
 			}
+			segmentStart = segmentEnd + 1;
+		}
+		return name.toString();
+	}
+
+	private void appendSegment(StringBuilder name, String uri, int start, int end) {
+		int mark = name.length();
+		if (mark > 0) {
+			name.append(Manager.HIERARCHY_DELIMITER);
+		}
+		int segmentMark = name.length();
+		if (uriTemplating && isIdSegment(uri, start, end)) {
+			name.append(ID_SEGMENT);
+			return;
+		}
+		for (int i = start; i < end; i++) {
+			char c = uri.charAt(i);
+			if (c != '.' && SimonUtils.isNameChar(c)) {
+				name.append(c);
+			}
+		}
+		if (name.length() == segmentMark) {
+			name.setLength(mark);
+		}
+	}
+
+	private static boolean isIdSegment(String uri, int start, int end) {
+		return isNumber(uri, start, end) || isUuid(uri, start, end);
+	}
+
+	private static boolean isNumber(String uri, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = uri.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// 8-4-4-4-12 hexadecimal digits
+	private static boolean isUuid(String uri, int start, int end) {
+		if (end - start != UUID_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < UUID_LENGTH; i++) {
+			char c = uri.charAt(start + i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return false;
+				}
+			} else if (Character.digit(c, 16) == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the split of the asynchronous request when the request completes, times out or fails - whatever
+	 * comes first.
+	 */
+	private final class SplitListener implements AsyncListener {
+		private final RequestSimons simons;
+		private final Split split;
+		private final CallTreeContext callTree;
+		private final Counter suspended;
+		private final CountingResponseWrapper countingResponse;
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		SplitListener(RequestSimons simons, Split split, CallTreeContext callTree, Counter suspended,
+			CountingResponseWrapper countingResponse) {
+			this.simons = simons;
+			this.split = split;
+			this.callTree = callTree;
+			this.suspended = suspended;
+			this.countingResponse = countingResponse;
+		}
+
+		public void onComplete(AsyncEvent event) {
+			finish(null, false);
+		}
+
+		public void onTimeout(AsyncEvent event) {
+			finish(null, true);
+		}
+
+		public void onError(AsyncEvent event) {
+			finish(event.getThrowable(), false);
+		}
+
+		public void onStartAsync(AsyncEvent event) {
+			// request was suspended again after the re-dispatch, the listener must be registered again
+			event.getAsyncContext().addListener(this);
+		}
+
+		private void finish(Throwable failure, boolean timeout) {
+			if (finished.compareAndSet(false, true)) {
+				split.stop();
+				suspended.decrease();
+				recordBreakdown(simons, split, countingResponse, failure, timeout);
+				if (callTree != null) {
+					callTreeCallback.stopDetached(callTree, split);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Simons of the request URI - Stopwatch with its name and the children resolved on the first use,
+	 * so the names are not concatenated for every request. Children are resolved again if they are not current
+	 * anymore.
+	 */
+	private static final class RequestSimons {
+		private final String name;
+		private final Stopwatch stopwatch;
+		private final AtomicReferenceArray<Stopwatch> statusStopwatches;
+		private volatile Counter bytesCounter;
+		private volatile Stopwatch dispatchStopwatch;
+		private volatile boolean referenced;
+
+		RequestSimons(String name, Stopwatch stopwatch, boolean breakdown) {
+			this.name = name;
+			this.stopwatch = stopwatch;
+			statusStopwatches = breakdown ? new AtomicReferenceArray<Stopwatch>(STATUS_CLASSES) : null;
+		}
+
+		/**
+		 * Returns the child Stopwatch for the HTTP status class or null for invalid status.
+		 */
+		Stopwatch statusStopwatch(int status) {
+			int statusClass = status / 100;
+			if (statusClass < 1 || statusClass >= STATUS_CLASSES) {
+				return null;
+			}
+			Stopwatch child = statusStopwatches.get(statusClass);
+			if (!SimonManager.isCurrent(child)) {
+				child = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + "[" + statusClass + "xx]");
+				statusStopwatches.set(statusClass, child);
+			}
+			return child;
+		}
+
+		/**
+		 * Returns the child Stopwatch for the exception - failures are rare, hence it is not cached.
+		 */
+		Stopwatch exceptionStopwatch(Throwable failure) {
+			return SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + "[" + SimonUtils.localName(failure.getClass().getName()) + "]");
+		}
+
+		/**
+		 * Returns the child Stopwatch for the timed out request - timeouts are rare, hence it is not cached.
+		 */
+		Stopwatch timeoutStopwatch() {
+			return SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + TIMEOUT_SIMON_NAME);
+		}
+
+		Counter bytesCounter() {
+			Counter counter = bytesCounter;
+			if (!SimonManager.isCurrent(counter)) {
+				counter = SimonManager.getCounter(name + Manager.HIERARCHY_DELIMITER + BYTES_SIMON_NAME);
+				bytesCounter = counter;
+			}
+			return counter;
+		}
+
+		Stopwatch dispatchStopwatch() {
+			Stopwatch child = dispatchStopwatch;
+			if (!SimonManager.isCurrent(child)) {
+				child = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + DISPATCH_SIMON_NAME);
+				dispatchStopwatch = child;
+			}
+			return child;
 		}
-		return name.toString().replaceAll("^\\.+", "").replaceAll("\\.+", ".");
 	}
 
 	/**
-	 * Does nothing - just implements the contract.
+	 * Removes the callback collecting splits of the slow requests and stops the background reporting thread.
 	 */
 	public void destroy() {
+		if (callTreeCallback != null) {
+			SimonManager.callback().removeCallback(callTreeCallback);
+			reportSink.stop();
+		}
 	}
 }
@@ -1,11 +1,13 @@
 package org.javasimon.jdbc4;
 
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.DriverPropertyInfo;
 import java.sql.DriverManager;
 import java.sql.Connection;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.logging.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -319,4 +321,14 @@ public final class Driver implements java.sql.Driver {
 	public boolean jdbcCompliant() {
 		return true;
 	}
+
+	/**
+	 * Throws SQLFeatureNotSupportedException, driver does not use java.util.logging.
+	 *
+	 * @return nothing
+	 * @throws SQLFeatureNotSupportedException always
+	 */
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
 }
@@ -922,4 +922,18 @@ public final class SimonCallableStatement extends SimonPreparedStatement impleme
 	public void setNClob(String s, Reader reader) throws SQLException {
 		stmt.setNClob(s, reader);
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return stmt.getObject(columnIndex, type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return stmt.getObject(columnLabel, type);
+	}
 }
@@ -7,6 +7,7 @@ import org.javasimon.Split;
 import java.util.Map;
 import java.sql.*;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 /**
  * Class implements Simon JDBC4 proxy connection.
@@ -532,4 +533,39 @@ public final class SimonConnection implements Connection {
 	public boolean isWrapperFor(Class<?> aClass) throws SQLException {
 		throw new SQLException("not implemented");
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setSchema(String schema) throws SQLException {
+		conn.setSchema(schema);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getSchema() throws SQLException {
+		return conn.getSchema();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void abort(Executor executor) throws SQLException {
+		conn.abort(executor);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		conn.setNetworkTimeout(executor, milliseconds);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getNetworkTimeout() throws SQLException {
+		return conn.getNetworkTimeout();
+	}
 }
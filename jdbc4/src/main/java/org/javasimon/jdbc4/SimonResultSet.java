@@ -1527,4 +1527,18 @@ public final class SimonResultSet implements ResultSet {
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
 		return rset.isWrapperFor(iface);
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return rset.getObject(columnIndex, type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return rset.getObject(columnLabel, type);
+	}
 }
@@ -582,4 +582,18 @@ public class SimonStatement implements Statement {
 	public final boolean isWrapperFor(Class<?> aClass) throws SQLException {
 		throw new SQLException("not implemented");
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void closeOnCompletion() throws SQLException {
+		stmt.closeOnCompletion();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isCloseOnCompletion() throws SQLException {
+		return stmt.isCloseOnCompletion();
+	}
 }
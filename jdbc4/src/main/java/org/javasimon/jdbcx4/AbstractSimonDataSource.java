@@ -2,6 +2,8 @@ package org.javasimon.jdbcx4;
 
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
 
 /**
  * SimonCommonDataSource is parent for all three datasource implementation classes.
@@ -171,4 +173,14 @@ public abstract class AbstractSimonDataSource {
 	public final void setPrefix(String prefix) {
 		this.prefix = prefix;
 	}
+
+	/**
+	 * Throws SQLFeatureNotSupportedException, datasource does not use java.util.logging.
+	 *
+	 * @return nothing
+	 * @throws SQLFeatureNotSupportedException always
+	 */
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
 }
@@ -1,8 +1,9 @@
 package org.javasimon.spring;
 
-import org.aopalliance.intercept.MethodInvocation;
+import java.lang.reflect.Method;
+
 import org.javasimon.aop.Monitored;
-import org.springframework.aop.support.AopUtils;
+import org.javasimon.aop.MonitoredSampling;
 
 /**
  * Utility class that can be used along side the {@link Monitored} annotation.
@@ -15,19 +16,33 @@ final class MonitoredHelper {
 	}
 
 	/**
-	 * Determine monitor name for a method invocation.
+	 * Determine monitor name for a method of the target class.
 	 *
-	 * @param invocation the method invocation (not null)
-	 * @return the monitor name for this invocation
+	 * @param targetClass class of the invocation target
+	 * @param method invoked method
+	 * @return the monitor name for the method
+	 * @since 3.0
 	 */
-	public static String getMonitorName(MethodInvocation invocation) {
-		String classPart = getClassPart(invocation);
-		String methodPart = getMethodPart(invocation);
+	public static String getMonitorName(Class targetClass, Method method) {
+		String classPart = getClassPart(targetClass);
+		String methodPart = getMethodPart(method);
 		return classPart + '.' + methodPart;
 	}
 
-	private static String getClassPart(MethodInvocation invocation) {
-		Class targetClass = AopUtils.getTargetClass(invocation.getThis());
+	/**
+	 * Determine sampling rate for a method of the target class - sampling set on the method annotation overrides
+	 * the class one (see {@link MonitoredSampling}).
+	 *
+	 * @param targetClass class of the invocation target
+	 * @param method invoked method
+	 * @return sampling rate from the {@link Monitored} annotation, 1 if not specified
+	 * @since 3.0
+	 */
+	public static int getSampling(Class targetClass, Method method) {
+		return MonitoredSampling.resolve((Monitored) targetClass.getAnnotation(Monitored.class), method.getAnnotation(Monitored.class));
+	}
+
+	private static String getClassPart(Class targetClass) {
 		Monitored classAnnotation = (Monitored) targetClass.getAnnotation(Monitored.class);
 		if (classAnnotation == null || classAnnotation.name() == null || classAnnotation.name().length() == 0) {
 			return targetClass.getName();
@@ -36,10 +51,10 @@ final class MonitoredHelper {
 		}
 	}
 
-	private static String getMethodPart(MethodInvocation invocation) {
-		Monitored methodAnnotation = invocation.getMethod().getAnnotation(Monitored.class);
+	private static String getMethodPart(Method method) {
+		Monitored methodAnnotation = method.getAnnotation(Monitored.class);
 		if (methodAnnotation == null || methodAnnotation.name() == null || methodAnnotation.name().length() == 0) {
-			return invocation.getMethod().getName();
+			return method.getName();
 		} else {
 			return methodAnnotation.name();
 		}
@@ -1,18 +1,100 @@
 package org.javasimon.spring;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
+import org.javasimon.Counter;
+import org.javasimon.Manager;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.springframework.aop.support.AopUtils;
 
 /**
  * Method interceptor that measures the duration of the intercepted call with a Stopwatch.
+ * <p/>
+ * Stopwatch is resolved once per target class and method (see {@link MonitoredHelper}) and cached, so the intercepted
+ * call does not read the annotations nor build the name - it only checks that the cached Stopwatch is still
+ * present in the manager (it may be removed by {@link Manager#clear()}) and measures the split.
+ * <p/>
+ * Optionally the time of each call is added also to the child Stopwatch {@link #SUCCESS_SIMON_NAME} or
+ * {@link #EXCEPTION_SIMON_NAME} depending on the result of the call ({@link #setSeparateResults(boolean)})
+ * and the number of calls in flight is tracked by the Counter ({@link #setInFlightCounterName(String)}).
  *
  * @author Erik van Oosten
  */
 public final class MonitoringInterceptor implements MethodInterceptor, Serializable {
+	/**
+	 * Local name of the child Stopwatch measuring calls that returned normally.
+	 *
+	 * @since 3.0
+	 */
+	public static final String SUCCESS_SIMON_NAME = "[success]";
+
+	/**
+	 * Local name of the child Stopwatch measuring calls that threw an exception.
+	 *
+	 * @since 3.0
+	 */
+	public static final String EXCEPTION_SIMON_NAME = "[exception]";
+
+	private boolean separateResults;
+
+	private String inFlightCounterName;
+
+	private transient volatile Counter inFlightCounter;
+
+	private transient ConcurrentMap<MethodKey, Monitor> monitors = new ConcurrentHashMap<MethodKey, Monitor>();
+
+	/**
+	 * Returns true if calls are measured also by the child Stopwatches according to their results.
+	 *
+	 * @return true if success/exception Stopwatches are used
+	 * @since 3.0
+	 */
+	public boolean isSeparateResults() {
+		return separateResults;
+	}
+
+	/**
+	 * Switches the measuring by the child Stopwatches {@link #SUCCESS_SIMON_NAME} and {@link #EXCEPTION_SIMON_NAME}.
+	 *
+	 * @param separateResults true if success/exception Stopwatches should be used
+	 * @since 3.0
+	 */
+	public void setSeparateResults(boolean separateResults) {
+		this.separateResults = separateResults;
+		monitors.clear();
+	}
+
+	/**
+	 * Returns the name of the Counter tracking the calls in flight.
+	 *
+	 * @return name of the Counter or null if calls in flight are not tracked
+	 * @since 3.0
+	 */
+	public String getInFlightCounterName() {
+		return inFlightCounterName;
+	}
+
+	/**
+	 * Sets the name of the Counter tracking the calls in flight - it is increased when the call starts and decreased
+	 * when it ends, its max is the peak number of concurrent calls through this interceptor.
+	 *
+	 * @param inFlightCounterName name of the Counter or null if calls in flight should not be tracked
+	 * @since 3.0
+	 */
+	public void setInFlightCounterName(String inFlightCounterName) {
+		this.inFlightCounterName = inFlightCounterName;
+		inFlightCounter = null;
+	}
+
 	/**
 	 * Performs method invocation and wraps it with Stopwatch.
 	 *
@@ -21,13 +103,127 @@ public final class MonitoringInterceptor implements MethodInterceptor, Serializa
 	 * @throws Throwable anything thrown by the method
 	 */
 	public Object invoke(MethodInvocation invocation) throws Throwable {
-		String monitorName = MonitoredHelper.getMonitorName(invocation);
-
-		Split split = SimonManager.getStopwatch(monitorName).start();
+		Monitor monitor = getMonitor(invocation);
+		Counter inFlight = getInFlightCounter();
+		if (inFlight != null) {
+			inFlight.increase();
+		}
+		Split split = monitor.stopwatch.start();
+		boolean success = false;
 		try {
-			return invocation.proceed();
+			Object result = invocation.proceed();
+			success = true;
+			return result;
 		} finally {
 			split.stop();
+			if (monitor.separateResults && split.isEnabled()) {
+				monitor.resultStopwatch(success).addTime(split.runningFor());
+			}
+			if (inFlight != null) {
+				inFlight.decrease();
+			}
+		}
+	}
+
+	private Monitor getMonitor(MethodInvocation invocation) {
+		MethodKey key = new MethodKey(AopUtils.getTargetClass(invocation.getThis()), invocation.getMethod());
+		Monitor monitor = monitors.get(key);
+		if (monitor != null && SimonManager.isCurrent(monitor.stopwatch)) {
+			return monitor;
+		}
+
+		String name = MonitoredHelper.getMonitorName(key.targetClass, key.method);
+		Stopwatch stopwatch = SimonManager.getStopwatch(name);
+		int sampling = MonitoredHelper.getSampling(key.targetClass, key.method);
+		if (sampling != 1 && stopwatch.getSampling() == 1) {
+			stopwatch.setSampling(sampling);
+		}
+		monitor = new Monitor(name, stopwatch, separateResults);
+		monitors.put(key, monitor);
+		return monitor;
+	}
+
+	private Counter getInFlightCounter() {
+		String name = inFlightCounterName;
+		if (name == null) {
+			return null;
+		}
+		Counter counter = inFlightCounter;
+		if (!SimonManager.isCurrent(counter)) {
+			counter = SimonManager.getCounter(name);
+			inFlightCounter = counter;
+		}
+		return counter;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		monitors = new ConcurrentHashMap<MethodKey, Monitor>();
+	}
+
+	/**
+	 * Key of the monitor cache - target class and invoked method.
+	 */
+	private static final class MethodKey {
+		private final Class targetClass;
+		private final Method method;
+
+		MethodKey(Class targetClass, Method method) {
+			this.targetClass = targetClass;
+			this.method = method;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof MethodKey)) {
+				return false;
+			}
+			MethodKey other = (MethodKey) o;
+			return targetClass == other.targetClass && method.equals(other.method);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * targetClass.hashCode() + method.hashCode();
+		}
+	}
+
+	/**
+	 * Resolved Stopwatches of the method - success/exception Stopwatches are resolved again whenever they are used
+	 * and they are not current anymore.
+	 */
+	private static final class Monitor {
+		private final String name;
+		private final Stopwatch stopwatch;
+		private final boolean separateResults;
+		private volatile Stopwatch success;
+		private volatile Stopwatch exception;
+
+		Monitor(String name, Stopwatch stopwatch, boolean separateResults) {
+			this.name = name;
+			this.stopwatch = stopwatch;
+			this.separateResults = separateResults;
+			if (separateResults) {
+				success = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + SUCCESS_SIMON_NAME);
+				exception = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER + EXCEPTION_SIMON_NAME);
+			}
+		}
+
+		Stopwatch resultStopwatch(boolean success) {
+			Stopwatch child = success ? this.success : exception;
+			if (!SimonManager.isCurrent(child)) {
+				child = SimonManager.getStopwatch(name + Manager.HIERARCHY_DELIMITER
+					+ (success ? SUCCESS_SIMON_NAME : EXCEPTION_SIMON_NAME));
+				if (success) {
+					this.success = child;
+				} else {
+					exception = child;
+				}
+			}
+			return child;
 		}
 	}
-}
\ No newline at end of file
+}